@@ -102,8 +102,6 @@ public class DiscordBotRunner extends ListenerAdapter implements CommandLineRunn
 
     private void handleMessage(SlashCommandInteractionEvent event, String msg) {
         if (msg.startsWith(discordBotEnvironment.getCommandPrefix())) {
-            event.getChannel().sendTyping().queue();
-
             var parsedMessage = msg.substring(discordBotEnvironment.getCommandPrefix().length());
 
             commandExecutor.tryExecute(event, parsedMessage);
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.CircuitBreaker.State;
+import be.thibaulthelsmoortel.currencyconverterbot.config.CircuitBreakerEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RateLimitEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RateLimitEnvironment.Budget;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RetryEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.exceptions.ApiUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Guards every API endpoint with a circuit breaker and a bulkhead limiting the concurrent calls. Calls to an endpoint
+ * of which the circuit is open, or of which the bulkhead is full, fail fast with an {@link ApiUnavailableException}.
+ * Client errors are considered successful calls, as they are caused by the request rather than by the API.
+ * <p>
+ * As all API calls are idempotent, calls failing with a transient error are retried with a jittered exponential
+ * backoff, as long as the deadline of the command making the call leaves room for it. Optionally, calls taking longer
+ * than the 95th percentile latency of their endpoint are hedged: a second attempt is made, the first answer is used.
+ * <p>
+ * Every attempt takes a permit from the rate limiter of its endpoint, waiting a bounded time when none is available.
+ * The {@link CallType} of a call is read from the {@link #CALL_TYPE_CONTEXT_KEY} of its subscriber context, calls
+ * without one are considered user calls. Only calls of the prioritized type may use the reserved permits.
+ *
+ * @author Thibault Helsmoortel
+ */
+@Component
+@Slf4j
+public class ApiCallGuard {
+
+    public static final String CALL_TYPE_CONTEXT_KEY = "api.call.type";
+
+    /**
+     * Key of the instant by which a call must complete, in its subscriber context. Calls without one wait no longer
+     * than configured.
+     */
+    public static final String DEADLINE_CONTEXT_KEY = "api.call.deadline";
+
+    private static final double HEDGING_PERCENTILE = 0.95;
+
+    private final Map<String, EndpointGuard> endpointGuards = new ConcurrentHashMap<>();
+    private final CircuitBreakerEnvironment circuitBreakerEnvironment;
+    private final RetryEnvironment retryEnvironment;
+    private final RateLimitEnvironment rateLimitEnvironment;
+    private final MeterRegistry meterRegistry;
+
+    private Clock clock = Clock.systemUTC();
+    private LongSupplier nanoClock = System::nanoTime;
+
+    public ApiCallGuard(CircuitBreakerEnvironment circuitBreakerEnvironment, RetryEnvironment retryEnvironment,
+            RateLimitEnvironment rateLimitEnvironment, MeterRegistry meterRegistry) {
+        this.circuitBreakerEnvironment = circuitBreakerEnvironment;
+        this.retryEnvironment = retryEnvironment;
+        this.rateLimitEnvironment = rateLimitEnvironment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Guards a call to the given endpoint.
+     *
+     * @param endpoint the path of the called endpoint
+     * @param call the supplier of the call, invoked for every attempt
+     * @param <T> the type of the response
+     * @return the guarded call
+     */
+    public <T> Mono<T> guard(String endpoint, Supplier<Mono<T>> call) {
+        EndpointGuard endpointGuard = endpointGuards.computeIfAbsent(endpoint, this::createEndpointGuard);
+        Mono<T> attempt = limit(endpoint, endpointGuard, protect(endpoint, endpointGuard, call));
+
+        return retry(endpoint, hedge(endpoint, endpointGuard, attempt));
+    }
+
+    /**
+     * Returns the circuit state of every endpoint called so far.
+     *
+     * @return the circuit states, keyed by endpoint
+     */
+    public Map<String, State> getCircuitStates() {
+        Map<String, State> circuitStates = new TreeMap<>();
+        endpointGuards.forEach((endpoint, endpointGuard) -> circuitStates.put(endpoint, endpointGuard.circuitBreaker().getState()));
+
+        return circuitStates;
+    }
+
+    private <T> Mono<T> limit(String endpoint, EndpointGuard endpointGuard, Mono<T> attempt) {
+        if (!rateLimitEnvironment.isEnabled()) {
+            return attempt;
+        }
+
+        return Mono.deferContextual(context -> {
+            CallType callType = context.getOrDefault(CALL_TYPE_CONTEXT_KEY, CallType.USER);
+            Duration maxWait = getMaxWait(context.getOrDefault(DEADLINE_CONTEXT_KEY, null));
+            Duration wait = endpointGuard.rateLimiter().tryAcquire(callType == rateLimitEnvironment.getPrioritized(), maxWait);
+            if (wait == null) {
+                return reject(endpoint, "rate limited");
+            }
+            if (wait.isZero()) {
+                return attempt;
+            }
+
+            meterRegistry.counter("api.client.calls.delayed", "endpoint", endpoint, "type", callType.name()).increment();
+
+            return Mono.delay(wait).then(attempt);
+        });
+    }
+
+    private Duration getMaxWait(Instant deadline) {
+        Duration maxWait = rateLimitEnvironment.getMaxWait();
+        if (deadline == null) {
+            return maxWait;
+        }
+
+        Duration untilDeadline = Duration.between(clock.instant(), deadline);
+
+        return untilDeadline.compareTo(maxWait) < 0 ? untilDeadline : maxWait;
+    }
+
+    private <T> Mono<T> protect(String endpoint, EndpointGuard endpointGuard, Supplier<Mono<T>> call) {
+        Timer latency = endpointGuard.latency();
+        if (!circuitBreakerEnvironment.isEnabled()) {
+            return Mono.defer(() -> timed(latency, call));
+        }
+
+        CircuitBreaker circuitBreaker = endpointGuard.circuitBreaker();
+        Semaphore bulkhead = endpointGuard.bulkhead();
+
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                return reject(endpoint, "circuit open");
+            }
+            if (!bulkhead.tryAcquire()) {
+                circuitBreaker.releasePermission();
+
+                return reject(endpoint, "bulkhead full");
+            }
+
+            // Released before the outcome is propagated, so a retry finds room in the bulkhead
+            AtomicBoolean finished = new AtomicBoolean();
+
+            return timed(latency, call)
+                    .doOnSuccess(response -> {
+                        if (finished.compareAndSet(false, true)) {
+                            bulkhead.release();
+                            circuitBreaker.onSuccess();
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (finished.compareAndSet(false, true)) {
+                            bulkhead.release();
+                            if (isFailure(e)) {
+                                circuitBreaker.onFailure();
+                            } else {
+                                circuitBreaker.onSuccess();
+                            }
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (finished.compareAndSet(false, true)) {
+                            bulkhead.release();
+                            circuitBreaker.releasePermission();
+                        }
+                    });
+        });
+    }
+
+    private static <T> Mono<T> timed(Timer latency, Supplier<Mono<T>> call) {
+        long start = System.nanoTime();
+
+        return Mono.defer(call)
+                .doOnSuccess(response -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    private <T> Mono<T> hedge(String endpoint, EndpointGuard endpointGuard, Mono<T> attempt) {
+        if (!retryEnvironment.isHedgingEnabled()) {
+            return attempt;
+        }
+
+        return Mono.defer(() -> {
+            Duration hedgingDelay = getHedgingDelay(endpointGuard.latency());
+            if (hedgingDelay == null) {
+                return attempt;
+            }
+
+            // Only the first attempt determines the outcome on failure, a failing hedged attempt is ignored
+            Mono<T> hedgedAttempt = Mono.delay(hedgingDelay)
+                    .then(Mono.defer(() -> {
+                        meterRegistry.counter("api.client.calls.hedged", "endpoint", endpoint).increment();
+
+                        return attempt;
+                    }))
+                    .onErrorResume(e -> Mono.never());
+
+            return Mono.firstWithSignal(attempt, hedgedAttempt);
+        });
+    }
+
+    private Duration getHedgingDelay(Timer latency) {
+        if (latency.count() < retryEnvironment.getHedgingMinimumCalls()) {
+            return null;
+        }
+
+        for (ValueAtPercentile valueAtPercentile : latency.takeSnapshot().percentileValues()) {
+            if (valueAtPercentile.percentile() == HEDGING_PERCENTILE && valueAtPercentile.value() > 0) {
+                return Duration.ofNanos((long) valueAtPercentile.value(TimeUnit.NANOSECONDS));
+            }
+        }
+
+        return null;
+    }
+
+    private <T> Mono<T> retry(String endpoint, Mono<T> call) {
+        if (!retryEnvironment.isEnabled() || retryEnvironment.getMaxAttempts() <= 1) {
+            return call;
+        }
+
+        return Mono.deferContextual(context -> {
+            Instant deadline = context.getOrDefault(DEADLINE_CONTEXT_KEY, null);
+
+            return call.retryWhen(Retry.backoff(retryEnvironment.getMaxAttempts() - 1L, retryEnvironment.getInitialBackoff())
+                    .maxBackoff(retryEnvironment.getMaxBackoff())
+                    .jitter(retryEnvironment.getJitter())
+                    .filter(e -> isTransient(e) && isWithinDeadline(deadline))
+                    .doBeforeRetry(retrySignal -> {
+                        log.debug("Retrying call to API endpoint {}: {}", endpoint, retrySignal.failure().getMessage());
+                        meterRegistry.counter("api.client.calls.retried", "endpoint", endpoint).increment();
+                    })
+                    .onRetryExhaustedThrow((retrySpec, retrySignal) -> retrySignal.failure()));
+        });
+    }
+
+    private boolean isWithinDeadline(Instant deadline) {
+        return deadline == null || clock.instant().plus(retryEnvironment.getMaxBackoff()).isBefore(deadline);
+    }
+
+    private <T> Mono<T> reject(String endpoint, String reason) {
+        meterRegistry.counter("api.client.calls.rejected", "endpoint", endpoint, "reason", reason).increment();
+
+        return Mono.error(new ApiUnavailableException(endpoint, reason));
+    }
+
+    private EndpointGuard createEndpointGuard(String endpoint) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(circuitBreakerEnvironment, clock,
+                (previousState, newState) -> {
+                    log.warn("Circuit of API endpoint {} transitioned from {} to {}.", endpoint, previousState, newState);
+                    meterRegistry.counter("api.circuit.transitions", "endpoint", endpoint,
+                            "from", previousState.name(), "to", newState.name()).increment();
+                });
+        for (State state : State.values()) {
+            Gauge.builder("api.circuit.state", circuitBreaker, breaker -> breaker.getState() == state ? 1 : 0)
+                    .tag("endpoint", endpoint)
+                    .tag("state", state.name())
+                    .register(meterRegistry);
+        }
+        Timer latency = Timer.builder("api.client.latency")
+                .description("Latency of successful API calls.")
+                .tag("endpoint", endpoint)
+                .publishPercentiles(HEDGING_PERCENTILE)
+                .register(meterRegistry);
+
+        Budget budget = rateLimitEnvironment.getBudget(endpoint);
+        RateLimiter rateLimiter = new RateLimiter(budget.getPermitsPerSecond(), budget.getBurst(),
+                rateLimitEnvironment.getReservedPermits(), this::nanoTime);
+
+        return new EndpointGuard(circuitBreaker, new Semaphore(circuitBreakerEnvironment.getMaxConcurrentCalls()), latency,
+                rateLimiter);
+    }
+
+    private long nanoTime() {
+        return nanoClock.getAsLong();
+    }
+
+    // Visible for testing
+    void setClock(Clock clock) {
+        this.clock = clock;
+        // The rate limiters follow the clock of the test, rather than the monotonic clock
+        this.nanoClock = () -> {
+            Instant now = clock.instant();
+
+            return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+        };
+    }
+
+    private static boolean isFailure(Throwable e) {
+        return !(e instanceof WebClientResponseException responseException
+                && responseException.getStatusCode().is4xxClientError()
+                && responseException.getStatusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+
+    private static boolean isTransient(Throwable e) {
+        return e instanceof WebClientRequestException
+                || e instanceof WebClientResponseException responseException
+                && (responseException.getStatusCode().is5xxServerError()
+                || responseException.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+
+    private record EndpointGuard(CircuitBreaker circuitBreaker, Semaphore bulkhead, Timer latency,
+                                 RateLimiter rateLimiter) {
+
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+/**
+ * Type of an API call, determining its priority when the calls to an endpoint are rate limited.
+ *
+ * @author Thibault Helsmoortel
+ */
+public enum CallType {
+    /**
+     * Call made on behalf of a user, who is waiting for its outcome.
+     */
+    USER,
+    /**
+     * Call refreshing cached data in the background.
+     */
+    REFRESH
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import be.thibaulthelsmoortel.currencyconverterbot.config.CircuitBreakerEnvironment;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.function.BiConsumer;
+
+/**
+ * Count based circuit breaker of a single API endpoint. Opens once the failure rate of the last calls reaches the
+ * threshold, rejecting calls until the open duration passed. Then a limited amount of trial calls is permitted, closing
+ * the circuit when all of them succeed, or opening it again on the first failure.
+ *
+ * @author Thibault Helsmoortel
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final CircuitBreakerEnvironment circuitBreakerEnvironment;
+    private final Clock clock;
+    private final BiConsumer<State, State> transitionListener;
+    private final boolean[] outcomes;
+
+    private State state = State.CLOSED;
+    private int index;
+    private int recordedCalls;
+    private int failedCalls;
+    private Instant openedAt;
+    private int halfOpenCalls;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(CircuitBreakerEnvironment circuitBreakerEnvironment, Clock clock,
+            BiConsumer<State, State> transitionListener) {
+        this.circuitBreakerEnvironment = circuitBreakerEnvironment;
+        this.clock = clock;
+        this.transitionListener = transitionListener;
+        this.outcomes = new boolean[circuitBreakerEnvironment.getSlidingWindowSize()];
+    }
+
+    /**
+     * Acquires the permission to call the endpoint. Every acquired permission must be followed by recording the
+     * outcome of the call, or by releasing the permission when the call was abandoned.
+     *
+     * @return true if the call is permitted, false if it should be rejected
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (clock.instant().isBefore(openedAt.plus(circuitBreakerEnvironment.getOpenDuration()))) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (halfOpenCalls >= circuitBreakerEnvironment.getPermittedCallsInHalfOpenState()) {
+                return false;
+            }
+            halfOpenCalls++;
+        }
+
+        return true;
+    }
+
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenCalls > 0) {
+            halfOpenCalls--;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        record(true);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failure) {
+                    transitionTo(State.OPEN);
+                } else if (++halfOpenSuccesses >= circuitBreakerEnvironment.getPermittedCallsInHalfOpenState()) {
+                    transitionTo(State.CLOSED);
+                }
+            }
+            case CLOSED -> {
+                if (recordedCalls == outcomes.length) {
+                    if (outcomes[index]) {
+                        failedCalls--;
+                    }
+                } else {
+                    recordedCalls++;
+                }
+                outcomes[index] = failure;
+                if (failure) {
+                    failedCalls++;
+                }
+                index = (index + 1) % outcomes.length;
+
+                if (recordedCalls >= circuitBreakerEnvironment.getMinimumNumberOfCalls()
+                        && failedCalls * 100 >= circuitBreakerEnvironment.getFailureRateThreshold() * recordedCalls) {
+                    transitionTo(State.OPEN);
+                }
+            }
+            default -> {
+                // Outcome of a call permitted before the circuit opened
+            }
+        }
+    }
+
+    private void transitionTo(State newState) {
+        State previousState = state;
+        state = newState;
+        switch (newState) {
+            case OPEN -> openedAt = clock.instant();
+            case HALF_OPEN -> {
+                halfOpenCalls = 0;
+                halfOpenSuccesses = 0;
+            }
+            case CLOSED -> {
+                index = 0;
+                recordedCalls = 0;
+                failedCalls = 0;
+            }
+        }
+        transitionListener.accept(previousState, newState);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+/**
+ * Remembers the validators of API responses, so requests can be made conditional. When the API answers that the
+ * response was not modified, the previously parsed response is reused, rather than downloading and parsing it again.
+ *
+ * @param <K> the type of the normalized request key
+ * @param <T> the type of the response
+ * @author Thibault Helsmoortel
+ */
+public class ConditionalRequestCache<K, T> {
+
+    private final Cache<K, ValidatedResponse<T>> cache;
+    private final Counter notModifiedCounter;
+
+    public ConditionalRequestCache(String requestType, long maximumSize, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        this.notModifiedCounter = Counter.builder("api.client.responses.not-modified")
+                .description("Amount of API responses reused because they were not modified.")
+                .tag("request", requestType)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Makes a request, conditional when the validators of a previous response to the same request are known.
+     *
+     * @param key the normalized key of the request
+     * @param request the request, adding the given validator headers
+     * @return the response, the previous response if it was not modified
+     */
+    public Mono<T> fetch(K key, Function<Consumer<HttpHeaders>, Mono<ResponseEntity<T>>> request) {
+        return Mono.defer(() -> {
+            ValidatedResponse<T> validatedResponse = cache.getIfPresent(key);
+
+            return request.apply(headers -> addValidators(headers, validatedResponse))
+                    .flatMap(responseEntity -> resolve(key, validatedResponse, responseEntity));
+        });
+    }
+
+    private static void addValidators(HttpHeaders headers, ValidatedResponse<?> validatedResponse) {
+        if (validatedResponse == null) {
+            return;
+        }
+
+        if (validatedResponse.eTag() != null) {
+            headers.setIfNoneMatch(validatedResponse.eTag());
+        }
+        if (validatedResponse.lastModified() != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, validatedResponse.lastModified());
+        }
+    }
+
+    private Mono<T> resolve(K key, ValidatedResponse<T> validatedResponse, ResponseEntity<T> responseEntity) {
+        if (responseEntity.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+            if (validatedResponse == null) {
+                return Mono.empty();
+            }
+            notModifiedCounter.increment();
+
+            return Mono.just(validatedResponse.response());
+        }
+
+        T response = responseEntity.getBody();
+        if (response == null) {
+            return Mono.empty();
+        }
+
+        String eTag = responseEntity.getHeaders().getETag();
+        String lastModified = responseEntity.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+        if (eTag == null && lastModified == null) {
+            cache.invalidate(key);
+        } else {
+            cache.put(key, new ValidatedResponse<>(response, eTag, lastModified));
+        }
+
+        return Mono.just(response);
+    }
+
+    private record ValidatedResponse<T>(T response, String eTag, String lastModified) {
+
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Interned ISO code of three letters, packed into 15 bits of an int: five bits per letter, the first letter in the
+ * highest bits, so packed codes sort alphabetically. Every code has a single instance, so codes are compared by
+ * identity and hash to their packed value.
+ * <p>
+ * The ISO 4217 currencies known to the JDK are registered up front, with dense ordinals for tables indexed by
+ * currency. Other codes are interned once seen, without an ordinal.
+ *
+ * @author Thibault Helsmoortel
+ */
+public final class CurrencyCode implements Comparable<CurrencyCode> {
+
+    /**
+     * Number of letters of an ISO code.
+     */
+    public static final int LENGTH = 3;
+
+    private static final int BITS_PER_LETTER = 5;
+    private static final int LETTER_MASK = (1 << BITS_PER_LETTER) - 1;
+
+    /**
+     * Number of distinct packed values, every packed ISO code is below it.
+     */
+    public static final int PACKED_CODES = 1 << (LENGTH * BITS_PER_LETTER);
+
+    private static final int LETTERS = 26;
+    private static final int NO_ORDINAL = -1;
+
+    private static final AtomicReferenceArray<CurrencyCode> CODES = new AtomicReferenceArray<>(PACKED_CODES);
+    private static final List<CurrencyCode> KNOWN_CODES;
+
+    static {
+        String[] isoCodes = Currency.getAvailableCurrencies().stream()
+                .map(Currency::getCurrencyCode)
+                .filter(isoCode -> pack(isoCode, 0, isoCode.length()) >= 0)
+                .sorted(Comparator.naturalOrder())
+                .toArray(String[]::new);
+        CurrencyCode[] knownCodes = new CurrencyCode[isoCodes.length];
+        for (int ordinal = 0; ordinal < isoCodes.length; ordinal++) {
+            int packed = pack(isoCodes[ordinal], 0, LENGTH);
+            knownCodes[ordinal] = new CurrencyCode(packed, isoCodes[ordinal].intern(), ordinal);
+            CODES.set(packed, knownCodes[ordinal]);
+        }
+        KNOWN_CODES = List.of(knownCodes);
+    }
+
+    private final int packed;
+    private final String isoCode;
+    private final int ordinal;
+
+    private CurrencyCode(int packed, String isoCode, int ordinal) {
+        this.packed = packed;
+        this.isoCode = isoCode;
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * Parses raw text into a currency code, ignoring case and surrounding whitespace. Does not allocate once the code
+     * has been interned.
+     *
+     * @param text the text to parse
+     * @return the currency code, null when the text is not an ISO code of three letters
+     */
+    public static CurrencyCode parse(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        int packed = pack(text, start, end);
+
+        return packed < 0 ? null : fromPacked(packed);
+    }
+
+    /**
+     * Parses characters into a currency code, ignoring case.
+     *
+     * @param chars the characters to parse
+     * @param offset the offset of the first character
+     * @param length the number of characters
+     * @return the currency code, null when the characters are not an ISO code of three letters
+     */
+    public static CurrencyCode parse(char[] chars, int offset, int length) {
+        if (length != LENGTH) {
+            return null;
+        }
+
+        int packed = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int letter = toLetter(chars[i]);
+            if (letter < 0) {
+                return null;
+            }
+            packed = packed << BITS_PER_LETTER | letter;
+        }
+
+        return fromPacked(packed);
+    }
+
+    /**
+     * Returns the currency code of an ISO code.
+     *
+     * @param isoCode the ISO code
+     * @return the currency code
+     * @throws IllegalArgumentException when the ISO code is not made of three letters
+     */
+    public static CurrencyCode of(String isoCode) {
+        CurrencyCode currencyCode = parse(isoCode);
+        if (currencyCode == null) {
+            throw new IllegalArgumentException("Invalid ISO code: " + isoCode);
+        }
+
+        return currencyCode;
+    }
+
+    /**
+     * Returns the currency code of a packed ISO code.
+     *
+     * @param packed the packed ISO code
+     * @return the currency code
+     * @throws IllegalArgumentException when the value is not a packed ISO code
+     */
+    public static CurrencyCode fromPacked(int packed) {
+        if (packed < 0 || packed >= PACKED_CODES || letterAt(packed, 0) >= LETTERS || letterAt(packed, 1) >= LETTERS
+                || letterAt(packed, 2) >= LETTERS) {
+            throw new IllegalArgumentException("Invalid packed ISO code: " + packed);
+        }
+
+        CurrencyCode currencyCode = CODES.get(packed);
+        if (currencyCode == null) {
+            CurrencyCode newCurrencyCode = new CurrencyCode(packed, unpack(packed).intern(), NO_ORDINAL);
+            currencyCode = CODES.compareAndExchange(packed, null, newCurrencyCode);
+            if (currencyCode == null) {
+                currencyCode = newCurrencyCode;
+            }
+        }
+
+        return currencyCode;
+    }
+
+    /**
+     * Returns the known currency code with the given ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the known currency code
+     */
+    public static CurrencyCode fromOrdinal(int ordinal) {
+        return KNOWN_CODES.get(ordinal);
+    }
+
+    /**
+     * Returns the known currency codes, in the order of their ordinals, which is alphabetical.
+     *
+     * @return the known currency codes
+     */
+    public static List<CurrencyCode> getKnownCodes() {
+        return KNOWN_CODES;
+    }
+
+    /**
+     * Returns a letter of a packed ISO code.
+     *
+     * @param packed the packed ISO code
+     * @param index the index of the letter, 0 for the first one
+     * @return the letter, 0 for 'A' through 25 for 'Z'
+     */
+    public static int letterAt(int packed, int index) {
+        return packed >>> ((LENGTH - 1 - index) * BITS_PER_LETTER) & LETTER_MASK;
+    }
+
+    public static int getKnownCount() {
+        return KNOWN_CODES.size();
+    }
+
+    public int getPacked() {
+        return packed;
+    }
+
+    public String getIsoCode() {
+        return isoCode;
+    }
+
+    /**
+     * Returns the dense index of a known currency code, to index tables by currency.
+     *
+     * @return the ordinal, -1 when the currency code is not known
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public boolean isKnown() {
+        return ordinal != NO_ORDINAL;
+    }
+
+    @Override
+    public int compareTo(CurrencyCode other) {
+        return Integer.compare(packed, other.packed);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CurrencyCode currencyCode && packed == currencyCode.packed;
+    }
+
+    @Override
+    public int hashCode() {
+        return packed;
+    }
+
+    @Override
+    public String toString() {
+        return isoCode;
+    }
+
+    private static int pack(CharSequence text, int start, int end) {
+        if (end - start != LENGTH) {
+            return -1;
+        }
+
+        int packed = 0;
+        for (int i = start; i < end; i++) {
+            int letter = toLetter(text.charAt(i));
+            if (letter < 0) {
+                return -1;
+            }
+            packed = packed << BITS_PER_LETTER | letter;
+        }
+
+        return packed;
+    }
+
+    private static String unpack(int packed) {
+        char[] letters = new char[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            letters[i] = (char) ('A' + letterAt(packed, i));
+        }
+
+        return new String(letters);
+    }
+
+    private static int toLetter(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size Space-Saving sketch, tracking the most frequently recorded keys. Once the sketch is full, a new key takes
+ * the place of the least frequent one and inherits its count, so frequent keys are never missed although their counts
+ * may be overestimated. All counts are halved periodically, so keys of which the demand moved on are forgotten.
+ * <p>
+ * Recording only increments a striped counter per key, without locking. The recorded counts are folded into the
+ * sketch when the most frequent keys are requested.
+ *
+ * @param <K> the type of the keys
+ * @author Thibault Helsmoortel
+ */
+public class HeavyHitters<K> {
+
+    private static final int DECAY_INTERVAL_PER_KEY = 64;
+
+    private final Map<K, LongAdder> pending = new ConcurrentHashMap<>();
+    private final Map<K, Integer> slots;
+    private final List<K> keys;
+    private final long[] counts;
+    private final long decayInterval;
+
+    private long recorded;
+
+    public HeavyHitters(int capacity) {
+        this.slots = new HashMap<>(capacity * 4 / 3 + 1);
+        this.keys = new ArrayList<>(capacity);
+        this.counts = new long[capacity];
+        this.decayInterval = (long) capacity * DECAY_INTERVAL_PER_KEY;
+    }
+
+    public void record(K key) {
+        pending.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Returns the most frequently recorded keys.
+     *
+     * @param limit the maximum amount of keys to return
+     * @return the most frequent keys, most frequent first
+     */
+    public synchronized List<K> getTop(int limit) {
+        foldPending();
+
+        List<Integer> candidates = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            if (counts[i] > 0) {
+                candidates.add(i);
+            }
+        }
+        candidates.sort(Comparator.comparingLong((Integer slot) -> counts[slot]).reversed());
+
+        return candidates.stream()
+                .limit(limit)
+                .map(keys::get)
+                .toList();
+    }
+
+    private void foldPending() {
+        pending.forEach((key, adder) -> {
+            long count = adder.sumThenReset();
+            if (count == 0) {
+                // Keys that were not recorded since the last fold stop taking up a counter
+                pending.remove(key, adder);
+            } else {
+                fold(key, count);
+            }
+        });
+    }
+
+    private void fold(K key, long count) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            if (keys.size() < counts.length) {
+                slot = keys.size();
+                keys.add(key);
+            } else {
+                slot = getLeastFrequentSlot();
+                slots.remove(keys.get(slot));
+                keys.set(slot, key);
+            }
+            slots.put(key, slot);
+        }
+        counts[slot] += count;
+
+        long decays = (recorded + count) / decayInterval - recorded / decayInterval;
+        recorded += count;
+        if (decays > 0) {
+            int shift = (int) Math.min(decays, Long.SIZE - 1);
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] >>= shift;
+            }
+        }
+    }
+
+    private int getLeastFrequentSlot() {
+        int leastFrequentSlot = 0;
+        for (int i = 1; i < counts.length; i++) {
+            if (counts[i] < counts[leastFrequentSlot]) {
+                leastFrequentSlot = i;
+            }
+        }
+
+        return leastFrequentSlot;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Last known value of data fetched from the API, along with the time it was fetched. Served as is while the API is
+ * unavailable.
+ *
+ * @param value the value
+ * @param capturedAt the time the data was fetched from the API
+ * @param <T> the type of the value
+ * @author Thibault Helsmoortel
+ */
+public record LastKnown<T>(T value, Instant capturedAt) {
+
+    /**
+     * Describes the age of the value, for users to know it may be outdated.
+     *
+     * @param now the current time
+     * @return the description of the age
+     */
+    public String describeAge(Instant now) {
+        return "Based on rates of " + describe(Duration.between(capturedAt, now)) + ", as the API is currently unavailable.";
+    }
+
+    private static String describe(Duration age) {
+        if (age.toMinutes() < 1) {
+            return "less than a minute ago";
+        }
+        if (age.toHours() < 2) {
+            return describe(age.toMinutes(), "minute");
+        }
+        if (age.toDays() < 2) {
+            return describe(age.toHours(), "hour");
+        }
+
+        return describe(age.toDays(), "day");
+    }
+
+    private static String describe(long amount, String unit) {
+        return amount + " " + unit + (amount == 1 ? "" : "s") + " ago";
+    }
+}
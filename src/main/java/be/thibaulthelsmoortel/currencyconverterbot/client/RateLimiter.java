@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock free token bucket limiting the rate of calls to a single API endpoint. Rather than counting the tokens, it
+ * tracks the time at which the bucket will be full again, so acquiring a permit takes a single compare-and-set. When
+ * the bucket is empty, a caller may wait for the next permit up to a maximum wait, beyond that its call is rejected.
+ * <p>
+ * Calls which are not prioritized leave a reserve of permits in the bucket, which only prioritized calls may use.
+ *
+ * @author Thibault Helsmoortel
+ */
+public class RateLimiter {
+
+    private final long permitIntervalNanos;
+    private final long burstNanos;
+    private final long reserveNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong fullAt;
+
+    /**
+     * Creates a rate limiter of which the bucket is full.
+     *
+     * @param permitsPerSecond the rate at which permits are added to the bucket
+     * @param burst the capacity of the bucket
+     * @param reservedPermits the permits reserved for prioritized calls, at most the capacity of the bucket minus one
+     * @param nanoClock the source of the current time, in nanoseconds
+     */
+    public RateLimiter(double permitsPerSecond, int burst, int reservedPermits, LongSupplier nanoClock) {
+        this.permitIntervalNanos = Math.max(1, (long) (Duration.ofSeconds(1).toNanos() / permitsPerSecond));
+        this.burstNanos = Math.max(1, burst) * permitIntervalNanos;
+        this.reserveNanos = Math.max(0, Math.min(reservedPermits, burst - 1)) * permitIntervalNanos;
+        this.nanoClock = nanoClock;
+        this.fullAt = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Acquires a permit, if one is available within the maximum wait. An acquired permit is consumed, even when the
+     * caller abandons its call.
+     *
+     * @param prioritized whether the call may use the reserved permits
+     * @param maxWait the maximum time the caller is willing to wait for a permit
+     * @return the time to wait before making the call, or null if the call should be rejected
+     */
+    public Duration tryAcquire(boolean prioritized, Duration maxWait) {
+        long toleranceNanos = prioritized ? burstNanos : burstNanos - reserveNanos;
+        long maxWaitNanos = maxWait.toNanos();
+
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + permitIntervalNanos;
+            long waitNanos = next - now - toleranceNanos;
+            if (waitNanos > maxWaitNanos) {
+                return null;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return waitNanos > 0 ? Duration.ofNanos(waitNanos) : Duration.ZERO;
+            }
+        }
+    }
+}
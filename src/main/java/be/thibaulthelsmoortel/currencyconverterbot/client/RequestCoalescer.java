@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Coalesces concurrent identical API requests into a single upstream call. Requests are identical when their
+ * normalized keys are equal. Whoever requests while a call for the same key is in flight shares that call's result.
+ * <p>
+ * The shared call runs in the subscriber context of the request that started it, so its {@link CallType} and deadline
+ * apply to every request sharing it. Requests therefore only coalesce with calls of their own call type: a user call
+ * never waits on a refresh call which may not use the permits reserved for user calls, at the cost of an occasional
+ * duplicate call.
+ *
+ * @author Thibault Helsmoortel
+ */
+@Component
+public class RequestCoalescer {
+
+    private final Map<Object, Mono<?>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Returns the in-flight call for the given key and the call type of the subscriber context, or starts the call if
+     * none is in flight.
+     *
+     * @param requestType the type of request, used to tag metrics
+     * @param key the normalized key of the request, implementing equals and hashCode
+     * @param call the supplier of the upstream call
+     * @param <T> the type of the response
+     * @return the call, shared among all concurrent requests with the same key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> coalesce(String requestType, Object key, Supplier<Mono<T>> call) {
+        return Mono.deferContextual(context -> {
+            CallKey callKey = new CallKey(context.getOrDefault(ApiCallGuard.CALL_TYPE_CONTEXT_KEY, CallType.USER), key);
+            AtomicBoolean started = new AtomicBoolean();
+            Mono<T> shared = (Mono<T>) inFlight.computeIfAbsent(callKey, k -> {
+                started.set(true);
+
+                return share(k, call);
+            });
+
+            meterRegistry.counter(started.get() ? "api.client.calls" : "api.client.calls.coalesced", "request", requestType)
+                    .increment();
+
+            return shared;
+        });
+    }
+
+    private <T> Mono<T> share(Object key, Supplier<Mono<T>> call) {
+        AtomicReference<Mono<T>> self = new AtomicReference<>();
+        // Removed before the result is shared, so requests made once it was received start a new call
+        Mono<T> shared = Mono.defer(call)
+                .doOnSuccess(response -> inFlight.remove(key, self.get()))
+                .doOnError(e -> inFlight.remove(key, self.get()))
+                .cache();
+        self.set(shared);
+
+        return shared;
+    }
+
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Normalizes an ISO code, returning the interned ISO code of a {@link CurrencyCode} without allocating.
+     *
+     * @param isoCode the ISO code to normalize
+     * @return the normalized ISO code
+     */
+    public static String normalizeIsoCode(String isoCode) {
+        CurrencyCode currencyCode = CurrencyCode.parse(isoCode);
+        if (currencyCode != null) {
+            return currencyCode.getIsoCode();
+        }
+
+        return isoCode == null ? null : isoCode.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public static BigDecimal normalizeAmount(BigDecimal amount) {
+        return amount == null ? null : amount.stripTrailingZeros();
+    }
+
+    private record CallKey(CallType callType, Object key) {
+
+    }
+}
@@ -21,11 +21,12 @@ package be.thibaulthelsmoortel.currencyconverterbot.client.conversion.service;
 
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionResponse;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
  */
 public interface ConversionService {
 
-    ConversionResponse getConversion(ConversionRequest conversionRequest);
+    Mono<ConversionResponse> getConversion(ConversionRequest conversionRequest);
 }
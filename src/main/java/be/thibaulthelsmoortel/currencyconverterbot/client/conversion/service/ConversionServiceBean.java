@@ -19,8 +19,13 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.client.conversion.service;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
+import be.thibaulthelsmoortel.currencyconverterbot.client.RequestCoalescer;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.matrix.service.RateMatrixService;
+import java.math.BigDecimal;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -35,23 +40,51 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class ConversionServiceBean implements ConversionService {
 
+    private static final String PATH = "/v1/convert";
+
     private final WebClient apiClient;
+    private final RateMatrixService rateMatrixService;
+    private final RequestCoalescer requestCoalescer;
+    private final ApiCallGuard apiCallGuard;
 
     @Override
-    public ConversionResponse getConversion(ConversionRequest conversionRequest) {
+    public Mono<ConversionResponse> getConversion(ConversionRequest conversionRequest) {
+        Optional<BigDecimal> localResult = rateMatrixService.convert(conversionRequest.getSourceAmount(),
+                conversionRequest.getSourceIsoCode(), conversionRequest.getTargetIsoCode());
+        if (localResult.isPresent()) {
+            log.debug("Converted locally for request: {}", conversionRequest);
+            ConversionResponse conversionResponse = new ConversionResponse();
+            conversionResponse.setSourceAmount(conversionRequest.getSourceAmount());
+            conversionResponse.setSourceIsoCode(conversionRequest.getSourceIsoCode());
+            conversionResponse.setTargetIsoCode(conversionRequest.getTargetIsoCode());
+            conversionResponse.setResult(localResult.get());
+
+            return Mono.just(conversionResponse);
+        }
+
+        return requestCoalescer.coalesce("conversion", new ConversionKey(
+                RequestCoalescer.normalizeAmount(conversionRequest.getSourceAmount()),
+                RequestCoalescer.normalizeIsoCode(conversionRequest.getSourceIsoCode()),
+                RequestCoalescer.normalizeIsoCode(conversionRequest.getTargetIsoCode())),
+                () -> apiCallGuard.guard(PATH, () -> fetchConversion(conversionRequest)));
+    }
+
+    private Mono<ConversionResponse> fetchConversion(ConversionRequest conversionRequest) {
         log.info("Fetching conversion for request: {}", conversionRequest);
 
-        Mono<ConversionResponse> conversionMono = apiClient
+        return apiClient
                 .get()
                 .uri(uriBuilder -> uriBuilder
-                        .path("/v1/convert")
+                        .path(PATH)
                         .queryParam("sourceAmount", conversionRequest.getSourceAmount())
                         .queryParam("sourceIsoCode", conversionRequest.getSourceIsoCode())
                         .queryParam("targetIsoCode", conversionRequest.getTargetIsoCode())
                         .build())
                 .retrieve()
                 .bodyToMono(ConversionResponse.class);
+    }
+
+    private record ConversionKey(BigDecimal sourceAmount, String sourceIsoCode, String targetIsoCode) {
 
-        return conversionMono.block();
     }
 }
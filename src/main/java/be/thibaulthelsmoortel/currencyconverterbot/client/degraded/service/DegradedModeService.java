@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Answers lookups from the last known rates, while the API is unavailable.
+ *
+ * @author Thibault Helsmoortel
+ */
+public interface DegradedModeService {
+
+    /**
+     * Returns whether the API is considered unavailable, so lookups should be answered from the last known rates
+     * rather than calling the API.
+     *
+     * @return true if the bot runs in degraded mode
+     */
+    boolean isDegraded();
+
+    /**
+     * Returns the last known rates of a base currency.
+     *
+     * @param baseIsoCode the ISO code of the base currency
+     * @return the last known rates, empty if none are known
+     */
+    Optional<LastKnown<RatesResponse>> getRates(String baseIsoCode);
+
+    /**
+     * Derives the rate from one currency to another from the last known rates.
+     *
+     * @param baseIsoCode the ISO code of the currency to convert from
+     * @param targetIsoCode the ISO code of the currency to convert to
+     * @return the last known rate, empty if none is known
+     */
+    Optional<LastKnown<BigDecimal>> getRate(String baseIsoCode, String targetIsoCode);
+
+    /**
+     * Converts an amount from one currency to another with the last known rates.
+     *
+     * @param sourceAmount the amount to convert
+     * @param sourceIsoCode the ISO code of the currency to convert from
+     * @param targetIsoCode the ISO code of the currency to convert to
+     * @return the converted amount, empty if no rate is known
+     */
+    Optional<LastKnown<BigDecimal>> convert(BigDecimal sourceAmount, String sourceIsoCode, String targetIsoCode);
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.health.service.HealthService;
+import be.thibaulthelsmoortel.currencyconverterbot.client.matrix.RateMatrix;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.service.RatesService;
+import be.thibaulthelsmoortel.currencyconverterbot.config.DegradedModeEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RateMatrixEnvironment;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Degraded mode service switching on while the API health check fails. An open circuit does not switch it on, as it
+ * only concerns a single endpoint: calls to that endpoint fail fast, and are answered from the last known rates by the
+ * commands making them, while other endpoints are still called. Rates of a base currency are looked up in its own last
+ * known rates first, other rates are derived from the last known rates of the rate matrix's base currency.
+ *
+ * @author Thibault Helsmoortel
+ */
+@Service
+@Slf4j
+public class DegradedModeServiceBean implements DegradedModeService, SmartLifecycle {
+
+    private static final String HEALTHY_STATUS = "UP";
+
+    private final RatesService ratesService;
+    private final HealthService healthService;
+    private final RateMatrixEnvironment rateMatrixEnvironment;
+    private final DegradedModeEnvironment degradedModeEnvironment;
+    private final AtomicBoolean healthy = new AtomicBoolean(true);
+
+    private Disposable healthChecks = Disposables.disposed();
+
+    @Autowired
+    public DegradedModeServiceBean(RatesService ratesService, HealthService healthService,
+            RateMatrixEnvironment rateMatrixEnvironment, DegradedModeEnvironment degradedModeEnvironment,
+            MeterRegistry meterRegistry) {
+        this.ratesService = ratesService;
+        this.healthService = healthService;
+        this.rateMatrixEnvironment = rateMatrixEnvironment;
+        this.degradedModeEnvironment = degradedModeEnvironment;
+
+        Gauge.builder("api.degraded", this, service -> service.isDegraded() ? 1 : 0)
+                .description("Whether or not lookups are answered from the last known rates, as the API is unavailable.")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (degradedModeEnvironment.isEnabled() && healthChecks.isDisposed()) {
+            healthChecks = Flux.interval(degradedModeEnvironment.getHealthCheckInterval())
+                    .onBackpressureDrop()
+                    .concatMap(tick -> checkHealth())
+                    .subscribe();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        healthChecks.dispose();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return !healthChecks.isDisposed();
+    }
+
+    @Override
+    public boolean isDegraded() {
+        return degradedModeEnvironment.isEnabled() && !healthy.get();
+    }
+
+    @Override
+    public Optional<LastKnown<RatesResponse>> getRates(String baseIsoCode) {
+        return ratesService.getLastKnownRates(baseIsoCode);
+    }
+
+    @Override
+    public Optional<LastKnown<BigDecimal>> getRate(String baseIsoCode, String targetIsoCode) {
+        Optional<LastKnown<BigDecimal>> rate = ratesService.getLastKnownRates(baseIsoCode)
+                .flatMap(lastKnown -> findResult(lastKnown, targetIsoCode));
+        if (rate.isPresent()) {
+            return rate;
+        }
+
+        return ratesService.getLastKnownRates(rateMatrixEnvironment.getBaseIsoCode())
+                .flatMap(lastKnown -> {
+                    RateMatrix rateMatrix = RateMatrix.of(lastKnown.value(), lastKnown.capturedAt());
+                    double derivedRate = rateMatrix.getRate(baseIsoCode, targetIsoCode);
+
+                    return Double.isNaN(derivedRate) ? Optional.empty()
+                            : Optional.of(new LastKnown<>(RateMatrix.toBigDecimal(derivedRate), lastKnown.capturedAt()));
+                });
+    }
+
+    @Override
+    public Optional<LastKnown<BigDecimal>> convert(BigDecimal sourceAmount, String sourceIsoCode, String targetIsoCode) {
+        return getRate(sourceIsoCode, targetIsoCode)
+                .map(rate -> new LastKnown<>(sourceAmount.multiply(rate.value(), MathContext.DECIMAL64), rate.capturedAt()));
+    }
+
+    /**
+     * Checks the API health, switching the degraded mode on when it is not healthy.
+     *
+     * @return the health check
+     */
+    Mono<Void> checkHealth() {
+        return healthService.getHealth()
+                .map(healthResponse -> HEALTHY_STATUS.equals(healthResponse.getStatus()))
+                .defaultIfEmpty(false)
+                .onErrorResume(e -> {
+                    log.debug("Unable to check API health: {}", e.getMessage());
+
+                    return Mono.just(false);
+                })
+                .doOnNext(isHealthy -> {
+                    if (healthy.getAndSet(isHealthy) != isHealthy) {
+                        if (isHealthy) {
+                            log.info("API is healthy again.");
+                        } else {
+                            log.warn("API is unhealthy, answering from the last known rates.");
+                        }
+                    }
+                })
+                .then();
+    }
+
+    private static Optional<LastKnown<BigDecimal>> findResult(LastKnown<RatesResponse> lastKnown, String targetIsoCode) {
+        RatesResponse ratesResponse = lastKnown.value();
+        for (int i = 0; i < ratesResponse.size(); i++) {
+            if (ratesResponse.getTargetIsoCode(i).equals(targetIsoCode)) {
+                return Optional.of(new LastKnown<>(ratesResponse.getResult(i), lastKnown.capturedAt()));
+            }
+        }
+
+        return Optional.empty();
+    }
+}
@@ -20,11 +20,12 @@
 package be.thibaulthelsmoortel.currencyconverterbot.client.health.service;
 
 import be.thibaulthelsmoortel.currencyconverterbot.client.health.payload.HealthResponse;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
  */
 public interface HealthService {
 
-    HealthResponse getHealth();
+    Mono<HealthResponse> getHealth();
 }
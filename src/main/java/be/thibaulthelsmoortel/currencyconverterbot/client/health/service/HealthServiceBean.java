@@ -19,6 +19,7 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.client.health.service;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
 import be.thibaulthelsmoortel.currencyconverterbot.client.health.payload.HealthResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -35,21 +36,24 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class HealthServiceBean implements HealthService {
 
+    private static final String PATH = "/actuator/health";
+
     private final WebClient apiClient;
+    private final ApiCallGuard apiCallGuard;
 
     @Override
-    public HealthResponse getHealth() {
-        log.info("Fetching health.");
-
-        Mono<HealthResponse> healthMono = apiClient
-                .get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/actuator/health")
-                        .build())
-                .accept(MediaType.APPLICATION_JSON)
-                .retrieve()
-                .bodyToMono(HealthResponse.class);
+    public Mono<HealthResponse> getHealth() {
+        return apiCallGuard.guard(PATH, () -> {
+            log.info("Fetching health.");
 
-        return healthMono.block();
+            return apiClient
+                    .get()
+                    .uri(uriBuilder -> uriBuilder
+                            .path(PATH)
+                            .build())
+                    .accept(MediaType.APPLICATION_JSON)
+                    .retrieve()
+                    .bodyToMono(HealthResponse.class);
+        });
     }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.matrix;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.CurrencyCode;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the rates of a single base currency, from which the rate between any two of its currencies is
+ * derived: the rate from A to B equals the rate from the base to B, divided by the rate from the base to A.
+ *
+ * @author Thibault Helsmoortel
+ */
+public final class RateMatrix {
+
+    private static final MathContext RATE_PRECISION = new MathContext(10);
+
+    private final Indices indices;
+    private final double[] baseRates;
+    private final Set<String> providers;
+    private final Instant fetchedAt;
+
+    private RateMatrix(Indices indices, double[] baseRates, Set<String> providers, Instant fetchedAt) {
+        this.indices = indices;
+        this.baseRates = baseRates;
+        this.providers = providers;
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Creates a rate matrix from the rates of a base currency.
+     *
+     * @param ratesResponse the rates of the base currency
+     * @param fetchedAt the moment the rates were fetched
+     * @return the rate matrix
+     */
+    public static RateMatrix of(RatesResponse ratesResponse, Instant fetchedAt) {
+        Indices indices = new Indices();
+        double[] baseRates = new double[ratesResponse.size() + 1];
+
+        baseRates[indices.add(ratesResponse.getBaseIsoCode())] = 1d;
+        for (int i = 0; i < ratesResponse.size(); i++) {
+            double rate = ratesResponse.getResultAsDouble(i);
+            if (rate > 0 && indices.indexOf(ratesResponse.getTargetIsoCode(i)) < 0) {
+                baseRates[indices.add(ratesResponse.getTargetIsoCode(i))] = rate;
+            }
+        }
+
+        return new RateMatrix(indices, baseRates, ratesResponse.getProviders(), fetchedAt);
+    }
+
+    /**
+     * Derives the rate from one currency to another.
+     *
+     * @param baseIsoCode the ISO code of the currency to convert from
+     * @param targetIsoCode the ISO code of the currency to convert to
+     * @return the rate, {@link Double#NaN} if either currency is unknown
+     */
+    public double getRate(String baseIsoCode, String targetIsoCode) {
+        return getRate(indices.indexOf(baseIsoCode), indices.indexOf(targetIsoCode));
+    }
+
+    /**
+     * Derives the rate from one currency to another.
+     *
+     * @param baseCode the currency to convert from
+     * @param targetCode the currency to convert to
+     * @return the rate, {@link Double#NaN} if either currency is unknown
+     */
+    public double getRate(CurrencyCode baseCode, CurrencyCode targetCode) {
+        return getRate(indices.indexOf(baseCode), indices.indexOf(targetCode));
+    }
+
+    private double getRate(int baseIndex, int targetIndex) {
+        if (baseIndex < 0 || targetIndex < 0) {
+            return Double.NaN;
+        }
+
+        return baseRates[targetIndex] / baseRates[baseIndex];
+    }
+
+    public boolean isOlderThan(Duration age, Instant now) {
+        return fetchedAt.plus(age).isBefore(now);
+    }
+
+    public Set<String> getProviders() {
+        return providers;
+    }
+
+    public int size() {
+        return indices.size;
+    }
+
+    /**
+     * Rounds a derived rate, so the noise of the floating point division does not show.
+     *
+     * @param rate the derived rate
+     * @return the rounded rate
+     */
+    public static BigDecimal toBigDecimal(double rate) {
+        return BigDecimal.valueOf(rate).round(RATE_PRECISION);
+    }
+
+    /**
+     * Indices of the currencies in the matrix. Known currencies are looked up in a table indexed by their
+     * {@link CurrencyCode} ordinal, other currencies by their ISO code.
+     */
+    private static final class Indices {
+
+        // Index + 1 of every known currency, 0 when absent
+        private final int[] knownIndices = new int[CurrencyCode.getKnownCount()];
+        private final Map<String, Integer> otherIndices = new HashMap<>();
+
+        private int size;
+
+        int add(String isoCode) {
+            CurrencyCode currencyCode = CurrencyCode.parse(isoCode);
+            if (currencyCode != null && currencyCode.isKnown()) {
+                knownIndices[currencyCode.getOrdinal()] = size + 1;
+            } else {
+                otherIndices.put(currencyCode == null ? isoCode : currencyCode.getIsoCode(), size);
+            }
+
+            return size++;
+        }
+
+        int indexOf(String isoCode) {
+            CurrencyCode currencyCode = CurrencyCode.parse(isoCode);
+            if (currencyCode != null) {
+                return indexOf(currencyCode);
+            }
+
+            return isoCode == null ? -1 : otherIndices.getOrDefault(isoCode, -1);
+        }
+
+        int indexOf(CurrencyCode currencyCode) {
+            if (currencyCode == null) {
+                return -1;
+            }
+            if (currencyCode.isKnown()) {
+                return knownIndices[currencyCode.getOrdinal()] - 1;
+            }
+
+            return otherIndices.getOrDefault(currencyCode.getIsoCode(), -1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.matrix.service;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.Set;
+import reactor.core.publisher.Mono;
+
+/**
+ * Derives rates and conversions locally, from a rate matrix that is periodically fetched from the API.
+ *
+ * @author Thibault Helsmoortel
+ */
+public interface RateMatrixService {
+
+    /**
+     * Derives the rate from one currency to another.
+     *
+     * @param baseIsoCode the ISO code of the currency to convert from
+     * @param targetIsoCode the ISO code of the currency to convert to
+     * @return the rate, empty if no sufficiently recent rate is known locally
+     */
+    Optional<BigDecimal> getRate(String baseIsoCode, String targetIsoCode);
+
+    /**
+     * Converts an amount from one currency to another.
+     *
+     * @param sourceAmount the amount to convert
+     * @param sourceIsoCode the ISO code of the currency to convert from
+     * @param targetIsoCode the ISO code of the currency to convert to
+     * @return the converted amount, empty if no sufficiently recent rate is known locally
+     */
+    Optional<BigDecimal> convert(BigDecimal sourceAmount, String sourceIsoCode, String targetIsoCode);
+
+    Set<String> getProviders();
+
+    /**
+     * Fetches the rates of the configured base currency and replaces the rate matrix.
+     *
+     * @return the refresh, completing once the rate matrix was replaced
+     */
+    Mono<Void> refresh();
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.matrix.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
+import be.thibaulthelsmoortel.currencyconverterbot.client.CallType;
+import be.thibaulthelsmoortel.currencyconverterbot.client.matrix.RateMatrix;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesRequest;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.service.RatesService;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RateMatrixEnvironment;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientException;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Rate matrix service refreshing its matrix in the background, whenever it is used after the refresh interval passed
+ * since the last refresh. Once the rates of the matrix are older than the maximum age, counting from the time they were
+ * fetched, no rates are derived until a refresh succeeds.
+ *
+ * @author Thibault Helsmoortel
+ */
+@Service
+@Slf4j
+public class RateMatrixServiceBean implements RateMatrixService {
+
+    private final RatesService ratesService;
+    private final RateMatrixEnvironment rateMatrixEnvironment;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private Clock clock = Clock.systemUTC();
+    private volatile RateMatrix rateMatrix;
+    private volatile Instant refreshedAt;
+
+    @Autowired
+    public RateMatrixServiceBean(RatesService ratesService, RateMatrixEnvironment rateMatrixEnvironment) {
+        this.ratesService = ratesService;
+        this.rateMatrixEnvironment = rateMatrixEnvironment;
+    }
+
+    @Override
+    public Optional<BigDecimal> getRate(String baseIsoCode, String targetIsoCode) {
+        RateMatrix matrix = currentRateMatrix();
+        if (matrix == null) {
+            return Optional.empty();
+        }
+
+        double rate = matrix.getRate(baseIsoCode, targetIsoCode);
+
+        return Double.isNaN(rate) ? Optional.empty() : Optional.of(RateMatrix.toBigDecimal(rate));
+    }
+
+    @Override
+    public Optional<BigDecimal> convert(BigDecimal sourceAmount, String sourceIsoCode, String targetIsoCode) {
+        return getRate(sourceIsoCode, targetIsoCode)
+                .map(rate -> sourceAmount.multiply(rate, MathContext.DECIMAL64));
+    }
+
+    @Override
+    public Set<String> getProviders() {
+        RateMatrix matrix = rateMatrix;
+
+        return matrix == null ? Set.of() : matrix.getProviders();
+    }
+
+    @Override
+    public Mono<Void> refresh() {
+        RatesRequest ratesRequest = new RatesRequest();
+        ratesRequest.setBaseIsoCode(rateMatrixEnvironment.getBaseIsoCode());
+        // Throttles the refreshes, regardless of the age of the rates, as cached rates may be older than the interval
+        refreshedAt = clock.instant();
+
+        return ratesService.getRatesWithFetchTime(ratesRequest)
+                .filter(rates -> rates.value().getBaseIsoCode() != null)
+                .doOnNext(rates -> {
+                    // Stamped with the time the rates were fetched, as cached rates may already be old
+                    RateMatrix matrix = RateMatrix.of(rates.value(), rates.capturedAt());
+                    rateMatrix = matrix;
+                    log.debug("Refreshed rate matrix of {} currencies.", matrix.size());
+                })
+                .onErrorResume(WebClientException.class, e -> {
+                    log.warn("Unable to refresh rate matrix: {}", e.getMessage());
+
+                    return Mono.empty();
+                })
+                .then()
+                .contextWrite(Context.of(ApiCallGuard.CALL_TYPE_CONTEXT_KEY, CallType.REFRESH));
+    }
+
+    private RateMatrix currentRateMatrix() {
+        if (!rateMatrixEnvironment.isEnabled()) {
+            return null;
+        }
+
+        RateMatrix matrix = rateMatrix;
+        Instant now = clock.instant();
+        Instant lastRefresh = refreshedAt;
+        if (lastRefresh == null || lastRefresh.plus(rateMatrixEnvironment.getRefreshInterval()).isBefore(now)) {
+            refreshInBackground();
+        }
+
+        return matrix == null || matrix.isOlderThan(rateMatrixEnvironment.getMaxAge(), now) ? null : matrix;
+    }
+
+    private void refreshInBackground() {
+        if (refreshing.compareAndSet(false, true)) {
+            refresh()
+                    .doFinally(signalType -> refreshing.set(false))
+                    .subscribe(null, e -> log.warn("Unable to refresh rate matrix: {}", e.getMessage()));
+        }
+    }
+
+    // Visible for testing
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+}
@@ -21,11 +21,12 @@ package be.thibaulthelsmoortel.currencyconverterbot.client.rate.service;
 
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateResponse;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
  */
 public interface RateService {
 
-    RateResponse getRate(RateRequest rateRequest);
+    Mono<RateResponse> getRate(RateRequest rateRequest);
 }
@@ -19,38 +19,86 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.client.rate.service;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
+import be.thibaulthelsmoortel.currencyconverterbot.client.ConditionalRequestCache;
+import be.thibaulthelsmoortel.currencyconverterbot.client.RequestCoalescer;
+import be.thibaulthelsmoortel.currencyconverterbot.client.matrix.service.RateMatrixService;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateResponse;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 /**
+ * Rate service deriving rates locally when possible. Rates fetched from the API are requested conditionally, so
+ * unmodified rates are neither downloaded nor parsed again.
+ *
  * @author Thibault Helsmoortel
  */
-@RequiredArgsConstructor
 @Service
 @Slf4j
 public class RateServiceBean implements RateService {
 
+    private static final String PATH = "/v1/rate";
+    private static final int MAXIMUM_VALIDATED_RATES = 1024;
+
     private final WebClient apiClient;
+    private final RateMatrixService rateMatrixService;
+    private final RequestCoalescer requestCoalescer;
+    private final ApiCallGuard apiCallGuard;
+    private final ConditionalRequestCache<RateKey, RateResponse> conditionalRequestCache;
+
+    @Autowired
+    public RateServiceBean(WebClient apiClient, RateMatrixService rateMatrixService, RequestCoalescer requestCoalescer,
+            ApiCallGuard apiCallGuard, MeterRegistry meterRegistry) {
+        this.apiClient = apiClient;
+        this.rateMatrixService = rateMatrixService;
+        this.requestCoalescer = requestCoalescer;
+        this.apiCallGuard = apiCallGuard;
+        this.conditionalRequestCache = new ConditionalRequestCache<>("rate", MAXIMUM_VALIDATED_RATES, meterRegistry);
+    }
 
     @Override
-    public RateResponse getRate(RateRequest rateRequest) {
+    public Mono<RateResponse> getRate(RateRequest rateRequest) {
+        Optional<BigDecimal> localRate = rateMatrixService.getRate(rateRequest.getBaseIsoCode(), rateRequest.getTargetIsoCode());
+        if (localRate.isPresent()) {
+            log.debug("Derived rate locally for request: {}", rateRequest);
+            RateResponse rateResponse = new RateResponse();
+            rateResponse.setBaseIsoCode(rateRequest.getBaseIsoCode());
+            rateResponse.setTargetIsoCode(rateRequest.getTargetIsoCode());
+            rateResponse.setProviders(rateMatrixService.getProviders());
+            rateResponse.setResult(localRate.get());
+
+            return Mono.just(rateResponse);
+        }
+
+        RateKey key = new RateKey(RequestCoalescer.normalizeIsoCode(rateRequest.getBaseIsoCode()),
+                RequestCoalescer.normalizeIsoCode(rateRequest.getTargetIsoCode()));
+
+        return requestCoalescer.coalesce("rate", key, () -> apiCallGuard.guard(PATH, () -> fetchRate(key, rateRequest)));
+    }
+
+    private Mono<RateResponse> fetchRate(RateKey key, RateRequest rateRequest) {
         log.info("Fetching rate for request: {}", rateRequest);
 
-        Mono<RateResponse> rateMono = apiClient
+        return conditionalRequestCache.fetch(key, validators -> apiClient
                 .get()
                 .uri(uriBuilder -> uriBuilder
-                        .path("/v1/rate")
+                        .path(PATH)
                         .queryParam("baseIsoCode", rateRequest.getBaseIsoCode())
                         .queryParam("targetIsoCode", rateRequest.getTargetIsoCode())
                         .build())
+                .headers(validators)
                 .retrieve()
-                .bodyToMono(RateResponse.class);
+                .toEntity(RateResponse.class));
+    }
+
+    private record RateKey(String baseIsoCode, String targetIsoCode) {
 
-        return rateMono.block();
     }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2022 Thibault Helsmoortel.
+ * Copyright (c) 2023 Thibault Helsmoortel.
  *
  *  This file is part of Currency Converter Bot.
  *
@@ -19,21 +19,103 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload;
 
-import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateResponse;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import java.math.BigDecimal;
+import java.util.Map;
 import java.util.Set;
-import lombok.Data;
-import lombok.ToString;
 
 /**
+ * Rates of a single base currency, held in columns rather than as one object per rate. The target ISO codes are
+ * interned, the results are held as unscaled values with their scale, and all rates share the providers of the
+ * response.
+ *
  * @author Thibault Helsmoortel
  */
-@Data
-@ToString
-public class RatesResponse {
+@JsonDeserialize(using = RatesResponseDeserializer.class)
+public final class RatesResponse {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    private final String baseIsoCode;
+    private final Set<String> providers;
+    private final String[] targetIsoCodes;
+    private final long[] unscaledResults;
+    private final int[] resultScales;
+
+    RatesResponse(String baseIsoCode, Set<String> providers, String[] targetIsoCodes, long[] unscaledResults,
+            int[] resultScales) {
+        this.baseIsoCode = baseIsoCode;
+        this.providers = providers;
+        this.targetIsoCodes = targetIsoCodes;
+        this.unscaledResults = unscaledResults;
+        this.resultScales = resultScales;
+    }
+
+    /**
+     * Creates the rates of a base currency.
+     *
+     * @param baseIsoCode the ISO code of the base currency
+     * @param providers the providers of the rates
+     * @param rates the rates, keyed by target ISO code
+     * @return the rates of the base currency
+     */
+    public static RatesResponse of(String baseIsoCode, Set<String> providers, Map<String, BigDecimal> rates) {
+        RatesResponseDeserializer.Columns columns = new RatesResponseDeserializer.Columns(rates.size());
+        rates.forEach((targetIsoCode, result) -> columns.add(targetIsoCode.intern(), result));
+
+        return columns.toRatesResponse(baseIsoCode, providers == null ? Set.of() : Set.copyOf(providers));
+    }
+
+    public String getBaseIsoCode() {
+        return baseIsoCode;
+    }
+
+    public Set<String> getProviders() {
+        return providers;
+    }
+
+    public int size() {
+        return targetIsoCodes.length;
+    }
+
+    public String getTargetIsoCode(int index) {
+        return targetIsoCodes[index];
+    }
+
+    public BigDecimal getResult(int index) {
+        return BigDecimal.valueOf(unscaledResults[index], resultScales[index]);
+    }
+
+    long getUnscaledResult(int index) {
+        return unscaledResults[index];
+    }
+
+    int getResultScale(int index) {
+        return resultScales[index];
+    }
 
-    private String baseIsoCode;
+    /**
+     * Returns a result as a double, without creating a {@link BigDecimal} when the result can be converted exactly.
+     *
+     * @param index the index of the rate
+     * @return the result, as a double
+     */
+    public double getResultAsDouble(int index) {
+        long unscaledResult = unscaledResults[index];
+        int resultScale = resultScales[index];
+        if (resultScale >= 0 && resultScale < POWERS_OF_TEN.length && Math.abs(unscaledResult) <= MAX_EXACT_DOUBLE) {
+            return unscaledResult / POWERS_OF_TEN[resultScale];
+        }
 
-    private Set<String> providers;
+        return getResult(index).doubleValue();
+    }
 
-    private Set<RateResponse> rates;
+    @Override
+    public String toString() {
+        return "RatesResponse(baseIsoCode=" + baseIsoCode + ", providers=" + providers + ", rates=" + size() + ")";
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of the rates of several base currencies, each with the time it was captured. The rates are
+ * stored in their columnar form, so restoring them takes no parsing of decimals. A snapshot is written to a temporary
+ * file which then replaces the previous snapshot, so readers never see a partially written one. It is read through a
+ * memory mapping, and ends with a checksum so a damaged snapshot is rejected as a whole.
+ *
+ * @author Thibault Helsmoortel
+ */
+public final class RatesSnapshot {
+
+    private static final int MAGIC = 0x52415445;
+    private static final short VERSION = 1;
+    private static final int CHECKSUM_BYTES = Long.BYTES;
+
+    private RatesSnapshot() {
+    }
+
+    /**
+     * Rates of a base currency, with the time they were captured.
+     *
+     * @param ratesResponse the rates
+     * @param capturedAt the time the rates were fetched from the API
+     */
+    public record Entry(RatesResponse ratesResponse, Instant capturedAt) {
+
+    }
+
+    /**
+     * Writes a snapshot, atomically replacing the existing one.
+     *
+     * @param path the path of the snapshot
+     * @param entries the rates to write
+     * @throws IOException if the snapshot could not be written
+     */
+    public static void write(Path path, List<Entry> entries) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(getSize(entries));
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putInt(entries.size());
+        for (Entry entry : entries) {
+            RatesResponse ratesResponse = entry.ratesResponse();
+            buffer.putLong(entry.capturedAt().toEpochMilli());
+            putString(buffer, ratesResponse.getBaseIsoCode());
+            buffer.putInt(ratesResponse.getProviders().size());
+            for (String provider : ratesResponse.getProviders()) {
+                putString(buffer, provider);
+            }
+            buffer.putInt(ratesResponse.size());
+            for (int i = 0; i < ratesResponse.size(); i++) {
+                putString(buffer, ratesResponse.getTargetIsoCode(i));
+                buffer.putLong(ratesResponse.getUnscaledResult(i));
+                buffer.putInt(ratesResponse.getResultScale(i));
+            }
+        }
+        buffer.putLong(checksum(buffer.duplicate().flip()));
+        buffer.flip();
+
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @param path the path of the snapshot
+     * @return the rates in the snapshot
+     * @throws IOException if the snapshot could not be read, or is damaged
+     */
+    public static List<Entry> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            int checksumOffset = buffer.limit() - CHECKSUM_BYTES;
+            if (checksumOffset < 0 || checksum(buffer.duplicate().limit(checksumOffset)) != buffer.getLong(checksumOffset)) {
+                throw new IOException("Damaged rates snapshot: " + path);
+            }
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException("Unsupported rates snapshot: " + path);
+            }
+
+            int entryCount = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(entryCount);
+            for (int e = 0; e < entryCount; e++) {
+                Instant capturedAt = Instant.ofEpochMilli(buffer.getLong());
+                String baseIsoCode = getString(buffer);
+                int providerCount = buffer.getInt();
+                Set<String> providers = new HashSet<>(providerCount);
+                for (int p = 0; p < providerCount; p++) {
+                    providers.add(getString(buffer));
+                }
+                int size = buffer.getInt();
+                String[] targetIsoCodes = new String[size];
+                long[] unscaledResults = new long[size];
+                int[] resultScales = new int[size];
+                for (int i = 0; i < size; i++) {
+                    targetIsoCodes[i] = getString(buffer).intern();
+                    unscaledResults[i] = buffer.getLong();
+                    resultScales[i] = buffer.getInt();
+                }
+                entries.add(new Entry(new RatesResponse(baseIsoCode, Set.copyOf(providers), targetIsoCodes,
+                        unscaledResults, resultScales), capturedAt));
+            }
+
+            return entries;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Damaged rates snapshot: " + path, e);
+        }
+    }
+
+    private static int getSize(List<Entry> entries) {
+        int size = Integer.BYTES + Short.BYTES + Integer.BYTES + CHECKSUM_BYTES;
+        for (Entry entry : entries) {
+            RatesResponse ratesResponse = entry.ratesResponse();
+            size += Long.BYTES + getSize(ratesResponse.getBaseIsoCode()) + Integer.BYTES + Integer.BYTES;
+            for (String provider : ratesResponse.getProviders()) {
+                size += getSize(provider);
+            }
+            for (int i = 0; i < ratesResponse.size(); i++) {
+                size += getSize(ratesResponse.getTargetIsoCode(i)) + Long.BYTES + Integer.BYTES;
+            }
+        }
+
+        return size;
+    }
+
+    private static int getSize(String value) {
+        return Short.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.rates.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.HeavyHitters;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RatesPrefetchEnvironment;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks the demand for the rates of every base currency, so the rates of the most requested ones can be prefetched
+ * before they expire. Only a fixed amount of base currencies is tracked, the least requested ones being forgotten.
+ *
+ * @author Thibault Helsmoortel
+ */
+@Component
+public class RatesDemandTracker {
+
+    private final HeavyHitters<String> demand;
+
+    @Autowired
+    public RatesDemandTracker(RatesPrefetchEnvironment ratesPrefetchEnvironment) {
+        this.demand = new HeavyHitters<>(ratesPrefetchEnvironment.getTrackedCurrencies());
+    }
+
+    /**
+     * Records a request of the rates of a base currency.
+     *
+     * @param baseIsoCode the normalized ISO code of the base currency
+     */
+    public void record(String baseIsoCode) {
+        demand.record(baseIsoCode);
+    }
+
+    /**
+     * Returns the base currencies of which the rates were requested most.
+     *
+     * @param limit the maximum amount of base currencies to return
+     * @return the ISO codes of the most requested base currencies, most requested first
+     */
+    public List<String> getPopularBaseIsoCodes(int limit) {
+        return demand.getTop(limit);
+    }
+}
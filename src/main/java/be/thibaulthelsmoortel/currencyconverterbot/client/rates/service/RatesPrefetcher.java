@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.rates.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.config.RatesPrefetchEnvironment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the rates of the most requested base currencies cached, so their lookups never wait for the API. Every
+ * interval while running, the rates about to expire are fetched in order of popularity, until the call budget of the
+ * interval is spent.
+ *
+ * @author Thibault Helsmoortel
+ */
+@Component
+@Slf4j
+public class RatesPrefetcher implements SmartLifecycle {
+
+    private final RatesService ratesService;
+    private final RatesDemandTracker ratesDemandTracker;
+    private final RatesPrefetchEnvironment ratesPrefetchEnvironment;
+
+    private Disposable schedule = Disposables.disposed();
+
+    @Autowired
+    public RatesPrefetcher(RatesService ratesService, RatesDemandTracker ratesDemandTracker,
+            RatesPrefetchEnvironment ratesPrefetchEnvironment) {
+        this.ratesService = ratesService;
+        this.ratesDemandTracker = ratesDemandTracker;
+        this.ratesPrefetchEnvironment = ratesPrefetchEnvironment;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (ratesPrefetchEnvironment.isEnabled() && schedule.isDisposed()) {
+            schedule = Flux.interval(ratesPrefetchEnvironment.getInterval())
+                    .onBackpressureDrop()
+                    .concatMap(tick -> prefetch())
+                    .subscribe();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        schedule.dispose();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return !schedule.isDisposed();
+    }
+
+    /**
+     * Prefetches the rates of the most requested base currencies which are about to expire, within the call budget.
+     *
+     * @return the amount of API calls made
+     */
+    public Mono<Long> prefetch() {
+        return Flux.fromIterable(ratesDemandTracker.getPopularBaseIsoCodes(ratesPrefetchEnvironment.getTopCurrencies()))
+                .concatMap(baseIsoCode -> ratesService.prefetch(baseIsoCode, ratesPrefetchEnvironment.getLeadTime()))
+                .filter(Boolean::booleanValue)
+                .take(ratesPrefetchEnvironment.getCallBudget())
+                .count()
+                .doOnNext(calls -> log.debug("Prefetched rates with {} API calls.", calls))
+                .onErrorResume(e -> {
+                    log.warn("Unable to prefetch rates: {}", e.getMessage());
+
+                    return Mono.just(0L);
+                });
+    }
+}
@@ -19,14 +19,45 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.client.rates.service;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import java.time.Duration;
+import java.util.Optional;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
  */
 public interface RatesService {
 
-    RatesResponse getRates(RatesRequest ratesRequest);
+    Mono<RatesResponse> getRates(RatesRequest ratesRequest);
+
+    /**
+     * Returns the rates of a base currency along with the time they were fetched from the API. Cached rates may have
+     * been fetched long before they are returned.
+     *
+     * @param ratesRequest the request of the rates
+     * @return the rates and the time they were fetched
+     */
+    Mono<LastKnown<RatesResponse>> getRatesWithFetchTime(RatesRequest ratesRequest);
+
+    /**
+     * Fetches the rates of a base currency ahead of their expiry, if they are not cached or expire within the given
+     * lead time.
+     *
+     * @param baseIsoCode the ISO code of the base currency
+     * @param leadTime the time before their expiry from which rates are prefetched
+     * @return true if the API was called, false if the cached rates were still fresh
+     */
+    Mono<Boolean> prefetch(String baseIsoCode, Duration leadTime);
+
+    /**
+     * Returns the last rates of a base currency fetched from the API, regardless of their age.
+     *
+     * @param baseIsoCode the ISO code of the base currency
+     * @return the last known rates, empty if none were fetched
+     */
+    Optional<LastKnown<RatesResponse>> getLastKnownRates(String baseIsoCode);
 
 }
@@ -19,37 +19,291 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.client.rates.service;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
+import be.thibaulthelsmoortel.currencyconverterbot.client.CallType;
+import be.thibaulthelsmoortel.currencyconverterbot.client.ConditionalRequestCache;
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.RequestCoalescer;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
-import lombok.RequiredArgsConstructor;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesSnapshot;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RatesCacheEnvironment;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
 /**
+ * Rates service caching the rates of every base currency. Rates older than their time to live are still served, while
+ * they are refreshed in the background. Refreshes are conditional, so unmodified rates are neither downloaded nor parsed
+ * again, and are rate limited as {@link CallType#REFRESH} calls. The demand for the rates of every base currency is
+ * tracked by the {@link RatesDemandTracker}, so the rates of the most requested ones can be prefetched before they
+ * expire.
+ * <p>
+ * The last known rates of every base currency are kept beyond their maximum age, to be served while the API is
+ * unavailable. They are persisted by the {@link RatesSnapshotStore} while the service is running, and restored from its
+ * snapshot when it starts, with the time they were captured. Restored rates are served right away and refreshed in
+ * the background once stale.
+ *
  * @author Thibault Helsmoortel
  */
-@RequiredArgsConstructor
 @Service
 @Slf4j
-public class RatesServiceBean implements RatesService {
+public class RatesServiceBean implements RatesService, SmartLifecycle {
+
+    private static final String CACHE_NAME = "rates";
+    private static final String PATH = "/v1/rates";
 
     private final WebClient apiClient;
+    private final RequestCoalescer requestCoalescer;
+    private final ApiCallGuard apiCallGuard;
+    private final RatesCacheEnvironment ratesCacheEnvironment;
+    private final Cache<RatesKey, CachedRates> cache;
+    private final Cache<RatesKey, LastKnown<RatesResponse>> lastKnownRates;
+    private final ConditionalRequestCache<RatesKey, RatesResponse> conditionalRequestCache;
+    private final Counter refreshCounter;
+    private final Counter prefetchCounter;
+    private final RatesDemandTracker ratesDemandTracker;
+    private final RatesSnapshotStore ratesSnapshotStore;
+
+    private Clock clock = Clock.systemUTC();
+    private boolean running;
+
+    @Autowired
+    public RatesServiceBean(WebClient apiClient, RequestCoalescer requestCoalescer, ApiCallGuard apiCallGuard,
+            RatesCacheEnvironment ratesCacheEnvironment, RatesSnapshotStore ratesSnapshotStore,
+            RatesDemandTracker ratesDemandTracker, MeterRegistry meterRegistry) {
+        this.apiClient = apiClient;
+        this.requestCoalescer = requestCoalescer;
+        this.apiCallGuard = apiCallGuard;
+        this.ratesCacheEnvironment = ratesCacheEnvironment;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(ratesCacheEnvironment.getMaximumSize())
+                .expireAfter(new CachedRatesExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.lastKnownRates = Caffeine.newBuilder()
+                .maximumSize(ratesCacheEnvironment.getMaximumSize())
+                .build();
+        this.conditionalRequestCache = new ConditionalRequestCache<>(CACHE_NAME, ratesCacheEnvironment.getMaximumSize(),
+                meterRegistry);
+        this.refreshCounter = Counter.builder("cache.refreshes")
+                .description("Amount of background refreshes of stale cache entries.")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        this.prefetchCounter = Counter.builder("cache.prefetches")
+                .description("Amount of cache entries fetched ahead of their expiry.")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        this.ratesDemandTracker = ratesDemandTracker;
+        this.ratesSnapshotStore = ratesSnapshotStore;
+    }
+
+    @Override
+    public Mono<RatesResponse> getRates(RatesRequest ratesRequest) {
+        return getRatesWithFetchTime(ratesRequest).map(LastKnown::value);
+    }
+
+    @Override
+    public Mono<LastKnown<RatesResponse>> getRatesWithFetchTime(RatesRequest ratesRequest) {
+        RatesKey key = new RatesKey(RequestCoalescer.normalizeIsoCode(ratesRequest.getBaseIsoCode()));
+        if (!ratesCacheEnvironment.isEnabled()) {
+            return fetchRates(key, ratesRequest)
+                    .map(ratesResponse -> new LastKnown<>(ratesResponse, clock.instant()));
+        }
+
+        CachedRates cachedRates = cache.getIfPresent(key);
+        if (cachedRates == null) {
+            // Only recorded once the rates were found, so unknown currencies are never prefetched
+            return fetchRates(key, ratesRequest)
+                    .map(ratesResponse -> {
+                        CachedRates fetchedRates = cacheRates(key, ratesResponse);
+                        ratesDemandTracker.record(key.baseIsoCode());
+
+                        return new LastKnown<>(fetchedRates.ratesResponse(), fetchedRates.fetchedAt());
+                    });
+        }
+
+        ratesDemandTracker.record(key.baseIsoCode());
+
+        if (cachedRates.isOlderThan(ratesCacheEnvironment.getTtl(key.baseIsoCode()), clock.instant())) {
+            refreshInBackground(key, ratesRequest, cachedRates);
+        }
+
+        return Mono.just(new LastKnown<>(cachedRates.ratesResponse(), cachedRates.fetchedAt()));
+    }
 
     @Override
-    public RatesResponse getRates(RatesRequest ratesRequest) {
-        log.info("Fetching rates for request: {}", ratesRequest);
-
-        Mono<RatesResponse> ratesMono = apiClient
-                .get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/v1/rates")
-                        .queryParam("baseIsoCode", ratesRequest.getBaseIsoCode())
-                        .build())
-                .retrieve()
-                .bodyToMono(RatesResponse.class);
-
-        return ratesMono.block();
+    public Mono<Boolean> prefetch(String baseIsoCode, Duration leadTime) {
+        RatesKey key = new RatesKey(RequestCoalescer.normalizeIsoCode(baseIsoCode));
+        if (!ratesCacheEnvironment.isEnabled()) {
+            return Mono.just(false);
+        }
+
+        CachedRates cachedRates = cache.getIfPresent(key);
+        Duration prefetchAge = ratesCacheEnvironment.getTtl(key.baseIsoCode()).minus(leadTime);
+        if (cachedRates != null && (!cachedRates.isOlderThan(prefetchAge, clock.instant())
+                || !cachedRates.refreshing().compareAndSet(false, true))) {
+            return Mono.just(false);
+        }
+
+        RatesRequest ratesRequest = new RatesRequest();
+        ratesRequest.setBaseIsoCode(key.baseIsoCode());
+        prefetchCounter.increment();
+
+        return fetchRates(key, ratesRequest)
+                .doOnNext(ratesResponse -> cacheRates(key, ratesResponse))
+                .doFinally(signalType -> {
+                    if (cachedRates != null) {
+                        cachedRates.refreshing().set(false);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.warn("Unable to prefetch rates for request {}: {}", ratesRequest, e.getMessage());
+
+                    return Mono.empty();
+                })
+                .thenReturn(true)
+                .contextWrite(Context.of(ApiCallGuard.CALL_TYPE_CONTEXT_KEY, CallType.REFRESH));
+    }
+
+    private void refreshInBackground(RatesKey key, RatesRequest ratesRequest, CachedRates cachedRates) {
+        if (cachedRates.refreshing().compareAndSet(false, true)) {
+            refreshCounter.increment();
+            fetchRates(key, ratesRequest)
+                    .doFinally(signalType -> cachedRates.refreshing().set(false))
+                    .contextWrite(Context.of(ApiCallGuard.CALL_TYPE_CONTEXT_KEY, CallType.REFRESH))
+                    .subscribe(
+                            ratesResponse -> cacheRates(key, ratesResponse),
+                            e -> log.warn("Unable to refresh rates for request {}: {}", ratesRequest, e.getMessage())
+                    );
+        }
+    }
+
+    @Override
+    public Optional<LastKnown<RatesResponse>> getLastKnownRates(String baseIsoCode) {
+        return Optional.ofNullable(lastKnownRates.getIfPresent(new RatesKey(RequestCoalescer.normalizeIsoCode(baseIsoCode))));
+    }
+
+    private CachedRates cacheRates(RatesKey key, RatesResponse ratesResponse) {
+        CachedRates cachedRates = new CachedRates(ratesResponse, clock.instant());
+        cache.put(key, cachedRates);
+        if (ratesResponse.getBaseIsoCode() != null) {
+            lastKnownRates.put(key, new LastKnown<>(ratesResponse, cachedRates.fetchedAt()));
+            ratesSnapshotStore.markModified();
+        }
+
+        return cachedRates;
+    }
+
+    private boolean isSnapshotEnabled() {
+        return ratesCacheEnvironment.isEnabled() && ratesSnapshotStore.isEnabled();
+    }
+
+    private void restoreSnapshot() {
+        for (RatesSnapshot.Entry entry : ratesSnapshotStore.restore()) {
+            RatesKey key = new RatesKey(RequestCoalescer.normalizeIsoCode(entry.ratesResponse().getBaseIsoCode()));
+            cache.put(key, new CachedRates(entry.ratesResponse(), entry.capturedAt()));
+            lastKnownRates.put(key, new LastKnown<>(entry.ratesResponse(), entry.capturedAt()));
+            // Makes the restored rates eligible for prefetching, until actual demand takes over
+            ratesDemandTracker.record(key.baseIsoCode());
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (isSnapshotEnabled() && !running) {
+            restoreSnapshot();
+            ratesSnapshotStore.start(() -> lastKnownRates.asMap().values());
+            running = true;
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (running) {
+            ratesSnapshotStore.stop();
+            running = false;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    private Mono<RatesResponse> fetchRates(RatesKey key, RatesRequest ratesRequest) {
+        return requestCoalescer.coalesce(CACHE_NAME, key, () -> apiCallGuard.guard(PATH, () -> {
+            log.info("Fetching rates for request: {}", ratesRequest);
+
+            return conditionalRequestCache.fetch(key, validators -> apiClient
+                    .get()
+                    .uri(uriBuilder -> uriBuilder
+                            .path(PATH)
+                            .queryParam("baseIsoCode", ratesRequest.getBaseIsoCode())
+                            .build())
+                    .headers(validators)
+                    .retrieve()
+                    .toEntity(RatesResponse.class));
+        }));
+    }
+
+    // Visible for testing
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Expires cached rates once they reached the maximum age, counting from the time they were fetched rather than
+     * from the time they were cached, as restored rates may have been fetched long before.
+     */
+    private class CachedRatesExpiry implements Expiry<RatesKey, CachedRates> {
+
+        @Override
+        public long expireAfterCreate(RatesKey key, CachedRates cachedRates, long currentTime) {
+            Duration age = Duration.between(cachedRates.fetchedAt(), clock.instant());
+
+            return Math.max(0, ratesCacheEnvironment.getMaxAge().minus(age).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(RatesKey key, CachedRates cachedRates, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, cachedRates, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(RatesKey key, CachedRates cachedRates, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private record RatesKey(String baseIsoCode) {
+
+    }
+
+    private record CachedRates(RatesResponse ratesResponse, Instant fetchedAt, AtomicBoolean refreshing) {
+
+        private CachedRates(RatesResponse ratesResponse, Instant fetchedAt) {
+            this(ratesResponse, fetchedAt, new AtomicBoolean());
+        }
+
+        private boolean isOlderThan(Duration age, Instant now) {
+            return fetchedAt.plus(age).isBefore(now);
+        }
     }
 }
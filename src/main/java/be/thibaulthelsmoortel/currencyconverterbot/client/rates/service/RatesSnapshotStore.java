@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.rates.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesSnapshot;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RatesSnapshotEnvironment;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Persists the last known rates of every base currency to a snapshot, so they survive a restart. The snapshot is
+ * written periodically while started, and once more when stopped, but only if the rates were modified since the last
+ * snapshot.
+ *
+ * @author Thibault Helsmoortel
+ */
+@Component
+@Slf4j
+class RatesSnapshotStore {
+
+    private final RatesSnapshotEnvironment ratesSnapshotEnvironment;
+    private final AtomicBoolean modifiedSinceSnapshot = new AtomicBoolean();
+
+    private volatile Supplier<Collection<LastKnown<RatesResponse>>> lastKnownRates;
+    private Disposable schedule = Disposables.disposed();
+
+    @Autowired
+    RatesSnapshotStore(RatesSnapshotEnvironment ratesSnapshotEnvironment) {
+        this.ratesSnapshotEnvironment = ratesSnapshotEnvironment;
+    }
+
+    /**
+     * Indicates whether the rates should be persisted to a snapshot.
+     *
+     * @return true if the snapshot is enabled
+     */
+    boolean isEnabled() {
+        return ratesSnapshotEnvironment.isEnabled();
+    }
+
+    /**
+     * Reads the rates from the snapshot.
+     *
+     * @return the entries of the snapshot, empty if there is no readable snapshot
+     */
+    List<RatesSnapshot.Entry> restore() {
+        if (!Files.exists(ratesSnapshotEnvironment.getPath())) {
+            return List.of();
+        }
+
+        try {
+            List<RatesSnapshot.Entry> entries = RatesSnapshot.read(ratesSnapshotEnvironment.getPath());
+            log.info("Restored rates of {} base currencies from snapshot {}.", entries.size(), ratesSnapshotEnvironment.getPath());
+
+            return entries;
+        } catch (IOException e) {
+            log.warn("Unable to restore rates from snapshot {}: {}", ratesSnapshotEnvironment.getPath(), e.getMessage());
+
+            return List.of();
+        }
+    }
+
+    /**
+     * Marks the last known rates as modified, so they are written to the next snapshot.
+     */
+    void markModified() {
+        modifiedSinceSnapshot.set(true);
+    }
+
+    /**
+     * Starts writing the snapshot periodically.
+     *
+     * @param lastKnownRates the supplier of the last known rates to write
+     */
+    synchronized void start(Supplier<Collection<LastKnown<RatesResponse>>> lastKnownRates) {
+        this.lastKnownRates = lastKnownRates;
+        if (schedule.isDisposed()) {
+            schedule = Flux.interval(ratesSnapshotEnvironment.getWriteInterval())
+                    .onBackpressureDrop()
+                    .concatMap(tick -> Mono.fromRunnable(this::write).subscribeOn(Schedulers.boundedElastic()))
+                    .subscribe();
+        }
+    }
+
+    /**
+     * Stops writing the snapshot periodically, writing it one last time.
+     */
+    synchronized void stop() {
+        schedule.dispose();
+        write();
+    }
+
+    /**
+     * Writes the last known rates to the snapshot, if the store was started and they were modified since the last
+     * snapshot.
+     */
+    void write() {
+        Supplier<Collection<LastKnown<RatesResponse>>> rates = lastKnownRates;
+        if (rates == null || !modifiedSinceSnapshot.getAndSet(false)) {
+            return;
+        }
+
+        List<RatesSnapshot.Entry> entries = rates.get().stream()
+                .map(lastKnown -> new RatesSnapshot.Entry(lastKnown.value(), lastKnown.capturedAt()))
+                .toList();
+        try {
+            RatesSnapshot.write(ratesSnapshotEnvironment.getPath(), entries);
+            log.debug("Wrote rates of {} base currencies to snapshot {}.", entries.size(), ratesSnapshotEnvironment.getPath());
+        } catch (IOException e) {
+            modifiedSinceSnapshot.set(true);
+            log.warn("Unable to write rates to snapshot {}: {}", ratesSnapshotEnvironment.getPath(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.rates.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
+import be.thibaulthelsmoortel.currencyconverterbot.client.CallType;
+import be.thibaulthelsmoortel.currencyconverterbot.client.CurrencyCode;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesRequest;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.config.SupportedCurrenciesEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.validation.SupportedCurrencies;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Loads the currencies supported by the API from the rates of a base currency, on start and periodically after, so
+ * unsupported ISO codes are rejected without calling the API. The supported currencies are left as they are when
+ * the rates can not be fetched, and the load is retried with a growing interval until it succeeds. Until the first
+ * load succeeds, the last known rates are used when available, rather than the currencies known to the JDK.
+ *
+ * @author Thibault Helsmoortel
+ */
+@Component
+@Slf4j
+public class SupportedCurrenciesLoader implements SmartLifecycle {
+
+    private final RatesService ratesService;
+    private final SupportedCurrenciesEnvironment supportedCurrenciesEnvironment;
+
+    private Disposable schedule = Disposables.disposed();
+
+    @Autowired
+    public SupportedCurrenciesLoader(RatesService ratesService,
+            SupportedCurrenciesEnvironment supportedCurrenciesEnvironment) {
+        this.ratesService = ratesService;
+        this.supportedCurrenciesEnvironment = supportedCurrenciesEnvironment;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (supportedCurrenciesEnvironment.isEnabled() && schedule.isDisposed()) {
+            schedule = Flux.interval(Duration.ZERO, supportedCurrenciesEnvironment.getRefreshInterval())
+                    .onBackpressureDrop()
+                    .concatMap(tick -> Mono.defer(this::load)
+                            .switchIfEmpty(Mono.fromRunnable(this::loadLastKnown))
+                            .repeatWhenEmpty(attempts -> attempts.concatMap(attempt -> Mono.delay(getRetryDelay(attempt)))))
+                    .subscribe();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        schedule.dispose();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return !schedule.isDisposed();
+    }
+
+    /**
+     * Loads the supported currencies, replacing the current ones.
+     *
+     * @return the supported currencies, empty when they could not be loaded
+     */
+    public Mono<SupportedCurrencies> load() {
+        RatesRequest ratesRequest = new RatesRequest();
+        ratesRequest.setBaseIsoCode(supportedCurrenciesEnvironment.getBaseIsoCode());
+
+        return ratesService.getRates(ratesRequest)
+                .map(SupportedCurrenciesLoader::toSupportedCurrencies)
+                // Only the base currency being supported means the payload is incomplete
+                .filter(supportedCurrencies -> supportedCurrencies.size() > 1)
+                .doOnNext(supportedCurrencies -> {
+                    SupportedCurrencies.setCurrent(supportedCurrencies);
+                    log.debug("Loaded {} supported currencies.", supportedCurrencies.size());
+                })
+                .onErrorResume(e -> {
+                    log.warn("Unable to load supported currencies: {}", e.getMessage());
+
+                    return Mono.empty();
+                })
+                .contextWrite(Context.of(ApiCallGuard.CALL_TYPE_CONTEXT_KEY, CallType.REFRESH));
+    }
+
+    /**
+     * Loads the supported currencies from the last known rates, if no supported currencies were loaded yet.
+     */
+    void loadLastKnown() {
+        if (SupportedCurrencies.getCurrent() != SupportedCurrencies.getKnown()) {
+            return;
+        }
+
+        ratesService.getLastKnownRates(supportedCurrenciesEnvironment.getBaseIsoCode())
+                .map(lastKnown -> toSupportedCurrencies(lastKnown.value()))
+                .filter(supportedCurrencies -> supportedCurrencies.size() > 1)
+                .ifPresent(supportedCurrencies -> {
+                    SupportedCurrencies.setCurrent(supportedCurrencies);
+                    log.info("Loaded {} supported currencies from the last known rates.", supportedCurrencies.size());
+                });
+    }
+
+    private Duration getRetryDelay(long attempt) {
+        Duration retryDelay = supportedCurrenciesEnvironment.getRetryInterval().multipliedBy(1L << Math.min(attempt, 16));
+
+        return retryDelay.compareTo(supportedCurrenciesEnvironment.getRefreshInterval()) < 0 ? retryDelay
+                : supportedCurrenciesEnvironment.getRefreshInterval();
+    }
+
+    private static SupportedCurrencies toSupportedCurrencies(RatesResponse ratesResponse) {
+        List<CurrencyCode> currencyCodes = new ArrayList<>(ratesResponse.size() + 1);
+        addIfValid(currencyCodes, ratesResponse.getBaseIsoCode());
+        for (int i = 0; i < ratesResponse.size(); i++) {
+            addIfValid(currencyCodes, ratesResponse.getTargetIsoCode(i));
+        }
+
+        return SupportedCurrencies.of(currencyCodes);
+    }
+
+    private static void addIfValid(List<CurrencyCode> currencyCodes, String isoCode) {
+        CurrencyCode currencyCode = CurrencyCode.parse(isoCode);
+        if (currencyCode != null) {
+            currencyCodes.add(currencyCode);
+        }
+    }
+}
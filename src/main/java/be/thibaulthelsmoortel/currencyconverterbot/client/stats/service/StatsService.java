@@ -21,11 +21,12 @@ package be.thibaulthelsmoortel.currencyconverterbot.client.stats.service;
 
 import be.thibaulthelsmoortel.currencyconverterbot.client.stats.payload.StatsRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.stats.payload.StatsResponse;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
  */
 public interface StatsService {
 
-    StatsResponse getStats(StatsRequest statsRequest);
+    Mono<StatsResponse> getStats(StatsRequest statsRequest);
 }
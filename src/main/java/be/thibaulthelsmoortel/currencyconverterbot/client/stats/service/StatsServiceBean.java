@@ -19,6 +19,8 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.client.stats.service;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
+import be.thibaulthelsmoortel.currencyconverterbot.client.RequestCoalescer;
 import be.thibaulthelsmoortel.currencyconverterbot.client.stats.payload.StatsRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.stats.payload.StatsResponse;
 import lombok.RequiredArgsConstructor;
@@ -35,21 +37,33 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class StatsServiceBean implements StatsService {
 
+    private static final String PATH = "/v1/stats";
+
     private final WebClient apiClient;
+    private final RequestCoalescer requestCoalescer;
+    private final ApiCallGuard apiCallGuard;
 
     @Override
-    public StatsResponse getStats(StatsRequest statsRequest) {
+    public Mono<StatsResponse> getStats(StatsRequest statsRequest) {
+        return requestCoalescer.coalesce("stats",
+                new StatsKey(RequestCoalescer.normalizeIsoCode(statsRequest.getIsoCode())),
+                () -> apiCallGuard.guard(PATH, () -> fetchStats(statsRequest)));
+    }
+
+    private Mono<StatsResponse> fetchStats(StatsRequest statsRequest) {
         log.info("Fetching stats for request: {}", statsRequest);
 
-        Mono<StatsResponse> ratesMono = apiClient
+        return apiClient
                 .get()
                 .uri(uriBuilder -> uriBuilder
-                        .path("/v1/stats")
+                        .path(PATH)
                         .queryParam("isoCode", statsRequest.getIsoCode())
                         .build())
                 .retrieve()
                 .bodyToMono(StatsResponse.class);
+    }
+
+    private record StatsKey(String isoCode) {
 
-        return ratesMono.block();
     }
 }
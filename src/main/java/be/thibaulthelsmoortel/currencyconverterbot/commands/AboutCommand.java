@@ -28,6 +28,8 @@ import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 import picocli.CommandLine.Command;
 
@@ -38,6 +40,7 @@ import picocli.CommandLine.Command;
  */
 @Command(name = "about", description = "Provides general information about the bot.")
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class AboutCommand extends BotCommand<MessageEmbed> {
 
     private final DiscordBotEnvironment discordBotEnvironment;
@@ -22,20 +22,26 @@ package be.thibaulthelsmoortel.currencyconverterbot.commands;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionResponse;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.service.ConversionService;
+import be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service.DegradedModeService;
 import be.thibaulthelsmoortel.currencyconverterbot.commands.converters.LowerToUpperCaseConverter;
 import be.thibaulthelsmoortel.currencyconverterbot.commands.core.BotCommand;
 import be.thibaulthelsmoortel.currencyconverterbot.validation.CurrencyIsoCode;
 import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientException;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
@@ -43,10 +49,17 @@ import picocli.CommandLine.Parameters;
 @RequiredArgsConstructor
 @Command(name = "convert", description = "Converts one currency value to another.")
 @Component
-public class ConvertCommand extends BotCommand<String> {
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+public class ConvertCommand extends BotCommand<Mono<String>> {
 
     protected static final String ERROR_MESSAGE = "Unable to perform the conversion request. Please verify the input parameters and try again. If the issue persists, please make sure to report the issue via the 'issue' command.";
 
+    private static final String SOURCE_AMOUNT_OPTION = "source_amount";
+    private static final String SOURCE_ISO_CODE_OPTION = "source_iso_code";
+    private static final String TARGET_ISO_CODE_OPTION = "target_iso_code";
+
+    private static final LowerToUpperCaseConverter UPPER_CASE_CONVERTER = new LowerToUpperCaseConverter();
+
     @Parameters(description = "Value of the currency to convert.", arity = "1", index = "0")
     @NotNull
     private BigDecimal sourceAmount;
@@ -58,35 +71,47 @@ public class ConvertCommand extends BotCommand<String> {
     private String targetIsoCode;
 
     private final ConversionService conversionService;
+    private final DegradedModeService degradedModeService;
 
     @Override
-    public String call() {
-        String message = null;
+    public Mono<String> call() {
         validate();
 
-        if (getEvent() instanceof SlashCommandInteractionEvent slashCommandInteractionEvent) {
-            ConversionRequest conversionRequest = new ConversionRequest();
-            conversionRequest.setSourceAmount(sourceAmount);
-            conversionRequest.setSourceIsoCode(sourceIsoCode);
-            conversionRequest.setTargetIsoCode(targetIsoCode);
-
-            try {
-                ConversionResponse conversion = conversionService.getConversion(conversionRequest);
-
-                if (conversion != null && conversion.getResult() != null) {
-                    message = sourceAmount + " " + sourceIsoCode.toUpperCase() + " = " + conversion.getResult() + " " + targetIsoCode.toUpperCase();
-                } else {
-                    message = ERROR_MESSAGE;
-                }
-
-                slashCommandInteractionEvent.getInteraction().reply(message).queue();
-            } catch (WebClientResponseException e) {
-                message = ERROR_MESSAGE;
-                slashCommandInteractionEvent.getInteraction().reply(message).queue();
-            }
+        if (!(getEvent() instanceof SlashCommandInteractionEvent)) {
+            return Mono.empty();
+        }
+
+        ConversionRequest conversionRequest = new ConversionRequest();
+        conversionRequest.setSourceAmount(sourceAmount);
+        conversionRequest.setSourceIsoCode(sourceIsoCode);
+        conversionRequest.setTargetIsoCode(targetIsoCode);
+        // Captured, as the command's parameters are reset once it returned
+        String prefix = sourceAmount + " " + sourceIsoCode.toUpperCase() + " = ";
+        String suffix = " " + targetIsoCode.toUpperCase();
+        Supplier<String> lastKnownMessage = () -> degradedModeService.convert(conversionRequest.getSourceAmount(),
+                        conversionRequest.getSourceIsoCode(), conversionRequest.getTargetIsoCode())
+                .map(result -> prefix + result.value() + suffix + "\n" + result.describeAge(Instant.now()))
+                .orElse(ERROR_MESSAGE);
+
+        if (degradedModeService.isDegraded()) {
+            return completeDeferredReplyWithMessage(Mono.fromSupplier(lastKnownMessage));
         }
 
-        return message;
+        return completeDeferredReplyWithMessage(conversionService.getConversion(conversionRequest)
+                .mapNotNull(ConversionResponse::getResult)
+                .map(result -> prefix + result + suffix)
+                .defaultIfEmpty(ERROR_MESSAGE)
+                .onErrorResume(WebClientException.class, e -> Mono.fromSupplier(lastKnownMessage)));
+    }
+
+    @Override
+    public boolean bindOptions(SlashCommandInteractionEvent event) {
+        String amount = getOptionAsString(event, SOURCE_AMOUNT_OPTION, null);
+        sourceAmount = amount == null ? null : new BigDecimal(amount);
+        sourceIsoCode = UPPER_CASE_CONVERTER.convert(getOptionAsString(event, SOURCE_ISO_CODE_OPTION, null));
+        targetIsoCode = UPPER_CASE_CONVERTER.convert(getOptionAsString(event, TARGET_ISO_CODE_OPTION, null));
+
+        return true;
     }
 
     // Visible for testing
@@ -104,11 +129,21 @@ public class ConvertCommand extends BotCommand<String> {
         this.targetIsoCode = targetIsoCode;
     }
 
+    @Override
+    public boolean isDeferred() {
+        return true;
+    }
+
+    @Override
+    protected String getErrorMessage() {
+        return ERROR_MESSAGE;
+    }
+
     @Override
     public SlashCommandData getSlashCommandData() {
         return Commands.slash("convert", "Converts one currency value to another.")
-                .addOption(OptionType.NUMBER, "source_amount", "Value of the currency to convert.", true)
-                .addOption(OptionType.STRING, "source_iso_code", "ISO code of the source currency.", true)
-                .addOption(OptionType.STRING, "target_iso_code", "ISO code of the target currency.", true);
+                .addOption(OptionType.NUMBER, SOURCE_AMOUNT_OPTION, "Value of the currency to convert.", true)
+                .addOption(OptionType.STRING, SOURCE_ISO_CODE_OPTION, "ISO code of the source currency.", true)
+                .addOption(OptionType.STRING, TARGET_ISO_CODE_OPTION, "ISO code of the target currency.", true);
     }
 }
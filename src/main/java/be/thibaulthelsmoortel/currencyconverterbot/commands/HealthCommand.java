@@ -19,37 +19,71 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.commands;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
+import be.thibaulthelsmoortel.currencyconverterbot.client.CircuitBreaker.State;
+import be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service.DegradedModeService;
+import be.thibaulthelsmoortel.currencyconverterbot.client.health.payload.HealthResponse;
 import be.thibaulthelsmoortel.currencyconverterbot.client.health.service.HealthServiceBean;
 import be.thibaulthelsmoortel.currencyconverterbot.commands.core.BotCommand;
 import lombok.RequiredArgsConstructor;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientException;
 import picocli.CommandLine.Command;
+import reactor.core.publisher.Mono;
 
 /**
- * Basic command checking the API health.
+ * Basic command checking the API health. Lists the API endpoints of which the circuit is not closed, and whether the
+ * bot runs in degraded mode.
  *
  * @author Thibault Helsmoortel
  */
 @RequiredArgsConstructor
 @Command(name = "health", description = "Checks the API health.")
 @Component
-public class HealthCommand extends BotCommand<String> {
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+public class HealthCommand extends BotCommand<Mono<String>> {
+
+    private static final String UNKNOWN_STATUS = "UNKNOWN";
 
     private final HealthServiceBean healthServiceBean;
+    private final ApiCallGuard apiCallGuard;
+    private final DegradedModeService degradedModeService;
 
     @Override
-    public String call() {
-        String message = null;
-        if (getEvent() instanceof SlashCommandInteractionEvent slashCommandInteractionEvent) {
-            message = "Status: " + healthServiceBean.getHealth().getStatus();
-
-            slashCommandInteractionEvent.getInteraction().reply(message).queue();
+    public Mono<String> call() {
+        if (!(getEvent() instanceof SlashCommandInteractionEvent)) {
+            return Mono.empty();
         }
 
-        return message;
+        return completeDeferredReplyWithMessage(healthServiceBean.getHealth()
+                .map(HealthResponse::getStatus)
+                .onErrorReturn(WebClientException.class, UNKNOWN_STATUS)
+                .map(status -> "Status: " + status + describeCircuits() + describeDegradedMode()));
+    }
+
+    private String describeCircuits() {
+        StringBuilder description = new StringBuilder();
+        apiCallGuard.getCircuitStates().forEach((endpoint, state) -> {
+            if (state != State.CLOSED) {
+                description.append("\n").append("Circuit ").append(endpoint).append(": ").append(state);
+            }
+        });
+
+        return description.toString();
+    }
+
+    private String describeDegradedMode() {
+        return degradedModeService.isDegraded() ? "\nDegraded mode: answering from the last known rates" : "";
+    }
+
+    @Override
+    public boolean isDeferred() {
+        return true;
     }
 
     @Override
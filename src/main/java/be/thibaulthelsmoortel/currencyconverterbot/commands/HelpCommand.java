@@ -23,6 +23,8 @@ import be.thibaulthelsmoortel.currencyconverterbot.commands.core.BotCommand;
 import be.thibaulthelsmoortel.currencyconverterbot.config.DiscordBotEnvironment;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.MessageEmbed;
@@ -34,6 +36,8 @@ import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
@@ -45,8 +49,12 @@ import picocli.CommandLine.Parameters;
  */
 @Command(name = "help", description = "Provides command usage help.")
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class HelpCommand extends BotCommand<MessageEmbed> {
 
+    // Usage messages only depend on the commands' annotations, so they are rendered once per command
+    private static final Map<String, String> USAGE_MESSAGES = new ConcurrentHashMap<>();
+
     @Parameters(description = "Command of which to display usage help.", arity = "0..1", index = "0")
     private String command;
 
@@ -91,12 +99,12 @@ public class HelpCommand extends BotCommand<MessageEmbed> {
                         })
                         .findFirst()
                         .ifPresent(botCommand -> {
-                            String message = new CommandLine(botCommand).getUsageMessage(Ansi.OFF);
+                            String message = USAGE_MESSAGES.computeIfAbsent(command,
+                                    commandName -> new CommandLine(botCommand).getUsageMessage(Ansi.OFF));
                             descriptionBuilder.append(message);
                             embed.set(embedBuilder.build());
                             slashCommandInteractionEvent.getInteraction().replyEmbeds(embed.get()).queue();
                         });
-                command = null;
                 return embed.get();
             }
         }
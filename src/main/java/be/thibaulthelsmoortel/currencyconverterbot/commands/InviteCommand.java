@@ -27,6 +27,8 @@ import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEve
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
@@ -38,6 +40,7 @@ import picocli.CommandLine.Parameters;
  */
 @Command(name = "invite", description = "Provides an invitation url for the bot.")
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class InviteCommand extends BotCommand<String> {
 
     @Parameters(paramLabel = "PERMISSION", description = "Target bot permissions. Candidates: ${COMPLETION-CANDIDATES}", arity = "0..*",
@@ -59,8 +62,6 @@ public class InviteCommand extends BotCommand<String> {
             slashCommandInteractionEvent.getInteraction().reply(message).queue();
         }
 
-        reset();
-
         return message;
     }
 
@@ -69,10 +70,6 @@ public class InviteCommand extends BotCommand<String> {
         this.permissions = permissions;
     }
 
-    private void reset() {
-        permissions = null;
-    }
-
     @Override
     public SlashCommandData getSlashCommandData() {
         return Commands.slash("invite", "Provides an invitation url for the bot.")
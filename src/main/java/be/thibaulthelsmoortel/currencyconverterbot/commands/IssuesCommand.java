@@ -24,6 +24,8 @@ import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEve
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 import picocli.CommandLine.Command;
 
@@ -34,6 +36,7 @@ import picocli.CommandLine.Command;
  */
 @Command(name = "issue", description = "Provides an url where issues can be reported.")
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class IssuesCommand extends BotCommand<String> {
 
     @Value("${bot.issues.url}")
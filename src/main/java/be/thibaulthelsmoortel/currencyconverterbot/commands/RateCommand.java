@@ -19,6 +19,7 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.commands;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service.DegradedModeService;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateResponse;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.service.RateService;
@@ -26,15 +27,20 @@ import be.thibaulthelsmoortel.currencyconverterbot.commands.converters.LowerToUp
 import be.thibaulthelsmoortel.currencyconverterbot.commands.core.BotCommand;
 import be.thibaulthelsmoortel.currencyconverterbot.validation.CurrencyIsoCode;
 import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientException;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
@@ -42,49 +48,67 @@ import picocli.CommandLine.Parameters;
 @RequiredArgsConstructor
 @Command(name = "rate", description = "Provides current currency rate.")
 @Component
-public class RateCommand extends BotCommand<String> {
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+public class RateCommand extends BotCommand<Mono<String>> {
 
     protected static final String ERROR_MESSAGE = "Unable to perform the rate request. Please verify the input parameters and try again. If the issue persists, please make sure to report the issue via the 'issue' command.";
 
+    private static final String DEFAULT_BASE_ISO_CODE = "EUR";
+
+    private static final String ISO_CODE_OPTION = "iso_code";
+    private static final String BASE_ISO_CODE_OPTION = "base_iso_code";
+
+    private static final LowerToUpperCaseConverter UPPER_CASE_CONVERTER = new LowerToUpperCaseConverter();
+
     @Parameters(description = "ISO code of the currency to lookup.", arity = "1", index = "0", converter = LowerToUpperCaseConverter.class)
     @NotNull
     @CurrencyIsoCode
     private String isoCode;
 
     @SuppressWarnings("unused") // Used through option
-    @Parameters(description = "The base currency iso code.  Default: ${DEFAULT-VALUE}", defaultValue = "EUR", arity = "0..1", converter = LowerToUpperCaseConverter.class)
+    @Parameters(description = "The base currency iso code.  Default: ${DEFAULT-VALUE}", defaultValue = DEFAULT_BASE_ISO_CODE, arity = "0..1", converter = LowerToUpperCaseConverter.class)
     @CurrencyIsoCode
     private String baseCurrencyIsoCode;
 
     private final RateService rateService;
+    private final DegradedModeService degradedModeService;
 
     @Override
-    public String call() {
-        String message = null;
+    public Mono<String> call() {
         validate();
 
-        if (getEvent() instanceof SlashCommandInteractionEvent slashCommandInteractionEvent) {
-            RateRequest rateRequest = new RateRequest();
-            rateRequest.setBaseIsoCode(baseCurrencyIsoCode);
-            rateRequest.setTargetIsoCode(isoCode);
-
-            try {
-                RateResponse rate = rateService.getRate(rateRequest);
-
-                if (rate != null && rate.getResult() != null) {
-                    message = "1 " + baseCurrencyIsoCode.toUpperCase() + " = " + rate.getResult() + " " + isoCode.toUpperCase();
-                } else {
-                    message = ERROR_MESSAGE;
-                }
-
-                slashCommandInteractionEvent.getInteraction().reply(message).queue();
-            } catch (WebClientResponseException e) {
-                message = ERROR_MESSAGE;
-                slashCommandInteractionEvent.getInteraction().reply(message).queue();
-            }
+        if (!(getEvent() instanceof SlashCommandInteractionEvent)) {
+            return Mono.empty();
+        }
+
+        RateRequest rateRequest = new RateRequest();
+        rateRequest.setBaseIsoCode(baseCurrencyIsoCode);
+        rateRequest.setTargetIsoCode(isoCode);
+        // Captured, as the command's parameters are reset once it returned
+        String prefix = "1 " + baseCurrencyIsoCode.toUpperCase() + " = ";
+        String suffix = " " + isoCode.toUpperCase();
+        Supplier<String> lastKnownMessage = () -> degradedModeService
+                .getRate(rateRequest.getBaseIsoCode(), rateRequest.getTargetIsoCode())
+                .map(rate -> prefix + rate.value() + suffix + "\n" + rate.describeAge(Instant.now()))
+                .orElse(ERROR_MESSAGE);
+
+        if (degradedModeService.isDegraded()) {
+            return completeDeferredReplyWithMessage(Mono.fromSupplier(lastKnownMessage));
         }
 
-        return message;
+        return completeDeferredReplyWithMessage(rateService.getRate(rateRequest)
+                .mapNotNull(RateResponse::getResult)
+                .map(result -> prefix + result + suffix)
+                .defaultIfEmpty(ERROR_MESSAGE)
+                .onErrorResume(WebClientException.class, e -> Mono.fromSupplier(lastKnownMessage)));
+    }
+
+    @Override
+    public boolean bindOptions(SlashCommandInteractionEvent event) {
+        isoCode = UPPER_CASE_CONVERTER.convert(getOptionAsString(event, ISO_CODE_OPTION, null));
+        baseCurrencyIsoCode = UPPER_CASE_CONVERTER.convert(getOptionAsString(event, BASE_ISO_CODE_OPTION, DEFAULT_BASE_ISO_CODE));
+
+        return true;
     }
 
     // Visible for testing
@@ -98,10 +122,20 @@ public class RateCommand extends BotCommand<String> {
         this.baseCurrencyIsoCode = baseCurrencyIsoCode;
     }
 
+    @Override
+    public boolean isDeferred() {
+        return true;
+    }
+
+    @Override
+    protected String getErrorMessage() {
+        return ERROR_MESSAGE;
+    }
+
     @Override
     public SlashCommandData getSlashCommandData() {
         return Commands.slash("rate", "Provides current currency rate.")
-                .addOption(OptionType.STRING, "iso_code", "ISO code of the currency to lookup.", true)
-                .addOption(OptionType.STRING, "base_iso_code", "The base currency iso code.", false);
+                .addOption(OptionType.STRING, ISO_CODE_OPTION, "ISO code of the currency to lookup.", true)
+                .addOption(OptionType.STRING, BASE_ISO_CODE_OPTION, "The base currency iso code.", false);
     }
 }
@@ -19,16 +19,18 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.commands;
 
-import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service.DegradedModeService;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.service.RatesService;
 import be.thibaulthelsmoortel.currencyconverterbot.commands.converters.LowerToUpperCaseConverter;
 import be.thibaulthelsmoortel.currencyconverterbot.commands.core.BotCommand;
 import be.thibaulthelsmoortel.currencyconverterbot.validation.CurrencyIsoCode;
+import java.time.Instant;
 import java.util.Comparator;
-import java.util.List;
-import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import lombok.RequiredArgsConstructor;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.MessageEmbed;
@@ -36,10 +38,13 @@ import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEve
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientException;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
@@ -47,51 +52,83 @@ import picocli.CommandLine.Parameters;
 @RequiredArgsConstructor
 @Command(name = "rates", description = "Provides current currency rates.")
 @Component
-public class RatesCommand extends BotCommand<MessageEmbed> {
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+public class RatesCommand extends BotCommand<Mono<MessageEmbed>> {
 
     protected static final String ERROR_MESSAGE = "Unable to perform the rates request. Please verify the input parameters and try again. If the issue persists, please make sure to report the issue via the 'issue' command.";
 
     private static final String HEADER = "Currency rates";
 
+    private static final String DEFAULT_BASE_ISO_CODE = "EUR";
+
+    private static final String BASE_ISO_CODE_OPTION = "base_iso_code";
+
+    private static final LowerToUpperCaseConverter UPPER_CASE_CONVERTER = new LowerToUpperCaseConverter();
+
     @SuppressWarnings("unused") // Used through option
-    @Parameters(description = "The base currency iso code. Default: ${DEFAULT-VALUE}", defaultValue = "EUR", arity = "0..1", converter = LowerToUpperCaseConverter.class)
+    @Parameters(description = "The base currency iso code. Default: ${DEFAULT-VALUE}", defaultValue = DEFAULT_BASE_ISO_CODE, arity = "0..1", converter = LowerToUpperCaseConverter.class)
     @CurrencyIsoCode
     private String baseCurrencyIsoCode;
 
     private final RatesService ratesService;
+    private final DegradedModeService degradedModeService;
 
     @Override
-    public MessageEmbed call() {
-        MessageEmbed embed = null;
+    public Mono<MessageEmbed> call() {
         validate();
 
-        if (getEvent() instanceof SlashCommandInteractionEvent slashCommandInteractionEvent) {
-            var embedBuilder = new EmbedBuilder();
-            embedBuilder.setTitle(HEADER);
-
-            RatesRequest ratesRequest = new RatesRequest();
-            ratesRequest.setBaseIsoCode(baseCurrencyIsoCode);
-
-            try {
-                RatesResponse response = ratesService.getRates(ratesRequest);
-                List<RateResponse> rates = response.getRates()
-                        .stream()
-                        .filter(Objects::nonNull)
-                        .sorted(Comparator.comparing(RateResponse::getResult))
-                        .toList();
-
-                rates.forEach(rate -> embedBuilder.addField(rate.getTargetIsoCode(), rate.getResult().toPlainString(), true));
-
-                embed = embedBuilder.build();
-                slashCommandInteractionEvent.getInteraction().replyEmbeds(embed).queue();
-            } catch (WebClientResponseException e) {
-                embedBuilder.setDescription(ERROR_MESSAGE);
-                embed = embedBuilder.build();
-                slashCommandInteractionEvent.getInteraction().replyEmbeds(embed).queue();
-            }
+        if (!(getEvent() instanceof SlashCommandInteractionEvent)) {
+            return Mono.empty();
+        }
+
+        RatesRequest ratesRequest = new RatesRequest();
+        ratesRequest.setBaseIsoCode(baseCurrencyIsoCode);
+
+        Supplier<MessageEmbed> lastKnownEmbed = () -> degradedModeService.getRates(ratesRequest.getBaseIsoCode())
+                .map(RatesCommand::createLastKnownEmbed)
+                .orElseGet(RatesCommand::createErrorEmbed);
+
+        if (degradedModeService.isDegraded()) {
+            return completeDeferredReplyWithEmbed(Mono.fromSupplier(lastKnownEmbed));
         }
 
-        return embed;
+        return completeDeferredReplyWithEmbed(ratesService.getRates(ratesRequest)
+                .map(response -> createEmbed(response).build())
+                .onErrorResume(WebClientException.class, e -> Mono.fromSupplier(lastKnownEmbed)));
+    }
+
+    private static MessageEmbed createLastKnownEmbed(LastKnown<RatesResponse> lastKnownRates) {
+        return createEmbed(lastKnownRates.value())
+                .setFooter(lastKnownRates.describeAge(Instant.now()))
+                .build();
+    }
+
+    private static EmbedBuilder createEmbed(RatesResponse response) {
+        var embedBuilder = new EmbedBuilder();
+        embedBuilder.setTitle(HEADER);
+
+        IntStream.range(0, response.size())
+                .boxed()
+                .sorted(Comparator.comparingDouble(response::getResultAsDouble))
+                .forEach(index -> embedBuilder.addField(response.getTargetIsoCode(index),
+                        response.getResult(index).toPlainString(), true));
+
+        return embedBuilder;
+    }
+
+    private static MessageEmbed createErrorEmbed() {
+        var embedBuilder = new EmbedBuilder();
+        embedBuilder.setTitle(HEADER);
+        embedBuilder.setDescription(ERROR_MESSAGE);
+
+        return embedBuilder.build();
+    }
+
+    @Override
+    public boolean bindOptions(SlashCommandInteractionEvent event) {
+        baseCurrencyIsoCode = UPPER_CASE_CONVERTER.convert(getOptionAsString(event, BASE_ISO_CODE_OPTION, DEFAULT_BASE_ISO_CODE));
+
+        return true;
     }
 
     // Visible for testing
@@ -100,9 +137,19 @@ public class RatesCommand extends BotCommand<MessageEmbed> {
         this.baseCurrencyIsoCode = baseCurrencyIsoCode;
     }
 
+    @Override
+    public boolean isDeferred() {
+        return true;
+    }
+
+    @Override
+    protected String getErrorMessage() {
+        return ERROR_MESSAGE;
+    }
+
     @Override
     public SlashCommandData getSlashCommandData() {
         return Commands.slash("rates", "Provides current currency rates.")
-                .addOption(OptionType.STRING, "base_iso_code", "The base currency iso code.", false);
+                .addOption(OptionType.STRING, BASE_ISO_CODE_OPTION, "The base currency iso code.", false);
     }
 }
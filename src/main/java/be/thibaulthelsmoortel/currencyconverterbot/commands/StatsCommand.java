@@ -35,10 +35,13 @@ import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEve
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientException;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
@@ -46,12 +49,17 @@ import picocli.CommandLine.Parameters;
 @RequiredArgsConstructor
 @Command(name = "stats", description = "Retrieves stats of a currency.")
 @Component
-public class StatsCommand extends BotCommand<MessageEmbed> {
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+public class StatsCommand extends BotCommand<Mono<MessageEmbed>> {
 
     protected static final String ERROR_MESSAGE = "Unable to perform the stats request. Please verify the input parameters and try again. If the issue persists, please make sure to report the issue via the 'issue' command.";
 
     private static final String HEADER = "Currency stats";
 
+    private static final String ISO_CODE_OPTION = "iso_code";
+
+    private static final LowerToUpperCaseConverter UPPER_CASE_CONVERTER = new LowerToUpperCaseConverter();
+
     @SuppressWarnings("unused") // Used through parameter
     @Parameters(description = "ISO code of the currency.", arity = "1", index = "0", converter = LowerToUpperCaseConverter.class)
     @CurrencyIsoCode
@@ -59,55 +67,73 @@ public class StatsCommand extends BotCommand<MessageEmbed> {
 
     private final StatsService statsService;
 
+    @Override
+    public boolean isDeferred() {
+        return true;
+    }
+
+    @Override
+    protected String getErrorMessage() {
+        return ERROR_MESSAGE;
+    }
+
     @Override
     public SlashCommandData getSlashCommandData() {
         return Commands.slash("stats", "Retrieves stats of a currency.")
-                .addOption(OptionType.STRING, "iso_code", "ISO code of the currency.", true);
+                .addOption(OptionType.STRING, ISO_CODE_OPTION, "ISO code of the currency.", true);
     }
 
     @Override
-    public MessageEmbed call() {
-        MessageEmbed embed = null;
-        validate();
+    public boolean bindOptions(SlashCommandInteractionEvent event) {
+        isoCode = UPPER_CASE_CONVERTER.convert(getOptionAsString(event, ISO_CODE_OPTION, null));
+
+        return true;
+    }
 
-        if (getEvent() instanceof SlashCommandInteractionEvent slashCommandInteractionEvent) {
-            var embedBuilder = new EmbedBuilder();
-            embedBuilder.setTitle(HEADER + " of " + isoCode);
+    @Override
+    public Mono<MessageEmbed> call() {
+        validate();
 
-            StatsRequest statsRequest = new StatsRequest();
-            statsRequest.setIsoCode(isoCode);
+        if (!(getEvent() instanceof SlashCommandInteractionEvent)) {
+            return Mono.empty();
+        }
 
-            try {
-                StatsResponse response = statsService.getStats(statsRequest);
+        StatsRequest statsRequest = new StatsRequest();
+        statsRequest.setIsoCode(isoCode);
+        // Captured, as the command's parameters are reset once it returned
+        String currencyIsoCode = isoCode;
+
+        return completeDeferredReplyWithEmbed(statsService.getStats(statsRequest)
+                .map(response -> createEmbed(currencyIsoCode, response))
+                .onErrorResume(WebClientException.class, e -> Mono.just(new EmbedBuilder()
+                        .setTitle(HEADER + " of " + currencyIsoCode)
+                        .setDescription(ERROR_MESSAGE)
+                        .build())));
+    }
 
-                embedBuilder.addField("Total conversions with " + isoCode + " as a source",
-                        String.valueOf(response.getConversionsWithSource()), true);
+    private MessageEmbed createEmbed(String currencyIsoCode, StatsResponse response) {
+        var embedBuilder = new EmbedBuilder();
+        embedBuilder.setTitle(HEADER + " of " + currencyIsoCode);
 
-                List<CurrencyStat> mostConversionsWithSource = response.getMostConversionsWithSource();
+        embedBuilder.addField("Total conversions with " + currencyIsoCode + " as a source",
+                String.valueOf(response.getConversionsWithSource()), true);
 
-                embedBuilder.addField("Top occurrences",
-                        formatOccurrences(mostConversionsWithSource),
-                        false);
+        List<CurrencyStat> mostConversionsWithSource = response.getMostConversionsWithSource();
 
-                embedBuilder.addField("Total conversions with " + isoCode + " as a target",
-                        String.valueOf(response.getConversionsWithTarget()), true);
+        embedBuilder.addField("Top occurrences",
+                formatOccurrences(mostConversionsWithSource),
+                false);
 
-                List<CurrencyStat> mostConversionsWithTarget = response.getMostConversionsWithTarget();
+        embedBuilder.addField("Total conversions with " + currencyIsoCode + " as a target",
+                String.valueOf(response.getConversionsWithTarget()), true);
 
-                embedBuilder.addField("Top occurrences",
-                        formatOccurrences(mostConversionsWithTarget),
-                        false);
+        List<CurrencyStat> mostConversionsWithTarget = response.getMostConversionsWithTarget();
 
-                embed = embedBuilder.build();
-                slashCommandInteractionEvent.getInteraction().replyEmbeds(embed).queue();
-            } catch (WebClientResponseException e) {
-                embedBuilder.setDescription(ERROR_MESSAGE);
-                embed = embedBuilder.build();
-                slashCommandInteractionEvent.getInteraction().replyEmbeds(embed).queue();
-            }
-        }
+        embedBuilder.addField("Top occurrences",
+                formatOccurrences(mostConversionsWithTarget),
+                false);
 
-        return embed;
+        return embedBuilder.build();
     }
 
     private String formatOccurrences(List<CurrencyStat> currencyStats) {
@@ -19,11 +19,13 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.commands.converters;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.CurrencyCode;
 import org.apache.commons.lang3.StringUtils;
 import picocli.CommandLine.ITypeConverter;
 
 /**
- * Converter for lower- to uppercase Strings
+ * Converter for lower- to uppercase Strings. ISO codes of three letters are converted to their interned
+ * {@link CurrencyCode} ISO code, without creating an uppercase copy.
  *
  * @author Thibault Helsmoortel
  */
@@ -32,7 +34,9 @@ public class LowerToUpperCaseConverter implements ITypeConverter<String> {
     @Override
     public String convert(String value) {
         if (StringUtils.isNotBlank(value)) {
-            return value.toUpperCase();
+            CurrencyCode currencyCode = value.length() == 3 ? CurrencyCode.parse(value) : null;
+
+            return currencyCode == null ? value.toUpperCase() : currencyCode.getIsoCode();
         }
 
         return value;
@@ -22,15 +22,18 @@ package be.thibaulthelsmoortel.currencyconverterbot.commands.core;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
-import jakarta.validation.ValidatorFactory;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.events.Event;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Spec;
+import reactor.core.publisher.Mono;
 
 /**
  * Command definition providing execution context.
@@ -46,29 +49,149 @@ public abstract class BotCommand<T> implements Callable<T> {
 
     private Event event;
 
+    private DeferredReply deferredReply;
+
+    /**
+     * Whether a command type declares any constraints. Computing it builds and caches the type's constraint metadata.
+     */
+    private static final String ERROR_MESSAGE = "Unable to execute the command. Please verify the input parameters and try again. If the issue persists, please make sure to report the issue via the 'issue' command.";
+
+    private static final ClassValue<Boolean> CONSTRAINED = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return ValidatorHolder.VALIDATOR.getConstraintsForClass(type).isBeanConstrained();
+        }
+    };
+
     protected Event getEvent() {
         return event;
     }
 
     public void setEvent(Event event) {
         this.event = event;
+        this.deferredReply = event instanceof SlashCommandInteractionEvent slashCommandInteractionEvent
+                ? new DeferredReply(slashCommandInteractionEvent) : null;
+    }
+
+    /**
+     * Resets the state of an invocation once it completed, as command instances are reused for later invocations.
+     * Picocli resets the parameters on every parse and bound commands overwrite all of them, any other state a command
+     * keeps must be cleared by overriding this method, calling the super implementation.
+     */
+    public void reset() {
+        setEvent(null);
     }
 
     public void validate() {
-        Validator validator;
-        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
-            validator = factory.getValidator();
-            Set<ConstraintViolation<BotCommand<T>>> violations = validator.validate(this);
-
-            if (!violations.isEmpty()) {
-                StringBuilder errorMsg = new StringBuilder();
-                for (ConstraintViolation<BotCommand<T>> violation : violations) {
-                    errorMsg.append("Error: ").append(violation.getMessage()).append("\n");
-                }
-                throw new ParameterException(spec.commandLine(), errorMsg.toString());
+        if (!CONSTRAINED.get(getClass())) {
+            return;
+        }
+
+        Set<ConstraintViolation<BotCommand<T>>> violations = ValidatorHolder.VALIDATOR.validate(this);
+
+        if (!violations.isEmpty()) {
+            StringBuilder errorMsg = new StringBuilder();
+            for (ConstraintViolation<BotCommand<T>> violation : violations) {
+                errorMsg.append("Error: ").append(violation.getMessage()).append("\n");
             }
+            throw new ParameterException(spec.commandLine(), errorMsg.toString());
         }
     }
 
+    /**
+     * Resolves the constraints of a command type up front, so validating its instances only checks their values.
+     *
+     * @param commandType the command type to prepare validation for
+     */
+    static void prepareValidation(Class<?> commandType) {
+        CONSTRAINED.get(commandType);
+    }
+
+    /**
+     * Binds the options of a slash command interaction directly onto the command's parameters, bypassing the parsing
+     * of the flattened command string.
+     *
+     * @param event the slash command interaction event
+     * @return true if the options were bound, false if the command relies on parsing the command string
+     */
+    public boolean bindOptions(SlashCommandInteractionEvent event) {
+        return false;
+    }
+
+    protected static String getOptionAsString(SlashCommandInteractionEvent event, String name, String fallback) {
+        OptionMapping option = event.getOption(name);
+
+        return option == null ? fallback : option.getAsString();
+    }
+
+    /**
+     * Indicates whether the command acknowledges its interaction right away and answers it later on, through the
+     * interaction hook. Commands depending on the API should defer, as Discord requires an acknowledgement within
+     * 3 seconds.
+     *
+     * @return true if the reply to the command is deferred, false if otherwise
+     */
+    public boolean isDeferred() {
+        return false;
+    }
+
+    /**
+     * Returns the message answering a deferred reply which the command did not complete, because it failed or had
+     * nothing to reply.
+     *
+     * @return the error message of the command
+     */
+    protected String getErrorMessage() {
+        return ERROR_MESSAGE;
+    }
+
+    protected void completeDeferredReply(String message) {
+        deferredReply.complete(message);
+    }
+
+    protected void completeDeferredReply(MessageEmbed embed) {
+        deferredReply.complete(embed);
+    }
+
+    /**
+     * Completes the deferred reply with the message, once it is emitted. Nothing waits for the message until the
+     * returned mono is subscribed to, which the executor does after the command returned it.
+     *
+     * @param message the mono emitting the message
+     * @return the mono completing the deferred reply
+     */
+    protected Mono<String> completeDeferredReplyWithMessage(Mono<String> message) {
+        DeferredReply reply = deferredReply;
+
+        return message.doOnNext(reply::complete);
+    }
+
+    /**
+     * Completes the deferred reply with the embed, once it is emitted. Nothing waits for the embed until the returned
+     * mono is subscribed to, which the executor does after the command returned it.
+     *
+     * @param embed the mono emitting the embed
+     * @return the mono completing the deferred reply
+     */
+    protected Mono<MessageEmbed> completeDeferredReplyWithEmbed(Mono<MessageEmbed> embed) {
+        DeferredReply reply = deferredReply;
+
+        return embed.doOnNext(reply::complete);
+    }
+
+    DeferredReply getDeferredReply() {
+        return deferredReply;
+    }
+
     public abstract SlashCommandData getSlashCommandData();
+
+    /**
+     * Lazily bootstraps the validator shared by all commands. Validators are thread-safe, the factory lives as long as
+     * the application does.
+     */
+    private static final class ValidatorHolder {
+
+        @SuppressWarnings("resource")
+        private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.commands.core;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Help.Ansi;
+
+/**
+ * Pre-resolved routing information of a {@link BotCommand}, so no reflection is needed when dispatching.
+ *
+ * @param botCommand the command instance providing the metadata
+ * @param commandFactory the factory creating a new command instance for every invocation
+ * @param command the command's picocli metadata
+ * @param slashCommandData the command's slash command definition
+ * @param optionNames the names of the command's slash command options
+ * @param commandLines the idle command lines, each wrapping its own command instance
+ * @author Thibault Helsmoortel
+ */
+public record CommandDescriptor(BotCommand<?> botCommand, Supplier<? extends BotCommand<?>> commandFactory,
+                                Command command, SlashCommandData slashCommandData, List<String> optionNames,
+                                BlockingQueue<CommandLine> commandLines) {
+
+    static CommandDescriptor of(BotCommand<?> botCommand, Supplier<? extends BotCommand<?>> commandFactory,
+            int maxIdleCommandLines) {
+        Command command = botCommand.getClass().getAnnotation(Command.class);
+        SlashCommandData slashCommandData = botCommand.getSlashCommandData();
+        List<String> optionNames = slashCommandData.getOptions().stream()
+                .map(OptionData::getName)
+                .toList();
+        BotCommand.prepareValidation(botCommand.getClass());
+
+        return new CommandDescriptor(botCommand, commandFactory, command, slashCommandData, optionNames,
+                new ArrayBlockingQueue<>(maxIdleCommandLines));
+    }
+
+    /**
+     * Creates a new instance of the command, holding the state of a single invocation.
+     *
+     * @return the new command instance
+     */
+    public BotCommand<?> newCommand() {
+        return commandFactory.get();
+    }
+
+    /**
+     * Acquires a command line for a single invocation, reusing an idle one if available. Building a command line
+     * introspects the whole command, reusing it leaves only the parsing of the invocation's arguments, which picocli
+     * starts by resetting the command's parameters. The command line is used exclusively until it is released.
+     * <p>
+     * Measured ad hoc for the convert command (20k warm iterations on a single thread), building a command line takes
+     * about 110-300 us and allocates about 60 KB, reusing one takes about 1 us without allocating. Including the parsing
+     * of the arguments, a dispatch allocates about 36 KB instead of 96 KB.
+     *
+     * @return the command line, wrapping a command instance
+     */
+    public CommandLine acquireCommandLine() {
+        CommandLine commandLine = commandLines.poll();
+        if (commandLine == null) {
+            commandLine = new CommandLine(newCommand());
+            commandLine.setColorScheme(Help.defaultColorScheme(Ansi.OFF));
+        }
+
+        return commandLine;
+    }
+
+    /**
+     * Releases a command line once its invocation completed, so it can be reused. The command is reset first, so no
+     * state carries over to the next invocation. Discarded when enough command lines are idle.
+     *
+     * @param commandLine the command line to release
+     */
+    public void releaseCommandLine(CommandLine commandLine) {
+        BotCommand<?> botCommand = commandLine.getCommand();
+        botCommand.reset();
+        commandLines.offer(commandLine);
+    }
+
+    public String name() {
+        return command.name();
+    }
+}
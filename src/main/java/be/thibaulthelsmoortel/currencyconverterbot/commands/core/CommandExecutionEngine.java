@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.commands.core;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
+import be.thibaulthelsmoortel.currencyconverterbot.config.CommandExecutionEnvironment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Executes commands off the JDA event thread, with a bounded concurrency and a bounded queue. The concurrency bounds
+ * the threads executing commands, not the commands waiting for the API: those no longer occupy a thread.
+ * Commands run on virtual threads when the runtime supports them, on platform threads otherwise.
+ *
+ * @author Thibault Helsmoortel
+ */
+@Component
+@Slf4j
+public class CommandExecutionEngine implements DisposableBean {
+
+    static final String BUSY_MESSAGE = "The bot is currently handling too many requests. Please try again in a moment.";
+
+    private static final String THREAD_NAME_PREFIX = "command-";
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor deadlineScheduler;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejectedCounter;
+
+    @Autowired
+    public CommandExecutionEngine(CommandExecutionEnvironment commandExecutionEnvironment, MeterRegistry meterRegistry) {
+        int maxConcurrency = commandExecutionEnvironment.getMaxConcurrency();
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(commandExecutionEnvironment.getQueueCapacity()),
+                createThreadFactory(commandExecutionEnvironment.isVirtualThreads()));
+        executor.allowCoreThreadTimeOut(true);
+        this.deadlineScheduler = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("command-deadline-"));
+        deadlineScheduler.setRemoveOnCancelPolicy(true);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("bot.commands.queue.depth", executor, e -> e.getQueue().size())
+                .description("Amount of commands waiting for execution.")
+                .register(meterRegistry);
+        Gauge.builder("bot.commands.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Amount of commands being executed.")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("bot.commands.rejected")
+                .description("Amount of commands rejected because the execution queue was full.")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Submits a command for execution. When the queue is full, the interaction is answered right away.
+     *
+     * @param event the slash command interaction event the task handles
+     * @param task the task executing the command
+     * @return true if the task was queued, false if it was rejected
+     */
+    public boolean submit(SlashCommandInteractionEvent event, Runnable task) {
+        return submit(event, () -> {
+            task.run();
+
+            return Mono.empty();
+        }, null, null);
+    }
+
+    /**
+     * Submits a command for execution, that has to complete within the given deadline. The task returns the
+     * completion of the command, which may still be pending when the task returns: the executing thread is released
+     * right away, rather than waiting for the API. When the deadline passes before the command completed, the
+     * deadline handler is invoked. The instant the deadline passes is available to the completion through its context,
+     * under the {@link ApiCallGuard#DEADLINE_CONTEXT_KEY}. When the queue is full, the interaction is answered right away.
+     *
+     * @param event the slash command interaction event the task handles
+     * @param task the task executing the command, returning its completion
+     * @param deadline the time the command has to complete in, null for no deadline
+     * @param deadlineHandler the handler invoked when the deadline passes, returning true if it answered the interaction
+     * @return true if the task was queued, false if it was rejected
+     */
+    public boolean submit(SlashCommandInteractionEvent event, Supplier<? extends Mono<?>> task, Duration deadline,
+            BooleanSupplier deadlineHandler) {
+        ScheduledFuture<?> deadlineFuture = deadline == null ? null
+                : deadlineScheduler.schedule(() -> onDeadline(event, deadlineHandler), deadline.toMillis(), TimeUnit.MILLISECONDS);
+        Context context = deadline == null ? Context.empty() : Context.of(ApiCallGuard.DEADLINE_CONTEXT_KEY, Instant.now().plus(deadline));
+        try {
+            executor.execute(() -> {
+                Mono<?> completion;
+                try {
+                    completion = task.get();
+                } catch (Exception e) {
+                    cancel(deadlineFuture);
+                    log.error("Unable to execute command: {}.", event.getCommandString(), e);
+
+                    return;
+                }
+
+                completion
+                        .doFinally(signalType -> cancel(deadlineFuture))
+                        .contextWrite(context)
+                        .subscribe(null, e -> log.error("Unable to execute command: {}.", event.getCommandString(), e));
+            });
+
+            return true;
+        } catch (RejectedExecutionException e) {
+            cancel(deadlineFuture);
+            rejectedCounter.increment();
+            log.warn("Rejected command, execution queue is full: {}.", event.getCommandString());
+            event.reply(BUSY_MESSAGE).setEphemeral(true).queue();
+
+            return false;
+        }
+    }
+
+    private void onDeadline(SlashCommandInteractionEvent event, BooleanSupplier deadlineHandler) {
+        if (deadlineHandler.getAsBoolean()) {
+            Counter.builder("bot.commands.deadline.exceeded")
+                    .description("Amount of deferred commands answered with a fallback message because they exceeded their deadline.")
+                    .tag("command", String.valueOf(event.getName()))
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("Command exceeded its deadline: {}.", event.getCommandString());
+        }
+    }
+
+    private static void cancel(ScheduledFuture<?> deadlineFuture) {
+        if (deadlineFuture != null) {
+            deadlineFuture.cancel(false);
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        deadlineScheduler.shutdownNow();
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ThreadFactory createThreadFactory(boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                // Resolved reflectively, so the bot still runs on runtimes without virtual threads (Java 17)
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderType.getMethod("name", String.class, long.class).invoke(builder, THREAD_NAME_PREFIX, 0L);
+
+                return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.info("Virtual threads are not available, executing commands on platform threads.");
+            }
+        }
+
+        return new CustomizableThreadFactory(THREAD_NAME_PREFIX);
+    }
+}
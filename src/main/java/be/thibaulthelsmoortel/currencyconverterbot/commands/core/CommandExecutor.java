@@ -19,22 +19,25 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.commands.core;
 
+import be.thibaulthelsmoortel.currencyconverterbot.config.CommandExecutionEnvironment;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
-import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import picocli.CommandLine;
-import picocli.CommandLine.Command;
-import picocli.CommandLine.Help;
-import picocli.CommandLine.Help.Ansi;
+import picocli.CommandLine.ParameterException;
+import reactor.core.publisher.Mono;
 
 /**
  * Class responsible for command execution.
@@ -45,77 +48,174 @@ import picocli.CommandLine.Help.Ansi;
 @Slf4j
 public class CommandExecutor {
 
-    private final List<BotCommand<?>> botCommands;
-    private final MessageChannelOutputStream messageChannelOutputStream;
-    private final PrintWriter printWriter;
+    static final String DEADLINE_MESSAGE = "The request is taking longer than expected. Please try again in a moment. If the issue persists, please make sure to report the issue via the 'issue' command.";
+
+    private final Map<String, CommandDescriptor> routes;
+    private final CommandExecutionEngine commandExecutionEngine;
+    private final CommandExecutionEnvironment commandExecutionEnvironment;
 
     @Autowired
-    public CommandExecutor(List<BotCommand<?>> botCommands, MessageChannelOutputStream messageChannelOutputStream) {
-        this.botCommands = botCommands;
-        this.messageChannelOutputStream = messageChannelOutputStream;
-        printWriter = new PrintWriter(messageChannelOutputStream);
+    public CommandExecutor(List<BotCommand<?>> botCommands, BeanFactory beanFactory,
+            CommandExecutionEngine commandExecutionEngine, CommandExecutionEnvironment commandExecutionEnvironment) {
+        this.routes = buildRoutes(botCommands, beanFactory, commandExecutionEnvironment.getMaxConcurrency());
+        this.commandExecutionEngine = commandExecutionEngine;
+        this.commandExecutionEnvironment = commandExecutionEnvironment;
+    }
+
+    private static Map<String, CommandDescriptor> buildRoutes(List<BotCommand<?>> botCommands, BeanFactory beanFactory,
+            int maxIdleCommandLines) {
+        Map<String, CommandDescriptor> routes = new HashMap<>();
+        botCommands.forEach(botCommand -> {
+            // Commands are prototype scoped, every invocation gets its own instance and thus its own state
+            @SuppressWarnings({"java:S3740", "rawtypes"})
+            Class<? extends BotCommand> commandType = botCommand.getClass();
+            var descriptor = CommandDescriptor.of(botCommand, () -> beanFactory.getBean(commandType), maxIdleCommandLines);
+            if (routes.putIfAbsent(descriptor.name(), descriptor) != null) {
+                throw new IllegalStateException("Duplicate command name: " + descriptor.name());
+            }
+        });
+
+        return Map.copyOf(routes);
     }
 
     /**
-     * Tries to execute a command.
+     * Tries to execute a command. Recognised commands are handed to the {@link CommandExecutionEngine}, so the calling
+     * (event) thread never waits for the command to complete. Deferred commands are acknowledged right away and get
+     * answered with a fallback message when they exceed their deadline, or with their error message when they fail or
+     * complete without answering. Their executing thread does not wait for the
+     * API either, the reply is sent once the API responded.
      *
      * @param event the raised JDA event
      * @param commandMessage the command message (stripped from its prefix)
-     * @return true if the command was executed, false if otherwise
+     * @return true if the command was submitted for execution, false if otherwise
      */
     public boolean tryExecute(SlashCommandInteractionEvent event, String commandMessage) {
-        var commandRecognised = new AtomicBoolean(false);
-
-        if (StringUtils.isNotBlank(commandMessage)) {
-            botCommands.forEach(command -> {
-                var commandType = command.getClass().getAnnotation(Command.class);
-                String commandName = commandType.name();
-
-                if (commandMessage.split(" ")[0].equals(commandName)) {
-                    commandRecognised.set(true);
-                    command.setEvent(event);
-                    String args = commandMessage.substring(commandMessage.indexOf(commandType.name()) + commandType.name().length()).trim();
-
-                    messageChannelOutputStream.setMessageChannel(event.getChannel());
-
-                    var commandLine = new CommandLine(command);
-                    commandLine.setColorScheme(Help.defaultColorScheme(Ansi.OFF));
-                    commandLine.setOut(printWriter);
-                    commandLine.setErr(printWriter);
-
-                    if (StringUtils.isNotBlank(args)) {
-                        List<String> targetArglist = stripOptionsFromArgs(command, args);
-                        commandLine.execute(targetArglist.toArray(new String[0]));
-                    } else {
-                        commandLine.execute();
-                    }
-                }
-            });
+        if (StringUtils.isBlank(commandMessage)) {
+            return false;
+        }
+
+        int nameEnd = commandMessage.indexOf(' ');
+        String commandName = nameEnd == -1 ? commandMessage : commandMessage.substring(0, nameEnd);
+        CommandDescriptor descriptor = routes.get(commandName);
+
+        if (descriptor == null) {
+            log.debug("Command not recognized: {}.", commandMessage);
+            event.reply("Command not recognized... Issue the 'help' command to get an overview of available commands.").queue();
 
-            if (commandRecognised.get()) {
+            return false;
+        }
+
+        String args = nameEnd == -1 ? "" : commandMessage.substring(nameEnd + 1).trim();
+        CommandLine commandLine = descriptor.acquireCommandLine();
+        BotCommand<?> command = commandLine.getCommand();
+        command.setEvent(event);
+        Supplier<Mono<?>> task = () -> {
+            try {
+                Mono<?> reply = execute(descriptor, commandLine, event, args);
                 log.debug("Executed command: {}.", commandMessage);
+
+                return reply;
+            } finally {
+                // The pending reply no longer depends on the command's state
+                descriptor.releaseCommandLine(commandLine);
+            }
+        };
+
+        boolean submitted;
+        if (command.isDeferred()) {
+            DeferredReply deferredReply = command.getDeferredReply();
+            // Captured, as the command is released once it returned
+            String errorMessage = command.getErrorMessage();
+            submitted = commandExecutionEngine.submit(event, () -> {
+                try {
+                    // Answers the user when the command failed or did not reply, once no other reply was sent
+                    return task.get().doFinally(signalType -> deferredReply.complete(errorMessage));
+                } catch (RuntimeException e) {
+                    deferredReply.complete(errorMessage);
+                    throw e;
+                }
+            }, commandExecutionEnvironment.getDeadline(commandName), () -> deferredReply.expire(DEADLINE_MESSAGE));
+            if (submitted) {
+                event.deferReply().queue();
+            }
+        } else {
+            submitted = commandExecutionEngine.submit(event, task, null, null);
+        }
+
+        if (!submitted) {
+            descriptor.releaseCommandLine(commandLine);
+        }
+
+        return submitted;
+    }
+
+    /**
+     * Executes a command, returning its pending reply. Commands waiting for the API return the reply as a mono, which
+     * completes the interaction once subscribed to. The executing thread does not wait for it.
+     */
+    private static Mono<?> execute(CommandDescriptor descriptor, CommandLine commandLine, SlashCommandInteractionEvent event, String args) {
+        BotCommand<?> command = commandLine.getCommand();
+        var outputStream = new InteractionOutputStream(event, command.isDeferred() ? command.getDeferredReply() : null);
+
+        Object result;
+        // Closing the writer sends the buffered output of the invocation at once
+        try (var printWriter = new PrintWriter(outputStream, false, StandardCharsets.UTF_8)) {
+            commandLine.setOut(printWriter);
+            commandLine.setErr(printWriter);
+
+            if (command.bindOptions(event)) {
+                result = executeBound(commandLine);
+            } else if (StringUtils.isNotBlank(args)) {
+                List<String> targetArglist = stripOptionsFromArgs(descriptor, args);
+                commandLine.execute(targetArglist.toArray(new String[0]));
+                result = commandLine.getExecutionResult();
             } else {
-                log.debug("Command not recognized: {}.", commandMessage);
-                event.reply("Command not recognized... Issue the 'help' command to get an overview of available commands.").queue();
+                commandLine.execute();
+                result = commandLine.getExecutionResult();
             }
         }
 
-        return commandRecognised.get();
+        return result instanceof Mono<?> reply ? reply : Mono.empty();
+    }
+
+    /**
+     * Executes a command of which the parameters were bound directly from the interaction options.
+     * Mirrors picocli's execution, without parsing any arguments.
+     */
+    private static Object executeBound(CommandLine commandLine) {
+        try {
+            return ((Callable<?>) commandLine.getCommand()).call();
+        } catch (ParameterException e) {
+            PrintWriter err = commandLine.getErr();
+            err.println(e.getMessage());
+            commandLine.usage(err);
+            err.flush();
+        } catch (Exception e) {
+            log.error("Unable to execute command: {}.", commandLine.getCommandName(), e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the routing table of all known commands, keyed by command name.
+     *
+     * @return the unmodifiable routing table
+     */
+    public Map<String, CommandDescriptor> getRoutes() {
+        return routes;
     }
 
     @NotNull
-    private static List<String> stripOptionsFromArgs(BotCommand<?> command, String args) {
-        List<String> originalArgList = new ArrayList<>(Arrays.asList(args.split(" ")));
+    private static List<String> stripOptionsFromArgs(CommandDescriptor descriptor, String args) {
+        List<String> optionNames = descriptor.optionNames();
         List<String> targetArglist = new ArrayList<>();
-        originalArgList.forEach(arg -> {
-                    List<OptionData> options = command.getSlashCommandData().getOptions();
-                    boolean argIsParamName = options.stream()
-                            .map(OptionData::getName)
-                            .anyMatch(arg::startsWith);
-                    if (!argIsParamName) {
-                        targetArglist.add(arg);
-                    }
-                });
+        for (String arg : args.split(" ")) {
+            boolean argIsParamName = optionNames.stream().anyMatch(arg::startsWith);
+            if (!argIsParamName) {
+                targetArglist.add(arg);
+            }
+        }
 
         return targetArglist;
     }
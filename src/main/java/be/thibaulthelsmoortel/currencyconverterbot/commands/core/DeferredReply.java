@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.commands.core;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+
+/**
+ * Reply to a single deferred slash command interaction, answered at most once: either by the command, or by a
+ * fallback when the command does not answer it in time, fails or completes without answering it.
+ *
+ * @author Thibault Helsmoortel
+ */
+final class DeferredReply {
+
+    private final SlashCommandInteractionEvent event;
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    DeferredReply(SlashCommandInteractionEvent event) {
+        this.event = event;
+    }
+
+    void complete(String message) {
+        if (completed.compareAndSet(false, true)) {
+            event.getHook().editOriginal(message).queue();
+        }
+    }
+
+    void complete(MessageEmbed embed) {
+        if (completed.compareAndSet(false, true)) {
+            event.getHook().editOriginalEmbeds(embed).queue();
+        }
+    }
+
+    /**
+     * Answers the reply with the given embeds, unless it was answered already.
+     *
+     * @param embeds the embeds to answer with
+     * @return true if the reply was answered with the embeds, false if otherwise
+     */
+    boolean complete(Collection<MessageEmbed> embeds) {
+        if (completed.compareAndSet(false, true)) {
+            event.getHook().editOriginalEmbeds(embeds).queue();
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Answers the reply with a fallback message, unless it was answered already.
+     *
+     * @param fallbackMessage the message to answer with
+     * @return true if the fallback message was sent, false if otherwise
+     */
+    boolean expire(String fallbackMessage) {
+        if (completed.compareAndSet(false, true)) {
+            event.getHook().editOriginal(fallbackMessage).queue();
+
+            return true;
+        }
+
+        return false;
+    }
+}
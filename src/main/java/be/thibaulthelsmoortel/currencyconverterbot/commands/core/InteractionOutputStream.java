@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.commands.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * OutputStream buffering the output of a single command invocation. The buffered output is sent once, when the stream
+ * is closed, as a reply to the interaction. Output exceeding Discord's embed limits is spread over multiple embeds and
+ * messages.
+ *
+ * @author Thibault Helsmoortel
+ */
+class InteractionOutputStream extends OutputStream {
+
+    private final SlashCommandInteractionEvent event;
+    private final DeferredReply deferredReply;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private boolean closed;
+
+    /**
+     * @param event the interaction to reply to
+     * @param deferredReply the deferred reply of the interaction, null if the reply is not deferred
+     */
+    InteractionOutputStream(SlashCommandInteractionEvent event, DeferredReply deferredReply) {
+        this.event = event;
+        this.deferredReply = deferredReply;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.write(b);
+    }
+
+    @SuppressWarnings("all") // hard null check
+    @Override
+    public void write(byte [] b, int off, int len) {
+        if (b == null) {
+            throw new IllegalArgumentException();
+        }
+
+        buffer.write(b, off, len);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        var content = buffer.toString(StandardCharsets.UTF_8);
+        if (StringUtils.isNotBlank(content)) {
+            List<List<MessageEmbed>> messages = toMessages(content);
+            sendFirst(messages.get(0));
+            messages.subList(1, messages.size())
+                    .forEach(embeds -> event.getHook().sendMessageEmbeds(embeds).queue());
+        }
+    }
+
+    private void sendFirst(List<MessageEmbed> embeds) {
+        if (deferredReply != null) {
+            if (!deferredReply.complete(embeds)) {
+                event.getHook().sendMessageEmbeds(embeds).queue();
+            }
+        } else if (event.isAcknowledged()) {
+            event.getHook().sendMessageEmbeds(embeds).queue();
+        } else {
+            event.replyEmbeds(embeds).queue();
+        }
+    }
+
+    /**
+     * Splits content into embed descriptions, grouped into messages respecting the maximum amount of embeds per
+     * message and the maximum total embed length.
+     */
+    static List<List<MessageEmbed>> toMessages(String content) {
+        List<List<MessageEmbed>> messages = new ArrayList<>();
+        List<MessageEmbed> embeds = new ArrayList<>();
+        int messageLength = 0;
+        for (String description : split(content)) {
+            if (embeds.size() == Message.MAX_EMBED_COUNT
+                    || messageLength + description.length() > MessageEmbed.EMBED_MAX_LENGTH_BOT) {
+                messages.add(embeds);
+                embeds = new ArrayList<>();
+                messageLength = 0;
+            }
+            var embedBuilder = new EmbedBuilder();
+            embedBuilder.getDescriptionBuilder().append(description);
+            embeds.add(embedBuilder.build());
+            messageLength += description.length();
+        }
+        messages.add(embeds);
+
+        return messages;
+    }
+
+    /**
+     * Splits content into parts fitting an embed description, preferably at line breaks.
+     */
+    private static List<String> split(String content) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        while (content.length() - start > MessageEmbed.DESCRIPTION_MAX_LENGTH) {
+            int end = start + MessageEmbed.DESCRIPTION_MAX_LENGTH;
+            int lineBreak = content.lastIndexOf('\n', end - 1);
+            if (lineBreak > start) {
+                end = lineBreak + 1;
+            } else if (Character.isHighSurrogate(content.charAt(end - 1))) {
+                end--;
+            }
+            addPart(parts, content.substring(start, end));
+            start = end;
+        }
+        addPart(parts, content.substring(start));
+
+        return parts;
+    }
+
+    private static void addPart(List<String> parts, String part) {
+        if (StringUtils.isNotBlank(part)) {
+            parts.add(part);
+        }
+    }
+}
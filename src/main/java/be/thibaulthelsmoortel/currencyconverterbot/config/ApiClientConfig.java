@@ -19,6 +19,7 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.config;
 
+import be.thibaulthelsmoortel.currencyconverterbot.security.AuthorizationExchangeFilterFunction;
 import be.thibaulthelsmoortel.currencyconverterbot.security.service.AuthorizationService;
 import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
@@ -27,13 +28,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.SecurityFilterChain;
-import org.springframework.web.reactive.function.client.ClientRequest;
-import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
 @Configuration
 @EnableWebSecurity
@@ -46,13 +45,11 @@ public class ApiClientConfig {
     private final AuthorizationService authorizationService;
 
     @Bean
-    public WebClient apiClient() {
+    public WebClient apiClient(ClientHttpConnector apiClientHttpConnector) {
         return WebClient.builder()
+                .clientConnector(apiClientHttpConnector)
                 .defaultHeaders(apiHeaders())
-                .filter(ExchangeFilterFunction.ofRequestProcessor(
-                        clientRequest -> Mono.just(ClientRequest.from(clientRequest)
-                                .header(HttpHeaders.AUTHORIZATION, "Bearer " + authorizationService.authorize())
-                                .build())))
+                .filter(new AuthorizationExchangeFilterFunction(authorizationService))
                 .baseUrl(apiBaseUrl)
                 .build();
     }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the HTTP connections to the API, shared by all API clients.
+ *
+ * @author Thibault Helsmoortel
+ */
+@ConfigurationProperties(prefix = "api.connection")
+@Data
+public class ApiConnectionEnvironment {
+
+    private int maxConnections = 50;
+
+    private int pendingAcquireMaxCount = 500;
+
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+
+    private Duration evictionInterval = Duration.ofSeconds(30);
+
+    private boolean keepAlive = true;
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    private Duration responseTimeout = Duration.ofSeconds(5);
+
+    private boolean compress = false;
+
+    private boolean metrics = true;
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Config of the HTTP connector shared by all API clients, so they share a single, bounded connection pool.
+ *
+ * @author Thibault Helsmoortel
+ */
+@Configuration
+public class ApiConnectorConfig {
+
+    private static final String CONNECTION_PROVIDER_NAME = "api";
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider apiConnectionProvider(ApiConnectionEnvironment apiConnectionEnvironment) {
+        return ConnectionProvider.builder(CONNECTION_PROVIDER_NAME)
+                .maxConnections(apiConnectionEnvironment.getMaxConnections())
+                .pendingAcquireMaxCount(apiConnectionEnvironment.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(apiConnectionEnvironment.getPendingAcquireTimeout())
+                .maxIdleTime(apiConnectionEnvironment.getMaxIdleTime())
+                .maxLifeTime(apiConnectionEnvironment.getMaxLifeTime())
+                .evictInBackground(apiConnectionEnvironment.getEvictionInterval())
+                .metrics(apiConnectionEnvironment.isMetrics())
+                .build();
+    }
+
+    @Bean
+    public ClientHttpConnector apiClientHttpConnector(ConnectionProvider apiConnectionProvider,
+            ApiConnectionEnvironment apiConnectionEnvironment) {
+        HttpClient httpClient = HttpClient.create(apiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) apiConnectionEnvironment.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, apiConnectionEnvironment.isKeepAlive())
+                .keepAlive(apiConnectionEnvironment.isKeepAlive())
+                .responseTimeout(apiConnectionEnvironment.getResponseTimeout())
+                .compress(apiConnectionEnvironment.isCompress());
+
+        return new ReactorClientHttpConnector(httpClient);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Command execution properties.
+ *
+ * @author Thibault Helsmoortel
+ */
+@ConfigurationProperties(prefix = "bot.execution")
+@Data
+public class CommandExecutionEnvironment {
+
+    private int maxConcurrency = 16;
+
+    private int queueCapacity = 200;
+
+    private boolean virtualThreads = true;
+
+    private Duration deadline = Duration.ofSeconds(10);
+
+    private Map<String, Duration> deadlines = new HashMap<>();
+
+    /**
+     * Returns the deadline of a deferred command, falling back to the default deadline if none was configured for it.
+     *
+     * @param commandName the name of the command
+     * @return the deadline of the command
+     */
+    public Duration getDeadline(String commandName) {
+        return deadlines.getOrDefault(commandName, deadline);
+    }
+}
@@ -29,7 +29,11 @@ import org.springframework.context.annotation.PropertySource;
  * @author Thibault Helsmoortel
  */
 @Configuration
-@EnableConfigurationProperties({DiscordBotEnvironment.class})
+@EnableConfigurationProperties({DiscordBotEnvironment.class, CommandExecutionEnvironment.class, RateMatrixEnvironment.class,
+        RatesCacheEnvironment.class, ApiConnectionEnvironment.class, CircuitBreakerEnvironment.class,
+        RetryEnvironment.class, RateLimitEnvironment.class, RatesPrefetchEnvironment.class,
+        RatesSnapshotEnvironment.class, DegradedModeEnvironment.class,
+        SupportedCurrenciesEnvironment.class})
 @PropertySource("classpath:token.properties")
 public class PropertiesConfig {
 }
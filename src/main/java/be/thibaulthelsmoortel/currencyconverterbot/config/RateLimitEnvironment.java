@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.config;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.CallType;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the client side rate limits of every API endpoint, keeping the bot within the quota of the API.
+ *
+ * @author Thibault Helsmoortel
+ */
+@ConfigurationProperties(prefix = "api.rate-limit")
+@Data
+public class RateLimitEnvironment {
+
+    private boolean enabled = true;
+
+    private double permitsPerSecond = 10;
+
+    private int burst = 20;
+
+    private Duration maxWait = Duration.ofMillis(500);
+
+    private CallType prioritized = CallType.USER;
+
+    private int reservedPermits = 5;
+
+    private Map<String, Budget> endpoints = new HashMap<>();
+
+    /**
+     * Returns the budget of the given endpoint, falling back to the default budget.
+     *
+     * @param endpoint the path of the endpoint
+     * @return the budget of the endpoint
+     */
+    public Budget getBudget(String endpoint) {
+        Budget budget = endpoints.get(endpoint);
+        if (budget != null) {
+            return budget;
+        }
+
+        Budget defaultBudget = new Budget();
+        defaultBudget.setPermitsPerSecond(permitsPerSecond);
+        defaultBudget.setBurst(burst);
+
+        return defaultBudget;
+    }
+
+    @Data
+    public static class Budget {
+
+        private double permitsPerSecond;
+
+        private int burst;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the local rate matrix, used to derive rates without calling the API.
+ *
+ * @author Thibault Helsmoortel
+ */
+@ConfigurationProperties(prefix = "api.rate-matrix")
+@Data
+public class RateMatrixEnvironment {
+
+    private boolean enabled = true;
+
+    private String baseIsoCode = "EUR";
+
+    private Duration refreshInterval = Duration.ofMinutes(1);
+
+    private Duration maxAge = Duration.ofMinutes(5);
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the cache of rates, keyed by base currency.
+ *
+ * @author Thibault Helsmoortel
+ */
+@ConfigurationProperties(prefix = "api.rates-cache")
+@Data
+public class RatesCacheEnvironment {
+
+    private boolean enabled = true;
+
+    private Duration ttl = Duration.ofMinutes(1);
+
+    private Map<String, Duration> ttls = new HashMap<>();
+
+    private Duration maxAge = Duration.ofHours(1);
+
+    private int maximumSize = 256;
+
+    /**
+     * Returns the time to live of the rates of a base currency, falling back to the default time to live if none was
+     * configured for it.
+     *
+     * @param baseIsoCode the ISO code of the base currency
+     * @return the time to live of the rates
+     */
+    public Duration getTtl(String baseIsoCode) {
+        return ttls.getOrDefault(baseIsoCode, ttl);
+    }
+}
@@ -24,6 +24,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
 /**
@@ -38,8 +39,9 @@ public class UnauthenticatedApiClientConfig {
     private String apiBaseUrl;
 
     @Bean
-    public WebClient unauthenticatedApiClient() {
+    public WebClient unauthenticatedApiClient(ClientHttpConnector apiClientHttpConnector) {
         return WebClient.builder()
+                .clientConnector(apiClientHttpConnector)
                 .defaultHeaders(httpHeaders -> httpHeaders.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
                 .baseUrl(apiBaseUrl)
                 .build();
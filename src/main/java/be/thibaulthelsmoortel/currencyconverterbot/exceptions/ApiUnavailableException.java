@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.exceptions;
+
+import org.springframework.web.reactive.function.client.WebClientException;
+
+/**
+ * Exception raised when a call to the API is rejected without being sent, as the API endpoint is considered
+ * unavailable.
+ *
+ * @author Thibault Helsmoortel
+ */
+public class ApiUnavailableException extends WebClientException {
+
+    public ApiUnavailableException(String endpoint, String reason) {
+        super("API endpoint " + endpoint + " is unavailable: " + reason + ".");
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.security;
+
+import be.thibaulthelsmoortel.currencyconverterbot.security.service.AuthorizationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Authorizes API requests with the current access token, without blocking. When the API rejects the access token, the
+ * request is retried once with a new access token.
+ *
+ * @author Thibault Helsmoortel
+ */
+public class AuthorizationExchangeFilterFunction implements ExchangeFilterFunction {
+
+    private final AuthorizationService authorizationService;
+
+    public AuthorizationExchangeFilterFunction(AuthorizationService authorizationService) {
+        this.authorizationService = authorizationService;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return authorizationService.authorize()
+                .flatMap(accessToken -> next.exchange(authorized(request, accessToken))
+                        .flatMap(response -> {
+                            if (response.statusCode().value() != HttpStatus.UNAUTHORIZED.value()) {
+                                return Mono.just(response);
+                            }
+
+                            return response.releaseBody()
+                                    .then(authorizationService.reauthorize(accessToken))
+                                    .flatMap(newAccessToken -> next.exchange(authorized(request, newAccessToken)));
+                        }));
+    }
+
+    private static ClientRequest authorized(ClientRequest request, String accessToken) {
+        return ClientRequest.from(request)
+                .headers(headers -> headers.setBearerAuth(accessToken))
+                .build();
+    }
+}
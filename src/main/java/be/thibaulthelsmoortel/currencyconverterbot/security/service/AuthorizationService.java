@@ -19,12 +19,28 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.security.service;
 
+import reactor.core.publisher.Mono;
+
 /**
  * @author Thibault Helsmoortel
  */
-@FunctionalInterface
 public interface AuthorizationService {
 
-    String authorize();
+    /**
+     * Returns the access token to authorize API calls with, signing in when no valid access token is held. Concurrent
+     * callers share a single sign in.
+     *
+     * @return the access token
+     */
+    Mono<String> authorize();
+
+    /**
+     * Returns a new access token after the API rejected the given one. When the rejected access token was already
+     * replaced, its replacement is returned without signing in again. Concurrent callers share a single sign in.
+     *
+     * @param rejectedAccessToken the access token the API rejected
+     * @return the new access token
+     */
+    Mono<String> reauthorize(String rejectedAccessToken);
 
 }
@@ -22,18 +22,29 @@ package be.thibaulthelsmoortel.currencyconverterbot.security.service;
 import be.thibaulthelsmoortel.currencyconverterbot.security.service.payload.ApiAuthentication;
 import be.thibaulthelsmoortel.currencyconverterbot.security.service.payload.RefreshTokenBody;
 import be.thibaulthelsmoortel.currencyconverterbot.security.service.payload.SigninBody;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
+import org.springframework.boot.json.JsonParserFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
 
 /**
+ * Authorization service holding the access token until it expires. The expiry is read from the token's exp claim,
+ * falling back to the configured token lifetime. The access token is refreshed in the background before it expires.
+ * Signing in and refreshing never block, concurrent callers share a single renewal.
+ *
  * @author Thibault Helsmoortel
  */
 @Slf4j
@@ -41,89 +52,182 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class AuthorizationServiceBean implements AuthorizationService {
 
-    @Value("${api.base.url}")
-    private String apiBaseUrl;
-
     @Value("${api.auth.username}")
     private String username;
 
     @Value("${api.auth.password}")
     private String password;
 
+    @Value("${api.auth.token-lifetime:5m}")
+    private Duration tokenLifetime;
+
+    @Value("${api.auth.refresh-ahead:30s}")
+    private Duration refreshAhead;
+
     @Qualifier("unauthenticatedApiClient")
     private final WebClient unauthenticatedApiClient;
 
-    private ApiAuthentication apiAuthentication;
+    private Clock clock = Clock.systemUTC();
+    private volatile AccessToken accessToken;
+    private Mono<AccessToken> renewal;
+    private Disposable scheduledRefresh;
+
+    @Override
+    public Mono<String> authorize() {
+        AccessToken current = accessToken;
+        if (current != null && current.isValidAt(clock.instant())) {
+            return Mono.just(current.value());
+        }
+
+        return renew(current).map(AccessToken::value).defaultIfEmpty("");
+    }
 
     @Override
-    public String authorize() {
-        if (apiAuthentication == null || StringUtils.isBlank(apiAuthentication.getAccessToken())) {
-            // First time sign in
-            this.apiAuthentication = signIn();
-        } else {
-            try {
-                // Check if still signed in
-                testAccess();
-            } catch (Exception e) {
-                // Refresh access or sign back in if refreshToken expired
-                try {
-                    this.apiAuthentication = refreshToken(apiAuthentication.getRefreshToken());
-                } catch (Exception ex) {
-                    this.apiAuthentication = signIn();
-                }
-            }
+    public Mono<String> reauthorize(String rejectedAccessToken) {
+        AccessToken current = accessToken;
+        if (current != null && !current.value().equals(rejectedAccessToken)) {
+            return Mono.just(current.value());
+        }
+
+        return renew(current).map(AccessToken::value).defaultIfEmpty("");
+    }
+
+    /**
+     * Returns the renewal of the given stale access token, shared by all concurrent callers. Only deciding on the
+     * renewal is synchronized, the renewal itself does not block.
+     *
+     * @param staleAccessToken the access token to renew
+     * @return the renewed access token
+     */
+    private synchronized Mono<AccessToken> renew(AccessToken staleAccessToken) {
+        if (renewal != null) {
+            return renewal;
+        }
+        if (accessToken != staleAccessToken) {
+            // Renewed by another caller in the meantime
+            return Mono.justOrEmpty(accessToken);
+        }
+
+        renewal = requestAccessToken(staleAccessToken)
+                .doOnSuccess(this::completeRenewal)
+                .doOnError(e -> completeRenewal(staleAccessToken))
+                .cache();
+
+        return renewal;
+    }
+
+    private synchronized void completeRenewal(AccessToken renewedAccessToken) {
+        this.accessToken = renewedAccessToken;
+        this.renewal = null;
+        scheduleRefresh(renewedAccessToken);
+    }
+
+    private Mono<AccessToken> requestAccessToken(AccessToken staleAccessToken) {
+        Mono<ApiAuthentication> refreshed = staleAccessToken == null || StringUtils.isBlank(staleAccessToken.refreshToken())
+                ? Mono.empty()
+                : refreshToken(staleAccessToken.refreshToken())
+                        .onErrorResume(e -> {
+                            log.debug("Unable to refresh API authentication, signing back in.", e);
+
+                            return Mono.empty();
+                        });
+
+        return refreshed
+                .filter(apiAuthentication -> StringUtils.isNotBlank(apiAuthentication.getAccessToken()))
+                .switchIfEmpty(signIn())
+                .filter(apiAuthentication -> StringUtils.isNotBlank(apiAuthentication.getAccessToken()))
+                .map(apiAuthentication -> new AccessToken(apiAuthentication.getAccessToken(), apiAuthentication.getRefreshToken(),
+                        readExpiry(apiAuthentication.getAccessToken()).orElseGet(() -> clock.instant().plus(tokenLifetime))));
+    }
+
+    private void scheduleRefresh(AccessToken token) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.dispose();
+            scheduledRefresh = null;
+        }
+        if (token == null) {
+            return;
         }
 
-        return apiAuthentication == null ? "" : apiAuthentication.getAccessToken();
+        Duration delay = Duration.between(clock.instant(), token.expiresAt().minus(refreshAhead));
+        if (!delay.isNegative() && !delay.isZero()) {
+            scheduledRefresh = Mono.delay(delay)
+                    .flatMap(tick -> renew(token))
+                    .subscribe(null, e -> log.warn("Unable to renew API authentication ahead of its expiry: {}", e.getMessage()));
+        }
     }
 
-    private ApiAuthentication signIn() {
-        log.info("Signing into API.");
+    private Mono<ApiAuthentication> signIn() {
+        return Mono.defer(() -> {
+            log.info("Signing into API.");
+
+            SigninBody body = new SigninBody();
+            body.setUsername(username);
+            body.setPassword(password);
+
+            return unauthenticatedApiClient
+                    .post()
+                    .uri("/auth/signin")
+                    .bodyValue(body)
+                    .retrieve()
+                    .bodyToMono(ApiAuthentication.class);
+        });
+    }
 
-        SigninBody body = new SigninBody();
-        body.setUsername(username);
-        body.setPassword(password);
+    private Mono<ApiAuthentication> refreshToken(String refreshToken) {
+        return Mono.defer(() -> {
+            log.info("Refreshing API authentication.");
 
-        Mono<ApiAuthentication> apiAuthenticationMono = unauthenticatedApiClient
-                .post()
-                .uri("/auth/signin")
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(ApiAuthentication.class);
+            RefreshTokenBody body = new RefreshTokenBody();
+            body.setRefreshToken(refreshToken);
 
-        return apiAuthenticationMono.block();
+            return unauthenticatedApiClient
+                    .post()
+                    .uri("/auth/refreshtoken")
+                    .bodyValue(body)
+                    .retrieve()
+                    .bodyToMono(ApiAuthentication.class);
+        });
     }
 
-    private ApiAuthentication refreshToken(String refreshToken) {
-        log.info("Refreshing API authentication.");
+    /**
+     * Reads the expiry of a JWT access token from its exp claim.
+     *
+     * @param accessToken the access token
+     * @return the expiry, empty when the access token is no JWT or has no exp claim
+     */
+    static Optional<Instant> readExpiry(String accessToken) {
+        String[] parts = accessToken.split("\\.");
+        if (parts.length != 3) {
+            return Optional.empty();
+        }
+
+        try {
+            String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+            Map<String, Object> claims = JsonParserFactory.getJsonParser().parseMap(payload);
+
+            return claims.get("exp") instanceof Number exp ? Optional.of(Instant.ofEpochSecond(exp.longValue())) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
 
-        RefreshTokenBody body = new RefreshTokenBody();
-        body.setRefreshToken(refreshToken);
-        Mono<ApiAuthentication> apiAuthenticationMono = unauthenticatedApiClient
-                .post()
-                .uri("/auth/refreshtoken")
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(ApiAuthentication.class);
+    // Visible for testing
+    synchronized void signOut() {
+        scheduleRefresh(null);
+        this.accessToken = null;
+        this.renewal = null;
+    }
 
-        return apiAuthenticationMono.block();
+    // Visible for testing
+    void setClock(Clock clock) {
+        this.clock = clock;
     }
 
-    private void testAccess() {
-        WebClient client = WebClient.builder()
-                .defaultHeaders(
-                        httpHeaders -> httpHeaders.add(HttpHeaders.AUTHORIZATION, "Bearer " + apiAuthentication.getAccessToken()))
-                .baseUrl(apiBaseUrl)
-                .build();
-
-        client.get()
-                .uri("/roles/client")
-                .retrieve()
-                .onStatus(HttpStatus.UNAUTHORIZED::equals,
-                        response -> response.bodyToMono(String.class).map(Exception::new))
-                .onStatus(HttpStatus.FORBIDDEN::equals,
-                        response -> response.bodyToMono(String.class).map(Exception::new))
-                .bodyToMono(String.class)
-                .block();
+    private record AccessToken(String value, String refreshToken, Instant expiresAt) {
+
+        private boolean isValidAt(Instant now) {
+            return expiresAt.isAfter(now);
+        }
     }
 }
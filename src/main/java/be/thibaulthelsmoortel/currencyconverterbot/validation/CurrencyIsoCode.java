@@ -36,7 +36,7 @@ import java.lang.annotation.Target;
 @Size(min = 3, max = 3)
 @Target({ ElementType.METHOD, ElementType.FIELD, ElementType.ANNOTATION_TYPE })
 @Retention(RetentionPolicy.RUNTIME)
-@Constraint(validatedBy = { })
+@Constraint(validatedBy = { CurrencyIsoCodeValidator.class })
 @Documented
 public @interface CurrencyIsoCode {
 
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.validation;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.CurrencyCode;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+/**
+ * Rejects ISO codes of currencies which are not supported, before any request is made to the API, suggesting the
+ * closest supported currency. The format of ISO codes is left to the other constraints of {@link CurrencyIsoCode}.
+ *
+ * @author Thibault Helsmoortel
+ */
+public class CurrencyIsoCodeValidator implements ConstraintValidator<CurrencyIsoCode, String> {
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        CurrencyCode currencyCode = CurrencyCode.parse(value);
+        SupportedCurrencies supportedCurrencies = SupportedCurrencies.getCurrent();
+        if (currencyCode == null || supportedCurrencies.contains(currencyCode)) {
+            return true;
+        }
+
+        CurrencyCode suggestion = supportedCurrencies.suggest(currencyCode);
+        if (suggestion != null) {
+            context.disableDefaultConstraintViolation();
+            context.buildConstraintViolationWithTemplate(
+                            context.getDefaultConstraintMessageTemplate() + " Did you mean " + suggestion + "?")
+                    .addConstraintViolation();
+        }
+
+        return false;
+    }
+}
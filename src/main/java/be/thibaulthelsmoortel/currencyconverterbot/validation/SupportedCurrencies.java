@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.validation;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.CurrencyCode;
+import java.util.Collection;
+
+/**
+ * Immutable set of supported currencies, held as a bitset indexed by packed {@link CurrencyCode}, so checking a code
+ * is a single bit test. The current set is shared by all validators. Until it is loaded from the API, the ISO 4217
+ * currencies known to the JDK are supported.
+ *
+ * @author Thibault Helsmoortel
+ */
+public final class SupportedCurrencies {
+
+    private static final int MAX_SUGGESTION_DISTANCE = 2;
+
+    private static final SupportedCurrencies KNOWN = of(CurrencyCode.getKnownCodes());
+
+    private static volatile SupportedCurrencies current = KNOWN;
+
+    private final long[] bits;
+    private final int size;
+
+    private SupportedCurrencies(long[] bits, int size) {
+        this.bits = bits;
+        this.size = size;
+    }
+
+    /**
+     * Creates a set of supported currencies.
+     *
+     * @param currencyCodes the supported currency codes
+     * @return the set of supported currencies
+     */
+    public static SupportedCurrencies of(Collection<CurrencyCode> currencyCodes) {
+        long[] bits = new long[CurrencyCode.PACKED_CODES / Long.SIZE];
+        for (CurrencyCode currencyCode : currencyCodes) {
+            bits[currencyCode.getPacked() >>> 6] |= 1L << currencyCode.getPacked();
+        }
+
+        int size = 0;
+        for (long word : bits) {
+            size += Long.bitCount(word);
+        }
+
+        return new SupportedCurrencies(bits, size);
+    }
+
+    public static SupportedCurrencies getCurrent() {
+        return current;
+    }
+
+    public static void setCurrent(SupportedCurrencies supportedCurrencies) {
+        current = supportedCurrencies;
+    }
+
+    /**
+     * Returns the ISO 4217 currencies known to the JDK, supported until the supported currencies are loaded.
+     *
+     * @return the known currencies
+     */
+    public static SupportedCurrencies getKnown() {
+        return KNOWN;
+    }
+
+    public boolean contains(CurrencyCode currencyCode) {
+        return currencyCode != null && contains(currencyCode.getPacked());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Suggests the supported currency closest to a currency code. Codes differing in fewer letters, or in two
+     * swapped letters, are closer. Ties go to the code sharing the longest prefix, as it likely shares the country.
+     *
+     * @param currencyCode the currency code
+     * @return the closest supported currency code, null when none is close enough
+     */
+    public CurrencyCode suggest(CurrencyCode currencyCode) {
+        int packed = currencyCode.getPacked();
+        int bestPacked = -1;
+        int bestScore = Integer.MAX_VALUE;
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                int candidate = word << 6 | Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                int distance = distance(packed, candidate);
+                if (distance > 0 && distance <= MAX_SUGGESTION_DISTANCE) {
+                    int score = distance * 4 - commonPrefix(packed, candidate);
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestPacked = candidate;
+                    }
+                }
+            }
+        }
+
+        return bestPacked < 0 ? null : CurrencyCode.fromPacked(bestPacked);
+    }
+
+    private boolean contains(int packed) {
+        return (bits[packed >>> 6] & 1L << packed) != 0;
+    }
+
+    private static int distance(int packed, int candidate) {
+        int distance = 0;
+        for (int i = 0; i < CurrencyCode.LENGTH; i++) {
+            if (CurrencyCode.letterAt(packed, i) != CurrencyCode.letterAt(candidate, i)) {
+                distance++;
+            }
+        }
+        if (distance == 2 && (isSwapped(packed, candidate, 0) || isSwapped(packed, candidate, 1))) {
+            return 1;
+        }
+
+        return distance;
+    }
+
+    private static boolean isSwapped(int packed, int candidate, int index) {
+        return CurrencyCode.letterAt(packed, index) == CurrencyCode.letterAt(candidate, index + 1)
+                && CurrencyCode.letterAt(packed, index + 1) == CurrencyCode.letterAt(candidate, index);
+    }
+
+    private static int commonPrefix(int packed, int candidate) {
+        int prefix = 0;
+        while (prefix < CurrencyCode.LENGTH && CurrencyCode.letterAt(packed, prefix) == CurrencyCode.letterAt(candidate, prefix)) {
+            prefix++;
+        }
+
+        return prefix;
+    }
+}
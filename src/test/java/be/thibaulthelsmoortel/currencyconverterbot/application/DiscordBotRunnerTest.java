@@ -33,7 +33,6 @@ import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
 import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
-import net.dv8tion.jda.api.requests.RestAction;
 import org.discordbots.api.client.DiscordBotListAPI;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -82,12 +81,9 @@ class DiscordBotRunnerTest extends BaseTest {
         Mockito.when(slashCommandInteraction.getUser()).thenReturn(user);
     }
 
-    @SuppressWarnings("unchecked")
     @DisplayName("Should handle message received.")
     @Test
     void shouldHandleMessageReceived() {
-        Mockito.when(slashCommandInteractionEvent.getChannel()).thenReturn(messageChannelUnion);
-        Mockito.when(messageChannelUnion.sendTyping()).thenReturn(Mockito.mock(RestAction.class));
         String prefix = "/";
         String message = "myNewMessage";
         Mockito.when(slashCommandInteractionEvent.getCommandString()).thenReturn(prefix + message);
@@ -97,7 +93,6 @@ class DiscordBotRunnerTest extends BaseTest {
 
         discordBotRunner.onSlashCommandInteraction(slashCommandInteractionEvent);
 
-        Mockito.verify(messageChannelUnion).sendTyping();
         Mockito.verifyNoMoreInteractions(messageChannelUnion);
         Mockito.verify(commandExecutor).tryExecute(slashCommandInteractionEvent, message);
         Mockito.verifyNoMoreInteractions(commandExecutor);
@@ -115,7 +110,6 @@ class DiscordBotRunnerTest extends BaseTest {
         Mockito.verify(slashCommandInteractionEvent).getCommandString(); // 1 to check processing
     }
 
-    @SuppressWarnings("unchecked")
     @DisplayName("Should process bot messages.")
     @Test
     void shouldProcessBotMessages() {
@@ -125,12 +119,9 @@ class DiscordBotRunnerTest extends BaseTest {
         String message = "myNewMessage";
         Mockito.when(slashCommandInteractionEvent.getCommandString()).thenReturn(prefix + message);
         Mockito.when(discordBotEnvironment.getCommandPrefix()).thenReturn(prefix);
-        Mockito.when(slashCommandInteractionEvent.getChannel()).thenReturn(messageChannelUnion);
-        Mockito.when(messageChannelUnion.sendTyping()).thenReturn(Mockito.mock(RestAction.class));
 
         discordBotRunner.onSlashCommandInteraction(slashCommandInteractionEvent);
 
-        Mockito.verify(messageChannelUnion).sendTyping();
         Mockito.verifyNoMoreInteractions(messageChannelUnion);
         Mockito.verify(commandExecutor).tryExecute(slashCommandInteractionEvent, message);
         Mockito.verifyNoMoreInteractions(commandExecutor);
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.CircuitBreaker.State;
+import be.thibaulthelsmoortel.currencyconverterbot.config.CircuitBreakerEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RateLimitEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RateLimitEnvironment.Budget;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RetryEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.exceptions.ApiUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.publisher.Sinks.One;
+import reactor.util.context.Context;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class ApiCallGuardTest {
+
+    private static final String ENDPOINT = "/v1/rate";
+    private static final Instant NOW = Instant.parse("2023-03-01T12:00:00Z");
+
+    private MeterRegistry meterRegistry;
+    private CircuitBreakerEnvironment circuitBreakerEnvironment;
+    private RetryEnvironment retryEnvironment;
+    private RateLimitEnvironment rateLimitEnvironment;
+    private Clock clock;
+    private ApiCallGuard apiCallGuard;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreakerEnvironment = new CircuitBreakerEnvironment();
+        circuitBreakerEnvironment.setSlidingWindowSize(4);
+        circuitBreakerEnvironment.setMinimumNumberOfCalls(4);
+        circuitBreakerEnvironment.setFailureRateThreshold(50);
+        circuitBreakerEnvironment.setOpenDuration(Duration.ofSeconds(30));
+        circuitBreakerEnvironment.setPermittedCallsInHalfOpenState(2);
+        circuitBreakerEnvironment.setMaxConcurrentCalls(1);
+        retryEnvironment = new RetryEnvironment();
+        retryEnvironment.setEnabled(false);
+        retryEnvironment.setInitialBackoff(Duration.ofMillis(1));
+        retryEnvironment.setMaxBackoff(Duration.ofMillis(5));
+        rateLimitEnvironment = new RateLimitEnvironment();
+        rateLimitEnvironment.setBurst(2);
+        rateLimitEnvironment.setReservedPermits(1);
+        rateLimitEnvironment.setMaxWait(Duration.ZERO);
+        rateLimitEnvironment.setEnabled(false);
+        clock = Mockito.mock(Clock.class);
+        Mockito.when(clock.instant()).thenReturn(NOW);
+        apiCallGuard = new ApiCallGuard(circuitBreakerEnvironment, retryEnvironment, rateLimitEnvironment, meterRegistry);
+        apiCallGuard.setClock(clock);
+    }
+
+    @DisplayName("Should open circuit once the failure rate reached the threshold.")
+    @Test
+    void shouldOpenCircuit() {
+        AtomicInteger calls = new AtomicInteger();
+
+        callSuccessfully();
+        callSuccessfully();
+        callWithStatus(503);
+        Assertions.assertEquals(State.CLOSED, apiCallGuard.getCircuitStates().get(ENDPOINT),
+                "Circuit should be closed until the minimum number of calls.");
+        callWithStatus(503);
+
+        Assertions.assertEquals(State.OPEN, apiCallGuard.getCircuitStates().get(ENDPOINT), "Circuit should be open.");
+        Mono<String> rejected = apiCallGuard.guard(ENDPOINT, () -> Mono.fromCallable(() -> "call " + calls.incrementAndGet()));
+        Assertions.assertThrows(ApiUnavailableException.class, rejected::block, "Call should be rejected.");
+        Assertions.assertEquals(0, calls.get(), "Rejected call should not be sent.");
+        Assertions.assertEquals(1, meterRegistry.get("api.circuit.transitions").tag("endpoint", ENDPOINT)
+                .tag("from", "CLOSED").tag("to", "OPEN").counter().count(), "Transition should be counted.");
+        Assertions.assertEquals(1, meterRegistry.get("api.client.calls.rejected").tag("endpoint", ENDPOINT)
+                .tag("reason", "circuit open").counter().count(), "Rejected call should be counted.");
+        Assertions.assertEquals(1, meterRegistry.get("api.circuit.state").tag("endpoint", ENDPOINT)
+                .tag("state", "OPEN").gauge().value(), "Circuit state should be exposed.");
+    }
+
+    @DisplayName("Should not open circuit on client errors.")
+    @Test
+    void shouldNotOpenCircuitOnClientErrors() {
+        for (int i = 0; i < 4; i++) {
+            callWithStatus(404);
+        }
+
+        Assertions.assertEquals(State.CLOSED, apiCallGuard.getCircuitStates().get(ENDPOINT), "Circuit should be closed.");
+    }
+
+    @DisplayName("Should close circuit once the trial calls succeeded.")
+    @Test
+    void shouldCloseCircuitAfterTrialCalls() {
+        openCircuit();
+        Mockito.when(clock.instant()).thenReturn(NOW.plusSeconds(30));
+
+        callSuccessfully();
+        Assertions.assertEquals(State.HALF_OPEN, apiCallGuard.getCircuitStates().get(ENDPOINT),
+                "Circuit should be half open during the trial calls.");
+        callSuccessfully();
+
+        Assertions.assertEquals(State.CLOSED, apiCallGuard.getCircuitStates().get(ENDPOINT), "Circuit should be closed.");
+    }
+
+    @DisplayName("Should open circuit again when a trial call failed.")
+    @Test
+    void shouldReopenCircuitOnFailedTrialCall() {
+        openCircuit();
+        Mockito.when(clock.instant()).thenReturn(NOW.plusSeconds(30));
+
+        callWithStatus(503);
+
+        Assertions.assertEquals(State.OPEN, apiCallGuard.getCircuitStates().get(ENDPOINT), "Circuit should be open.");
+        Assertions.assertEquals(1, meterRegistry.get("api.circuit.transitions").tag("endpoint", ENDPOINT)
+                .tag("from", "HALF_OPEN").tag("to", "OPEN").counter().count(), "Transition should be counted.");
+    }
+
+    @DisplayName("Should reject calls once the bulkhead is full.")
+    @Test
+    void shouldRejectCallsOnceBulkheadFull() {
+        One<String> response = Sinks.one();
+        String[] result = new String[1];
+        apiCallGuard.guard(ENDPOINT, response::asMono).subscribe(value -> result[0] = value);
+
+        Mono<String> rejected = apiCallGuard.guard(ENDPOINT, () -> Mono.just("rejected"));
+        Assertions.assertThrows(ApiUnavailableException.class, rejected::block, "Call should be rejected.");
+        Assertions.assertEquals(1, meterRegistry.get("api.client.calls.rejected").tag("endpoint", ENDPOINT)
+                .tag("reason", "bulkhead full").counter().count(), "Rejected call should be counted.");
+
+        response.tryEmitValue("permitted");
+        Assertions.assertEquals("permitted", result[0], "Call in flight should complete.");
+        Assertions.assertEquals("permitted again", apiCallGuard.guard(ENDPOINT, () -> Mono.just("permitted again")).block(),
+                "Call should be permitted once the bulkhead has room.");
+    }
+
+    @DisplayName("Should not guard calls when disabled.")
+    @Test
+    void shouldNotGuardCallsWhenDisabled() {
+        circuitBreakerEnvironment.setEnabled(false);
+
+        for (int i = 0; i < 4; i++) {
+            callWithStatus(503);
+        }
+
+        Assertions.assertEquals("called", apiCallGuard.guard(ENDPOINT, () -> Mono.just("called")).block(),
+                "Call should be permitted.");
+        Assertions.assertEquals(State.CLOSED, apiCallGuard.getCircuitStates().get(ENDPOINT), "Circuit should be closed.");
+    }
+
+    @DisplayName("Should retry transient errors.")
+    @Test
+    void shouldRetryTransientErrors() {
+        retryEnvironment.setEnabled(true);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = apiCallGuard.guard(ENDPOINT, () -> calls.incrementAndGet() < 3
+                ? Mono.error(WebClientResponseException.create(503, "Error", null, null, null))
+                : Mono.just("1.0")).block();
+
+        Assertions.assertEquals("1.0", result, "Call should succeed once retried.");
+        Assertions.assertEquals(3, calls.get(), "Call should be attempted three times.");
+        Assertions.assertEquals(2, meterRegistry.get("api.client.calls.retried").tag("endpoint", ENDPOINT).counter().count(),
+                "Retries should be counted.");
+    }
+
+    @DisplayName("Should fail with the last error once the attempts are exhausted.")
+    @Test
+    void shouldFailWithLastErrorOnceAttemptsExhausted() {
+        retryEnvironment.setEnabled(true);
+        circuitBreakerEnvironment.setEnabled(false);
+        AtomicInteger calls = new AtomicInteger();
+
+        callWithStatus(502, calls);
+
+        Assertions.assertEquals(3, calls.get(), "Call should be attempted the maximum amount of times.");
+    }
+
+    @DisplayName("Should not retry client errors.")
+    @Test
+    void shouldNotRetryClientErrors() {
+        retryEnvironment.setEnabled(true);
+        AtomicInteger calls = new AtomicInteger();
+
+        callWithStatus(404, calls);
+
+        Assertions.assertEquals(1, calls.get(), "Call should be attempted once.");
+    }
+
+    @DisplayName("Should not retry when the command's deadline leaves no room.")
+    @Test
+    void shouldNotRetryPastDeadline() {
+        retryEnvironment.setEnabled(true);
+        AtomicInteger calls = new AtomicInteger();
+
+        Mono<String> call = apiCallGuard.guard(ENDPOINT, () -> {
+                    calls.incrementAndGet();
+
+                    return Mono.<String>error(WebClientResponseException.create(503, "Error", null, null, null));
+                })
+                .contextWrite(Context.of(ApiCallGuard.DEADLINE_CONTEXT_KEY, NOW.plusMillis(1)));
+
+        Assertions.assertThrows(WebClientResponseException.class, call::block, "Call should fail.");
+        Assertions.assertEquals(1, calls.get(), "Call should be attempted once.");
+    }
+
+    @DisplayName("Should hedge calls slower than the 95th percentile latency.")
+    @Test
+    void shouldHedgeSlowCalls() {
+        retryEnvironment.setHedgingEnabled(true);
+        retryEnvironment.setHedgingMinimumCalls(1);
+        circuitBreakerEnvironment.setMaxConcurrentCalls(2);
+        callSuccessfully();
+
+        One<String> slowResponse = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+        String result = apiCallGuard.guard(ENDPOINT, () -> calls.incrementAndGet() == 1 ? slowResponse.asMono() : Mono.just("hedged"))
+                .block(Duration.ofSeconds(5));
+
+        Assertions.assertEquals("hedged", result, "Hedged call should answer first.");
+        Assertions.assertEquals(2, calls.get(), "Call should be attempted twice.");
+        Assertions.assertEquals(1, meterRegistry.get("api.client.calls.hedged").tag("endpoint", ENDPOINT).counter().count(),
+                "Hedged call should be counted.");
+    }
+
+    @DisplayName("Should reject calls once the rate limit is reached.")
+    @Test
+    void shouldRejectCallsOnceRateLimitReached() {
+        rateLimitEnvironment.setEnabled(true);
+        AtomicInteger calls = new AtomicInteger();
+
+        callSuccessfully();
+        callSuccessfully();
+
+        Mono<String> rejected = apiCallGuard.guard(ENDPOINT, () -> Mono.fromCallable(() -> "call " + calls.incrementAndGet()));
+        Assertions.assertThrows(ApiUnavailableException.class, rejected::block, "Call should be rejected.");
+        Assertions.assertEquals(0, calls.get(), "Rejected call should not be sent.");
+        Assertions.assertEquals(1, meterRegistry.get("api.client.calls.rejected").tag("endpoint", ENDPOINT)
+                .tag("reason", "rate limited").counter().count(), "Rejected call should be counted.");
+
+        Mockito.when(clock.instant()).thenReturn(NOW.plusMillis(100));
+        callSuccessfully();
+    }
+
+    @DisplayName("Should delay calls within the maximum wait.")
+    @Test
+    void shouldDelayCallsWithinMaxWait() {
+        rateLimitEnvironment.setEnabled(true);
+        rateLimitEnvironment.setPermitsPerSecond(100);
+        rateLimitEnvironment.setMaxWait(Duration.ofMillis(50));
+
+        callSuccessfully();
+        callSuccessfully();
+        callSuccessfully();
+
+        Assertions.assertEquals(1, meterRegistry.get("api.client.calls.delayed").tag("endpoint", ENDPOINT)
+                .tag("type", CallType.USER.name()).counter().count(), "Delayed call should be counted.");
+    }
+
+    @DisplayName("Should reserve permits for prioritized calls.")
+    @Test
+    void shouldReservePermitsForPrioritizedCalls() {
+        rateLimitEnvironment.setEnabled(true);
+        rateLimitEnvironment.setPrioritized(CallType.USER);
+
+        Assertions.assertEquals("refreshed", refresh().block(), "Refresh should use an unreserved permit.");
+        Assertions.assertThrows(ApiUnavailableException.class, refresh()::block,
+                "Refresh should not use the reserved permit.");
+        callSuccessfully();
+    }
+
+    @DisplayName("Should reserve permits for refreshes when prioritized.")
+    @Test
+    void shouldReservePermitsForPrioritizedRefreshes() {
+        rateLimitEnvironment.setEnabled(true);
+        rateLimitEnvironment.setPrioritized(CallType.REFRESH);
+
+        callSuccessfully();
+        Mono<String> rejected = apiCallGuard.guard(ENDPOINT, () -> Mono.just("1.0"));
+        Assertions.assertThrows(ApiUnavailableException.class, rejected::block,
+                "User call should not use the reserved permit.");
+        Assertions.assertEquals("refreshed", refresh().block(), "Refresh should use the reserved permit.");
+    }
+
+    @DisplayName("Should limit endpoints to their own budget.")
+    @Test
+    void shouldLimitEndpointsToTheirOwnBudget() {
+        rateLimitEnvironment.setEnabled(true);
+        Budget budget = new Budget();
+        budget.setPermitsPerSecond(1);
+        budget.setBurst(1);
+        rateLimitEnvironment.getEndpoints().put(ENDPOINT, budget);
+
+        callSuccessfully();
+
+        Mono<String> rejected = apiCallGuard.guard(ENDPOINT, () -> Mono.just("1.0"));
+        Assertions.assertThrows(ApiUnavailableException.class, rejected::block, "Call should be rejected.");
+        Assertions.assertEquals("1.0", apiCallGuard.guard("/v1/rates", () -> Mono.just("1.0")).block(),
+                "Call to another endpoint should use the default budget.");
+    }
+
+    private Mono<String> refresh() {
+        return apiCallGuard.guard(ENDPOINT, () -> Mono.just("refreshed"))
+                .contextWrite(Context.of(ApiCallGuard.CALL_TYPE_CONTEXT_KEY, CallType.REFRESH));
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            callWithStatus(503);
+        }
+        Assertions.assertEquals(State.OPEN, apiCallGuard.getCircuitStates().get(ENDPOINT), "Circuit should be open.");
+    }
+
+    private void callSuccessfully() {
+        Assertions.assertEquals("1.0", apiCallGuard.guard(ENDPOINT, () -> Mono.just("1.0")).block(),
+                "Call should succeed.");
+    }
+
+    private void callWithStatus(int statusCode) {
+        callWithStatus(statusCode, new AtomicInteger());
+    }
+
+    private void callWithStatus(int statusCode, AtomicInteger calls) {
+        Mono<String> call = apiCallGuard.guard(ENDPOINT, () -> {
+            calls.incrementAndGet();
+
+            return Mono.error(WebClientResponseException.create(statusCode, "Error", null, null, null));
+        });
+        Assertions.assertThrows(WebClientResponseException.class, call::block, "Call should fail.");
+    }
+}
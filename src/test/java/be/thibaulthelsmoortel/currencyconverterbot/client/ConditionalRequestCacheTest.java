@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class ConditionalRequestCacheTest {
+
+    private static final String LAST_MODIFIED = "Wed, 01 Mar 2023 12:00:00 GMT";
+
+    private ConditionalRequestCache<String, String> conditionalRequestCache;
+    private List<HttpHeaders> requestHeaders;
+
+    @BeforeEach
+    void setUp() {
+        conditionalRequestCache = new ConditionalRequestCache<>("rate", 16, new SimpleMeterRegistry());
+        requestHeaders = new ArrayList<>();
+    }
+
+    @DisplayName("Should make request conditional on the last modification.")
+    @Test
+    void shouldMakeRequestConditionalOnLastModification() {
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED);
+
+        String first = fetch(ResponseEntity.ok().headers(responseHeaders).body("1.17"));
+        String second = fetch(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+
+        Assertions.assertEquals("1.17", first, "Response must be returned.");
+        Assertions.assertEquals("1.17", second, "Previous response must be reused.");
+        Assertions.assertNull(requestHeaders.get(0).getFirst(HttpHeaders.IF_MODIFIED_SINCE), "First request must not be conditional.");
+        Assertions.assertEquals(LAST_MODIFIED, requestHeaders.get(1).getFirst(HttpHeaders.IF_MODIFIED_SINCE),
+                "Second request must be conditional.");
+    }
+
+    @DisplayName("Should not make request conditional without validators.")
+    @Test
+    void shouldNotMakeRequestConditionalWithoutValidators() {
+        fetch(ResponseEntity.ok("1.17"));
+        String second = fetch(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+
+        Assertions.assertTrue(requestHeaders.get(1).isEmpty(), "Second request must not be conditional.");
+        Assertions.assertNull(second, "No previous response can be reused.");
+    }
+
+    private String fetch(ResponseEntity<String> responseEntity) {
+        return conditionalRequestCache.fetch("EUR-USD", validators -> {
+            HttpHeaders headers = new HttpHeaders();
+            validators.accept(headers);
+            requestHeaders.add(headers);
+
+            return Mono.just(responseEntity);
+        }).block();
+    }
+}
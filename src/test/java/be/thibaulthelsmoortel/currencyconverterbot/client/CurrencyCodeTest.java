@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import java.util.Currency;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class CurrencyCodeTest {
+
+    @DisplayName("Should parse raw text.")
+    @ParameterizedTest
+    @ValueSource(strings = {"USD", "usd", "uSd", " usd ", "\tUSD\n"})
+    void shouldParseRawText(String text) {
+        CurrencyCode currencyCode = CurrencyCode.parse(text);
+
+        Assertions.assertSame(CurrencyCode.of("USD"), currencyCode, "Currency code should be interned.");
+        Assertions.assertSame("USD", currencyCode.getIsoCode(), "ISO code should be interned.");
+    }
+
+    @DisplayName("Should not parse invalid text.")
+    @ParameterizedTest
+    @ValueSource(strings = {"", "   ", "US", "USDT", "U5D", "US D", "ÜSD"})
+    void shouldNotParseInvalidText(String text) {
+        Assertions.assertNull(CurrencyCode.parse(text), "Invalid text should not be parsed.");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CurrencyCode.of(text), "Invalid ISO code should be rejected.");
+    }
+
+    @DisplayName("Should parse characters.")
+    @Test
+    void shouldParseCharacters() {
+        char[] chars = "\"eur\"".toCharArray();
+
+        Assertions.assertSame(CurrencyCode.of("EUR"), CurrencyCode.parse(chars, 1, 3), "Characters should be parsed.");
+        Assertions.assertNull(CurrencyCode.parse(chars, 0, 3), "Invalid characters should not be parsed.");
+        Assertions.assertNull(CurrencyCode.parse(chars, 1, 4), "Too many characters should not be parsed.");
+    }
+
+    @DisplayName("Should pack ISO codes into 15 bits.")
+    @Test
+    void shouldPackIsoCodes() {
+        Assertions.assertEquals(0, CurrencyCode.of("AAA").getPacked(), "First ISO code should be packed.");
+        Assertions.assertEquals(25 << 10 | 25 << 5 | 25, CurrencyCode.of("ZZZ").getPacked(), "Last ISO code should be packed.");
+        Assertions.assertSame(CurrencyCode.of("GBP"), CurrencyCode.fromPacked(CurrencyCode.of("GBP").getPacked()),
+                "Packed ISO code should be unpacked.");
+        Assertions.assertTrue(CurrencyCode.of("EUR").compareTo(CurrencyCode.of("USD")) < 0, "Packed ISO codes should sort alphabetically.");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CurrencyCode.fromPacked(26), "Invalid letters should be rejected.");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CurrencyCode.fromPacked(1 << 15), "Too many bits should be rejected.");
+    }
+
+    @DisplayName("Should return the letters of packed ISO codes.")
+    @Test
+    void shouldReturnLettersOfPackedIsoCodes() {
+        int packed = CurrencyCode.of("GBP").getPacked();
+
+        Assertions.assertEquals('G' - 'A', CurrencyCode.letterAt(packed, 0), "First letter should be returned.");
+        Assertions.assertEquals('B' - 'A', CurrencyCode.letterAt(packed, 1), "Second letter should be returned.");
+        Assertions.assertEquals('P' - 'A', CurrencyCode.letterAt(packed, 2), "Last letter should be returned.");
+    }
+
+    @DisplayName("Should register known currencies with dense ordinals.")
+    @Test
+    void shouldRegisterKnownCurrencies() {
+        Assertions.assertEquals(Currency.getAvailableCurrencies().size(), CurrencyCode.getKnownCount(),
+                "All currencies should be known.");
+        for (int ordinal = 0; ordinal < CurrencyCode.getKnownCount(); ordinal++) {
+            CurrencyCode currencyCode = CurrencyCode.fromOrdinal(ordinal);
+
+            Assertions.assertEquals(ordinal, currencyCode.getOrdinal(), "Ordinal should match its index.");
+            Assertions.assertTrue(currencyCode.isKnown(), "Currency code should be known.");
+            Assertions.assertSame(currencyCode, CurrencyCode.parse(currencyCode.getIsoCode()), "Known currency code should be interned.");
+        }
+    }
+
+    @DisplayName("Should intern unknown codes without ordinal.")
+    @Test
+    void shouldInternUnknownCodes() {
+        CurrencyCode currencyCode = CurrencyCode.of("QQQ");
+
+        Assertions.assertFalse(currencyCode.isKnown(), "Currency code should not be known.");
+        Assertions.assertEquals(-1, currencyCode.getOrdinal(), "Unknown currency code should have no ordinal.");
+        Assertions.assertSame(currencyCode, CurrencyCode.parse("qqq"), "Unknown currency code should be interned.");
+    }
+}
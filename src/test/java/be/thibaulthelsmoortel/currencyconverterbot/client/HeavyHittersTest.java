@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class HeavyHittersTest {
+
+    @DisplayName("Should return the most frequent keys.")
+    @Test
+    void shouldReturnMostFrequentKeys() {
+        HeavyHitters<String> heavyHitters = new HeavyHitters<>(4);
+        record(heavyHitters, "USD", 3);
+        record(heavyHitters, "EUR", 5);
+        record(heavyHitters, "GBP", 1);
+
+        Assertions.assertEquals(List.of("EUR", "USD"), heavyHitters.getTop(2), "Most frequent keys should be returned.");
+        Assertions.assertEquals(List.of("EUR", "USD", "GBP"), heavyHitters.getTop(10),
+                "Only recorded keys should be returned.");
+    }
+
+    @DisplayName("Should keep frequent keys once full.")
+    @Test
+    void shouldKeepFrequentKeysOnceFull() {
+        HeavyHitters<String> heavyHitters = new HeavyHitters<>(4);
+        record(heavyHitters, "EUR", 10);
+        record(heavyHitters, "USD", 8);
+
+        for (String isoCode : new String[] {"AUD", "BRL", "CAD", "CHF", "CNY", "DKK", "GBP", "HKD", "JPY", "NOK"}) {
+            record(heavyHitters, isoCode, 1);
+        }
+
+        Assertions.assertEquals(List.of("EUR", "USD"), heavyHitters.getTop(2),
+                "Frequent keys should not be evicted by infrequent ones.");
+    }
+
+    @DisplayName("Should forget keys of which the demand moved on.")
+    @Test
+    void shouldForgetKeysOfWhichDemandMovedOn() {
+        HeavyHitters<String> heavyHitters = new HeavyHitters<>(2);
+        record(heavyHitters, "EUR", 100);
+        record(heavyHitters, "USD", 200);
+
+        Assertions.assertEquals(List.of("USD", "EUR"), heavyHitters.getTop(2),
+                "Recent demand should outweigh decayed demand.");
+    }
+
+    @DisplayName("Should count keys recorded concurrently.")
+    @Test
+    void shouldCountKeysRecordedConcurrently() {
+        HeavyHitters<String> heavyHitters = new HeavyHitters<>(64);
+        IntStream.range(0, 3000).parallel()
+                .forEach(i -> heavyHitters.record(i % 3 == 0 ? "GBP" : i % 3 == 1 ? "EUR" : "USD"));
+        IntStream.range(0, 1000).parallel().forEach(i -> heavyHitters.record("EUR"));
+        IntStream.range(0, 500).parallel().forEach(i -> heavyHitters.record("USD"));
+
+        Assertions.assertEquals(List.of("EUR", "USD", "GBP"), heavyHitters.getTop(3),
+                "Concurrently recorded keys should be counted.");
+    }
+
+    private static void record(HeavyHitters<String> heavyHitters, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            heavyHitters.record(key);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class LastKnownTest {
+
+    private static final Instant NOW = Instant.parse("2023-03-01T12:00:00Z");
+
+    @DisplayName("Should describe the age of the value.")
+    @Test
+    void shouldDescribeAge() {
+        Assertions.assertEquals("less than a minute ago", describeAge(Duration.ofSeconds(59)), "Age should be described.");
+        Assertions.assertEquals("1 minute ago", describeAge(Duration.ofSeconds(119)), "Single minute should be singular.");
+        Assertions.assertEquals("2 minutes ago", describeAge(Duration.ofMinutes(2)), "Minutes should be plural.");
+        Assertions.assertEquals("119 minutes ago", describeAge(Duration.ofMinutes(119)), "Minutes should be described.");
+        Assertions.assertEquals("2 hours ago", describeAge(Duration.ofHours(2)), "Hours should be described.");
+        Assertions.assertEquals("3 days ago", describeAge(Duration.ofDays(3)), "Days should be described.");
+    }
+
+    private static String describeAge(Duration age) {
+        String description = new LastKnown<>("value", NOW.minus(age)).describeAge(NOW);
+
+        return description.substring("Based on rates of ".length(), description.indexOf(", as the API"));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.publisher.Sinks.One;
+import reactor.util.context.Context;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class RequestCoalescerTest {
+
+    private MeterRegistry meterRegistry;
+    private RequestCoalescer requestCoalescer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        requestCoalescer = new RequestCoalescer(meterRegistry);
+    }
+
+    @DisplayName("Should share in-flight call among identical requests.")
+    @Test
+    void shouldShareInFlightCall() {
+        One<String> response = Sinks.one();
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        Mono<String> first = requestCoalescer.coalesce("rate", "EUR", () -> response.asMono()
+                .doOnSubscribe(subscription -> subscriptions.incrementAndGet()));
+        Mono<String> second = requestCoalescer.coalesce("rate", "EUR", () -> Mono.error(new IllegalStateException()));
+
+        String[] results = new String[2];
+        first.subscribe(result -> results[0] = result);
+        second.subscribe(result -> results[1] = result);
+        response.tryEmitValue("1.0");
+
+        Assertions.assertArrayEquals(new String[] {"1.0", "1.0"}, results, "Both requests should receive the response.");
+        Assertions.assertEquals(1, subscriptions.get(), "Upstream should be called once.");
+        Assertions.assertEquals(1, meterRegistry.get("api.client.calls.coalesced").tag("request", "rate").counter().count(),
+                "Coalesced call should be counted.");
+        Assertions.assertEquals(0, requestCoalescer.getInFlightCount(), "Completed call should no longer be in flight.");
+    }
+
+    @DisplayName("Should not share in-flight call among requests of different call types.")
+    @Test
+    void shouldNotShareInFlightCallAmongCallTypes() {
+        One<String> response = Sinks.one();
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        Mono<String> refresh = requestCoalescer.coalesce("rate", "EUR", () -> response.asMono()
+                        .doOnSubscribe(subscription -> subscriptions.incrementAndGet()))
+                .contextWrite(Context.of(ApiCallGuard.CALL_TYPE_CONTEXT_KEY, CallType.REFRESH));
+        Mono<String> user = requestCoalescer.coalesce("rate", "EUR", () -> Mono.just("1.1")
+                .doOnSubscribe(subscription -> subscriptions.incrementAndGet()));
+
+        refresh.subscribe();
+        String result = user.block();
+        response.tryEmitValue("1.0");
+
+        Assertions.assertEquals("1.1", result, "User request should not wait on the refresh call.");
+        Assertions.assertEquals(2, subscriptions.get(), "Upstream should be called for both call types.");
+        Assertions.assertEquals(0, requestCoalescer.getInFlightCount(), "Completed calls should no longer be in flight.");
+    }
+
+    @DisplayName("Should call upstream again once the call completed.")
+    @Test
+    void shouldCallUpstreamAgainOnceCompleted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        requestCoalescer.coalesce("rate", "EUR", () -> Mono.fromCallable(calls::incrementAndGet)).block();
+        Integer result = requestCoalescer.coalesce("rate", "EUR", () -> Mono.fromCallable(calls::incrementAndGet)).block();
+
+        Assertions.assertEquals(2, result, "Upstream should be called again.");
+        Assertions.assertEquals(2, meterRegistry.get("api.client.calls").tag("request", "rate").counter().count(),
+                "Upstream calls should be counted.");
+    }
+
+    @DisplayName("Should propagate error and forget the failed call.")
+    @Test
+    void shouldPropagateError() {
+        Mono<String> failing = requestCoalescer.coalesce("rate", "EUR", () -> Mono.error(new IllegalStateException("Failed")));
+
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, failing::block);
+
+        Assertions.assertEquals("Failed", exception.getMessage(), "Error should be propagated.");
+        Assertions.assertEquals(0, requestCoalescer.getInFlightCount(), "Failed call should no longer be in flight.");
+        Assertions.assertEquals("1.0", requestCoalescer.coalesce("rate", "EUR", () -> Mono.just("1.0")).block(),
+                "Upstream should be called again.");
+    }
+
+    @DisplayName("Should normalize request values.")
+    @Test
+    void shouldNormalizeRequestValues() {
+        Assertions.assertEquals("EUR", RequestCoalescer.normalizeIsoCode(" eur "), "ISO code should be normalized.");
+        Assertions.assertEquals(new BigDecimal("1E+1"), RequestCoalescer.normalizeAmount(new BigDecimal("10.00")),
+                "Amount should be normalized.");
+    }
+}
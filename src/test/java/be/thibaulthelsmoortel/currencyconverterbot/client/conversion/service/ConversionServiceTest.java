@@ -22,12 +22,15 @@ package be.thibaulthelsmoortel.currencyconverterbot.client.conversion.service;
 import be.thibaulthelsmoortel.currencyconverterbot.client.ClientBaseTest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.matrix.service.RateMatrixService;
 import java.math.BigDecimal;
+import java.util.Optional;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.web.reactive.function.client.WebClient.RequestHeadersUriSpec;
 import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
 import reactor.core.publisher.Mono;
@@ -40,6 +43,9 @@ class ConversionServiceTest extends ClientBaseTest {
     @Autowired
     private ConversionService conversionService;
 
+    @MockBean
+    private RateMatrixService rateMatrixService;
+
     @DisplayName("Should get conversion.")
     @SuppressWarnings({"rawtypes", "unchecked"})
     @Test
@@ -69,7 +75,7 @@ class ConversionServiceTest extends ClientBaseTest {
         conversionRequest.setSourceIsoCode(sourceIsoCode);
         conversionRequest.setTargetIsoCode(targetIsoCode);
 
-        ConversionResponse response = conversionService.getConversion(conversionRequest);
+        ConversionResponse response = conversionService.getConversion(conversionRequest).block();
 
         assertPathEquals("/v1/convert");
 
@@ -81,4 +87,25 @@ class ConversionServiceTest extends ClientBaseTest {
         Assertions.assertEquals(conversionResponse, response, "Response must be correct.");
         Assertions.assertEquals(result, response.getResult(), "Result amount must be correct.");
     }
+
+    @DisplayName("Should get conversion from rate matrix.")
+    @Test
+    void shouldGetConversionFromRateMatrix() {
+        BigDecimal result = BigDecimal.valueOf(5);
+        Mockito.when(rateMatrixService.convert(BigDecimal.ONE, "EUR", "USD")).thenReturn(Optional.of(result));
+
+        ConversionRequest conversionRequest = new ConversionRequest();
+        conversionRequest.setSourceAmount(BigDecimal.ONE);
+        conversionRequest.setSourceIsoCode("EUR");
+        conversionRequest.setTargetIsoCode("USD");
+
+        ConversionResponse response = conversionService.getConversion(conversionRequest).block();
+
+        Assertions.assertNotNull(response, "Result must not be null.");
+        Assertions.assertEquals(conversionRequest.getSourceAmount(), response.getSourceAmount(), "Source amount must be correct.");
+        Assertions.assertEquals(conversionRequest.getSourceIsoCode(), response.getSourceIsoCode(), "Source must be correct.");
+        Assertions.assertEquals(conversionRequest.getTargetIsoCode(), response.getTargetIsoCode(), "Target must be correct.");
+        Assertions.assertEquals(result, response.getResult(), "Result amount must be correct.");
+        Mockito.verifyNoInteractions(getApiClient());
+    }
 }
\ No newline at end of file
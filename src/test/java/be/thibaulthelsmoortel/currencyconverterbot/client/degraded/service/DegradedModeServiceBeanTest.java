@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.health.payload.HealthResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.health.service.HealthService;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.service.RatesService;
+import be.thibaulthelsmoortel.currencyconverterbot.config.DegradedModeEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RateMatrixEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.exceptions.ApiUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class DegradedModeServiceBeanTest {
+
+    private static final Instant CAPTURED_AT = Instant.parse("2023-03-01T12:00:00Z");
+
+    private RatesService ratesService;
+    private HealthService healthService;
+    private MeterRegistry meterRegistry;
+    private DegradedModeServiceBean degradedModeService;
+
+    @BeforeEach
+    void setUp() {
+        ratesService = Mockito.mock(RatesService.class);
+        healthService = Mockito.mock(HealthService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        Mockito.when(ratesService.getLastKnownRates(ArgumentMatchers.anyString())).thenReturn(Optional.empty());
+        Mockito.when(ratesService.getLastKnownRates("EUR")).thenReturn(Optional.of(new LastKnown<>(
+                RatesResponse.of("EUR", Set.of(), Map.of("USD", new BigDecimal("1.06"), "GBP", new BigDecimal("0.88"))),
+                CAPTURED_AT)));
+
+        degradedModeService = new DegradedModeServiceBean(ratesService, healthService, new RateMatrixEnvironment(),
+                new DegradedModeEnvironment(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        degradedModeService.stop();
+    }
+
+    @DisplayName("Should switch to degraded mode while the API is unhealthy.")
+    @Test
+    void shouldSwitchToDegradedModeWhileUnhealthy() {
+        Assertions.assertFalse(degradedModeService.isDegraded(), "Should not be degraded initially.");
+
+        Mockito.when(healthService.getHealth()).thenReturn(Mono.error(new ApiUnavailableException("/actuator/health", "circuit open")));
+        degradedModeService.checkHealth().block();
+        Assertions.assertTrue(degradedModeService.isDegraded(), "Should be degraded when the health check fails.");
+        Assertions.assertEquals(1, meterRegistry.get("api.degraded").gauge().value(), "Degraded mode should be exposed.");
+
+        HealthResponse healthResponse = new HealthResponse();
+        healthResponse.setStatus("UP");
+        Mockito.when(healthService.getHealth()).thenReturn(Mono.just(healthResponse));
+        degradedModeService.checkHealth().block();
+        Assertions.assertFalse(degradedModeService.isDegraded(), "Should recover once the API is healthy.");
+    }
+
+    @DisplayName("Should check the API health periodically while running.")
+    @Test
+    void shouldCheckHealthPeriodicallyWhileRunning() {
+        DegradedModeEnvironment degradedModeEnvironment = new DegradedModeEnvironment();
+        degradedModeEnvironment.setHealthCheckInterval(Duration.ofMillis(10));
+        degradedModeService = new DegradedModeServiceBean(ratesService, healthService, new RateMatrixEnvironment(),
+                degradedModeEnvironment, new SimpleMeterRegistry());
+        Mockito.when(healthService.getHealth()).thenReturn(Mono.error(new ApiUnavailableException("/actuator/health", "circuit open")));
+
+        degradedModeService.start();
+
+        Assertions.assertTrue(degradedModeService.isRunning(), "Health checks should run once started.");
+        Mockito.verify(healthService, Mockito.timeout(5000).atLeast(2)).getHealth();
+        Assertions.assertTrue(degradedModeService.isDegraded(), "Should be degraded when the health checks fail.");
+    }
+
+    @DisplayName("Should not switch to degraded mode when disabled.")
+    @Test
+    void shouldNotSwitchToDegradedModeWhenDisabled() {
+        DegradedModeEnvironment degradedModeEnvironment = new DegradedModeEnvironment();
+        degradedModeEnvironment.setEnabled(false);
+        DegradedModeServiceBean disabledService = new DegradedModeServiceBean(ratesService, healthService,
+                new RateMatrixEnvironment(), degradedModeEnvironment, new SimpleMeterRegistry());
+        Mockito.when(healthService.getHealth()).thenReturn(Mono.error(new ApiUnavailableException("/actuator/health", "circuit open")));
+        disabledService.checkHealth().block();
+
+        Assertions.assertFalse(disabledService.isDegraded(), "Should not be degraded.");
+    }
+
+    @DisplayName("Should look up the last known rate of the base currency.")
+    @Test
+    void shouldLookUpLastKnownRate() {
+        Optional<LastKnown<BigDecimal>> rate = degradedModeService.getRate("EUR", "USD");
+
+        Assertions.assertEquals(Optional.of(new LastKnown<>(new BigDecimal("1.06"), CAPTURED_AT)), rate,
+                "Last known rate should be returned.");
+    }
+
+    @DisplayName("Should derive the last known rate from the rate matrix's base currency.")
+    @Test
+    void shouldDeriveLastKnownRate() {
+        Optional<LastKnown<BigDecimal>> rate = degradedModeService.getRate("GBP", "USD");
+
+        Assertions.assertTrue(rate.isPresent(), "Rate should be derived.");
+        Assertions.assertEquals(new BigDecimal("1.204545455"), rate.get().value(), "Rate should be derived.");
+        Assertions.assertEquals(CAPTURED_AT, rate.get().capturedAt(), "Capture time should be kept.");
+        Assertions.assertTrue(degradedModeService.getRate("GBP", "JPY").isEmpty(), "Unknown rate should be empty.");
+    }
+
+    @DisplayName("Should convert with the last known rate.")
+    @Test
+    void shouldConvertWithLastKnownRate() {
+        Optional<LastKnown<BigDecimal>> result = degradedModeService.convert(BigDecimal.TEN, "EUR", "USD");
+
+        Assertions.assertEquals(Optional.of(new LastKnown<>(new BigDecimal("10.60"), CAPTURED_AT)), result,
+                "Converted amount should be returned.");
+    }
+}
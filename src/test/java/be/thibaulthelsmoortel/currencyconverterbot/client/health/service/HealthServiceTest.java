@@ -59,7 +59,7 @@ class HealthServiceTest extends ClientBaseTest {
         Mockito.when(responseSpec.bodyToMono(HealthResponse.class))
                 .thenReturn(Mono.just(healthResponse));
 
-        HealthResponse result = healthService.getHealth();
+        HealthResponse result = healthService.getHealth().block();
 
         assertPathEquals("/actuator/health");
 
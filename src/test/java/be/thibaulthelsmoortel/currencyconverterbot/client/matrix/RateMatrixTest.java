@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.matrix;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.CurrencyCode;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class RateMatrixTest {
+
+    private static final Instant FETCHED_AT = Instant.parse("2023-03-01T10:00:00Z");
+
+    private final RateMatrix rateMatrix = RateMatrix.of(createRatesResponse(), FETCHED_AT);
+
+    @DisplayName("Should derive rates from the base currency.")
+    @Test
+    void shouldDeriveRatesFromBaseCurrency() {
+        Assertions.assertEquals(1.25d, rateMatrix.getRate("EUR", "USD"), 1e-12, "Base rate must be correct.");
+        Assertions.assertEquals(0.8d, rateMatrix.getRate("USD", "EUR"), 1e-12, "Inverse rate must be correct.");
+        Assertions.assertEquals(0.64d, rateMatrix.getRate("USD", "GBP"), 1e-12, "Cross rate must be correct.");
+        Assertions.assertEquals(1d, rateMatrix.getRate("GBP", "GBP"), 1e-12, "Identity rate must be correct.");
+        Assertions.assertEquals(3, rateMatrix.size(), "Invalid rates must be ignored.");
+    }
+
+    @DisplayName("Should not derive rates of unknown currencies.")
+    @Test
+    void shouldNotDeriveRatesOfUnknownCurrencies() {
+        Assertions.assertTrue(Double.isNaN(rateMatrix.getRate("EUR", "JPY")), "Rate of unknown target must not be derived.");
+        Assertions.assertTrue(Double.isNaN(rateMatrix.getRate("CHF", "EUR")), "Rate of unknown base must not be derived.");
+    }
+
+    @DisplayName("Should derive rates by currency code.")
+    @Test
+    void shouldDeriveRatesByCurrencyCode() {
+        Assertions.assertEquals(0.64d, rateMatrix.getRate(CurrencyCode.of("USD"), CurrencyCode.of("GBP")), 1e-12,
+                "Cross rate must be correct.");
+        Assertions.assertEquals(0.8d, rateMatrix.getRate("usd", "eur"), 1e-12, "ISO codes must be parsed.");
+        Assertions.assertTrue(Double.isNaN(rateMatrix.getRate(CurrencyCode.of("QQQ"), CurrencyCode.of("EUR"))),
+                "Rate of unknown currency code must not be derived.");
+    }
+
+    @DisplayName("Should determine age.")
+    @Test
+    void shouldDetermineAge() {
+        Assertions.assertFalse(rateMatrix.isOlderThan(Duration.ofMinutes(1), FETCHED_AT.plusSeconds(60)), "Matrix must not be too old.");
+        Assertions.assertTrue(rateMatrix.isOlderThan(Duration.ofMinutes(1), FETCHED_AT.plusSeconds(61)), "Matrix must be too old.");
+    }
+
+    @DisplayName("Should round derived rates.")
+    @Test
+    void shouldRoundDerivedRates() {
+        Assertions.assertEquals(new BigDecimal("0.3333333333"), RateMatrix.toBigDecimal(1d / 3), "Rate must be rounded.");
+    }
+
+    private static RatesResponse createRatesResponse() {
+        return RatesResponse.of("EUR", Set.of("ECB"), Map.of(
+                "USD", new BigDecimal("1.25"),
+                "GBP", new BigDecimal("0.8"),
+                "XXX", BigDecimal.ZERO
+        ));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.matrix.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.BaseTest;
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesRequest;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.service.RatesService;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+@TestPropertySource(properties = "api.rate-matrix.enabled=true")
+class RateMatrixServiceBeanTest extends BaseTest {
+
+    private static final Instant NOW = Instant.parse("2023-03-01T10:00:00Z");
+
+    @Autowired
+    private RateMatrixServiceBean rateMatrixService;
+
+    @MockBean
+    private RatesService ratesService;
+
+    @BeforeEach
+    void setUp() {
+        mockRates(NOW);
+
+        setNow(NOW);
+        rateMatrixService.refresh().block();
+    }
+
+    @DisplayName("Should derive rate locally.")
+    @Test
+    void shouldDeriveRateLocally() {
+        Optional<BigDecimal> rate = rateMatrixService.getRate("USD", "GBP");
+
+        Assertions.assertEquals(Optional.of(new BigDecimal("0.64")), rate, "Rate must be derived.");
+        Assertions.assertEquals(Set.of("ECB"), rateMatrixService.getProviders(), "Providers must be known.");
+        Mockito.verify(ratesService, Mockito.atLeastOnce()).getRatesWithFetchTime(ArgumentMatchers.argThat(request -> "EUR".equals(request.getBaseIsoCode())));
+    }
+
+    @DisplayName("Should convert locally.")
+    @Test
+    void shouldConvertLocally() {
+        Optional<BigDecimal> result = rateMatrixService.convert(BigDecimal.TEN, "EUR", "USD");
+
+        Assertions.assertTrue(result.isPresent(), "Conversion must be performed.");
+        Assertions.assertEquals(0, new BigDecimal("12.5").compareTo(result.get()), "Conversion must be correct.");
+    }
+
+    @DisplayName("Should not derive rate of unknown currency.")
+    @Test
+    void shouldNotDeriveRateOfUnknownCurrency() {
+        Assertions.assertTrue(rateMatrixService.getRate("EUR", "JPY").isEmpty(), "Rate must not be derived.");
+    }
+
+    @DisplayName("Should refresh in background after refresh interval.")
+    @Test
+    void shouldRefreshInBackgroundAfterRefreshInterval() {
+        setNow(NOW.plus(Duration.ofMinutes(2)));
+
+        Assertions.assertTrue(rateMatrixService.getRate("EUR", "USD").isPresent(), "Rate must still be derived.");
+        Mockito.verify(ratesService, Mockito.timeout(5000).times(2)).getRatesWithFetchTime(ArgumentMatchers.any(RatesRequest.class));
+    }
+
+    @DisplayName("Should not derive rate from stale matrix.")
+    @Test
+    void shouldNotDeriveRateFromStaleMatrix() {
+        Mockito.when(ratesService.getRatesWithFetchTime(ArgumentMatchers.any(RatesRequest.class))).thenReturn(Mono.empty());
+        setNow(NOW.plus(Duration.ofMinutes(6)));
+
+        Assertions.assertTrue(rateMatrixService.getRate("EUR", "USD").isEmpty(), "Stale matrix must not be used.");
+    }
+
+    @DisplayName("Should not derive rate from matrix of old cached rates.")
+    @Test
+    void shouldNotDeriveRateFromMatrixOfOldCachedRates() {
+        mockRates(NOW.minus(Duration.ofMinutes(30)));
+        rateMatrixService.refresh().block();
+
+        Assertions.assertTrue(rateMatrixService.getRate("EUR", "USD").isEmpty(), "Matrix of old rates must not be used.");
+    }
+
+    @DisplayName("Should not refresh matrix of cached rates older than the refresh interval on every lookup.")
+    @Test
+    void shouldThrottleRefreshesOfOldCachedRates() {
+        // Cached rates may be older than the refresh interval, when their time to live is longer
+        mockRates(NOW.minus(Duration.ofMinutes(3)));
+        rateMatrixService.refresh().block();
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(rateMatrixService.getRate("EUR", "USD").isPresent(), "Rate must be derived.");
+        }
+        Mockito.verify(ratesService, Mockito.after(200).times(2)).getRatesWithFetchTime(ArgumentMatchers.any(RatesRequest.class));
+    }
+
+    private void mockRates(Instant fetchedAt) {
+        RatesResponse ratesResponse = RatesResponse.of("EUR", Set.of("ECB"),
+                Map.of("USD", new BigDecimal("1.25"), "GBP", new BigDecimal("0.8")));
+        Mockito.when(ratesService.getRatesWithFetchTime(ArgumentMatchers.any(RatesRequest.class)))
+                .thenReturn(Mono.just(new LastKnown<>(ratesResponse, fetchedAt)));
+    }
+
+    private void setNow(Instant now) {
+        rateMatrixService.setClock(Clock.fixed(now, ZoneOffset.UTC));
+    }
+}
@@ -22,12 +22,18 @@ package be.thibaulthelsmoortel.currencyconverterbot.client.rate.service;
 import be.thibaulthelsmoortel.currencyconverterbot.client.ClientBaseTest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.matrix.service.RateMatrixService;
 import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.reactive.function.client.WebClient.RequestHeadersUriSpec;
 import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
 import reactor.core.publisher.Mono;
@@ -40,6 +46,9 @@ class RateServiceBeanTest extends ClientBaseTest {
     @Autowired
     private RateService rateService;
 
+    @MockBean
+    private RateMatrixService rateMatrixService;
+
     @DisplayName("Should get rate.")
     @SuppressWarnings({"rawtypes", "unchecked"})
     @Test
@@ -56,18 +65,18 @@ class RateServiceBeanTest extends ClientBaseTest {
         RequestHeadersUriSpec requestHeadersUriSpec = Mockito.mock(RequestHeadersUriSpec.class);
         Mockito.when(getApiClient().get()).thenReturn(requestHeadersUriSpec);
         Mockito.when(requestHeadersUriSpec.uri(getUriFunctionCaptor().capture())).thenReturn(requestHeadersUriSpec);
-        Mockito.when(requestHeadersUriSpec.headers(getApiHeaders())).thenReturn(requestHeadersUriSpec);
+        Mockito.when(requestHeadersUriSpec.headers(ArgumentMatchers.any())).thenReturn(requestHeadersUriSpec);
         ResponseSpec responseSpec = Mockito.mock(ResponseSpec.class);
         Mockito.when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
 
-        Mockito.when(responseSpec.bodyToMono(RateResponse.class))
-                .thenReturn(Mono.just(rateResponse));
+        Mockito.when(responseSpec.toEntity(RateResponse.class))
+                .thenReturn(Mono.just(ResponseEntity.ok(rateResponse)));
 
         RateRequest rateRequest = new RateRequest();
         rateRequest.setBaseIsoCode(baseIsoCode);
         rateRequest.setTargetIsoCode(targetIsoCode);
 
-        RateResponse response = rateService.getRate(rateRequest);
+        RateResponse response = rateService.getRate(rateRequest).block();
 
         assertPathEquals("/v1/rate");
 
@@ -78,4 +87,25 @@ class RateServiceBeanTest extends ClientBaseTest {
         Assertions.assertEquals(rateResponse, response, "Response must be correct.");
         Assertions.assertEquals(result, response.getResult(), "Result amount must be correct.");
     }
+
+    @DisplayName("Should get rate from rate matrix.")
+    @Test
+    void shouldGetRateFromRateMatrix() {
+        BigDecimal result = BigDecimal.valueOf(1.17);
+        Mockito.when(rateMatrixService.getRate("EUR", "USD")).thenReturn(Optional.of(result));
+        Mockito.when(rateMatrixService.getProviders()).thenReturn(Set.of("ECB"));
+
+        RateRequest rateRequest = new RateRequest();
+        rateRequest.setBaseIsoCode("EUR");
+        rateRequest.setTargetIsoCode("USD");
+
+        RateResponse response = rateService.getRate(rateRequest).block();
+
+        Assertions.assertNotNull(response, "Result must not be null.");
+        Assertions.assertEquals(rateRequest.getBaseIsoCode(), response.getBaseIsoCode(), "Base must be correct.");
+        Assertions.assertEquals(rateRequest.getTargetIsoCode(), response.getTargetIsoCode(), "Target must be correct.");
+        Assertions.assertEquals(Set.of("ECB"), response.getProviders(), "Providers must be correct.");
+        Assertions.assertEquals(result, response.getResult(), "Result amount must be correct.");
+        Mockito.verifyNoInteractions(getApiClient());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.ThreadMXBean;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import lombok.Data;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class RatesResponseDeserializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @DisplayName("Should read rates into columns.")
+    @Test
+    void shouldReadRates() throws JsonProcessingException {
+        RatesResponse ratesResponse = read("""
+                {
+                  "baseIsoCode": "EUR",
+                  "providers": ["ECB"],
+                  "unknown": {"nested": [1, 2, {"deeper": true}]},
+                  "rates": [
+                    {"targetIsoCode": "USD", "baseIsoCode": "EUR", "providers": ["ECB"], "result": 1.250},
+                    {"targetIsoCode": "JPY", "baseIsoCode": "EUR", "providers": ["ECB"], "result": 140}
+                  ]
+                }
+                """);
+
+        Assertions.assertEquals("EUR", ratesResponse.getBaseIsoCode(), "Base ISO code must be read.");
+        Assertions.assertEquals(Set.of("ECB"), ratesResponse.getProviders(), "Providers must be read.");
+        Assertions.assertEquals(2, ratesResponse.size(), "Rates must be read.");
+        Assertions.assertSame("USD", ratesResponse.getTargetIsoCode(0), "Target ISO code must be interned.");
+        Assertions.assertEquals(new BigDecimal("1.250"), ratesResponse.getResult(0), "Result must keep its scale.");
+        Assertions.assertEquals(1.25d, ratesResponse.getResultAsDouble(0), "Result must be converted to a double.");
+        Assertions.assertEquals("JPY", ratesResponse.getTargetIsoCode(1), "Target ISO code must be read.");
+        Assertions.assertEquals(new BigDecimal("140"), ratesResponse.getResult(1), "Integer result must be read.");
+    }
+
+    @DisplayName("Should share the providers of the rates when the response lists none.")
+    @Test
+    void shouldShareProvidersOfRates() throws JsonProcessingException {
+        RatesResponse ratesResponse = read("""
+                {"baseIsoCode": "EUR", "providers": null, "rates": [
+                  {"targetIsoCode": "USD", "providers": ["ECB"], "result": 1.1},
+                  {"targetIsoCode": "GBP", "providers": ["ECB", "BOE"], "result": 0.9}
+                ]}
+                """);
+
+        Assertions.assertEquals(Set.of("ECB", "BOE"), ratesResponse.getProviders(), "Providers of the rates must be shared.");
+    }
+
+    @DisplayName("Should read results in exponent notation and as strings.")
+    @Test
+    void shouldReadOtherNumberNotations() throws JsonProcessingException {
+        RatesResponse ratesResponse = read("""
+                {"baseIsoCode": "EUR", "rates": [
+                  {"targetIsoCode": "USD", "result": 1.5E-3},
+                  {"targetIsoCode": "GBP", "result": "0.75"},
+                  {"targetIsoCode": "CHF", "result": -0.5}
+                ]}
+                """);
+
+        Assertions.assertEquals(0, new BigDecimal("0.0015").compareTo(ratesResponse.getResult(0)), "Exponent must be read.");
+        Assertions.assertEquals(new BigDecimal("0.75"), ratesResponse.getResult(1), "String result must be read.");
+        Assertions.assertEquals(new BigDecimal("-0.5"), ratesResponse.getResult(2), "Negative result must be read.");
+    }
+
+    @DisplayName("Should round results with too many digits.")
+    @Test
+    void shouldRoundResultsWithTooManyDigits() throws JsonProcessingException {
+        RatesResponse ratesResponse = read("""
+                {"baseIsoCode": "EUR", "rates": [{"targetIsoCode": "USD", "result": 1.23456789012345678901234}]}
+                """);
+
+        Assertions.assertEquals(new BigDecimal("1.23456789012345679"), ratesResponse.getResult(0), "Result must be rounded.");
+    }
+
+    @DisplayName("Should skip incomplete rates.")
+    @Test
+    void shouldSkipIncompleteRates() throws JsonProcessingException {
+        RatesResponse ratesResponse = read("""
+                {"baseIsoCode": "EUR", "rates": [
+                  {"targetIsoCode": "USD"},
+                  {"result": 1.1},
+                  {"targetIsoCode": "GBP", "result": null},
+                  null,
+                  {"targetIsoCode": "CHF", "result": 0.95}
+                ]}
+                """);
+
+        Assertions.assertEquals(1, ratesResponse.size(), "Incomplete rates must be skipped.");
+        Assertions.assertEquals("CHF", ratesResponse.getTargetIsoCode(0), "Complete rate must be read.");
+    }
+
+    @DisplayName("Should allocate less than plain binding.")
+    @Test
+    void shouldAllocateLessThanPlainBinding() throws IOException {
+        ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled(),
+                "Allocated memory must be measurable.");
+
+        StringBuilder json = new StringBuilder("{\"baseIsoCode\": \"EUR\", \"providers\": [\"ECB\"], \"rates\": [");
+        for (int i = 0; i < 170; i++) {
+            String isoCode = new String(new char[] {(char) ('A' + i / 26), (char) ('A' + i % 26), (char) ('A' + i * 7 % 26)});
+            json.append(i == 0 ? "" : ", ")
+                    .append("{\"targetIsoCode\": \"").append(isoCode)
+                    .append("\", \"baseIsoCode\": \"EUR\", \"providers\": [\"ECB\"], \"result\": ").append(1 + i * 0.0137)
+                    .append('}');
+        }
+        byte[] payload = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+
+        long streamed = measureAllocatedBytes(threadMXBean, payload, RatesResponse.class);
+        long bound = measureAllocatedBytes(threadMXBean, payload, PlainRatesResponse.class);
+
+        Assertions.assertTrue(streamed * 3 < bound,
+                "Streaming must allocate far less than plain binding (" + streamed + " vs " + bound + " bytes).");
+    }
+
+    private long measureAllocatedBytes(ThreadMXBean threadMXBean, byte[] payload, Class<?> type) throws IOException {
+        int iterations = 2000;
+        for (int i = 0; i < iterations; i++) {
+            objectMapper.readValue(payload, type);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            objectMapper.readValue(payload, type);
+        }
+
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytes) / iterations;
+    }
+
+    private RatesResponse read(String json) throws JsonProcessingException {
+        return objectMapper.readValue(json, RatesResponse.class);
+    }
+
+    /**
+     * A rates payload bound the plain way, with an object per rate.
+     */
+    @Data
+    private static class PlainRatesResponse {
+
+        private String baseIsoCode;
+
+        private Set<String> providers;
+
+        private List<RateResponse> rates;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesSnapshot.Entry;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class RatesSnapshotTest {
+
+    private static final Instant CAPTURED_AT = Instant.parse("2023-03-01T12:00:00Z");
+
+    @TempDir
+    private Path directory;
+
+    @DisplayName("Should read the written rates.")
+    @Test
+    void shouldReadWrittenRates() throws IOException {
+        Path path = directory.resolve("rates.snapshot");
+        RatesResponse eurRates = RatesResponse.of("EUR", Set.of("ECB"),
+                Map.of("USD", new BigDecimal("1.0612"), "JPY", new BigDecimal("144.27")));
+        RatesResponse usdRates = RatesResponse.of("USD", Set.of(), Map.of("EUR", new BigDecimal("0.942329")));
+
+        RatesSnapshot.write(path, List.of(new Entry(eurRates, CAPTURED_AT), new Entry(usdRates, CAPTURED_AT.plusSeconds(60))));
+        List<Entry> entries = RatesSnapshot.read(path);
+
+        Assertions.assertEquals(2, entries.size(), "All rates should be read.");
+        Entry eurEntry = entries.get(0);
+        Assertions.assertEquals(CAPTURED_AT, eurEntry.capturedAt(), "Capture time should be read.");
+        Assertions.assertEquals("EUR", eurEntry.ratesResponse().getBaseIsoCode(), "Base currency should be read.");
+        Assertions.assertEquals(Set.of("ECB"), eurEntry.ratesResponse().getProviders(), "Providers should be read.");
+        Assertions.assertEquals(Map.of("USD", new BigDecimal("1.0612"), "JPY", new BigDecimal("144.27")),
+                toMap(eurEntry.ratesResponse()), "Rates should be read.");
+        Assertions.assertEquals(CAPTURED_AT.plusSeconds(60), entries.get(1).capturedAt(), "Capture time should be read.");
+        Assertions.assertEquals(Map.of("EUR", new BigDecimal("0.942329")), toMap(entries.get(1).ratesResponse()),
+                "Rates should be read.");
+        Assertions.assertFalse(Files.exists(directory.resolve("rates.snapshot.tmp")), "Temporary file should be moved.");
+    }
+
+    @DisplayName("Should replace the existing snapshot.")
+    @Test
+    void shouldReplaceExistingSnapshot() throws IOException {
+        Path path = directory.resolve("rates.snapshot");
+        RatesResponse ratesResponse = RatesResponse.of("EUR", Set.of(), Map.of("USD", BigDecimal.ONE));
+
+        RatesSnapshot.write(path, List.of(new Entry(ratesResponse, CAPTURED_AT)));
+        RatesSnapshot.write(path, List.of());
+
+        Assertions.assertTrue(RatesSnapshot.read(path).isEmpty(), "Snapshot should be replaced.");
+    }
+
+    @DisplayName("Should reject a damaged snapshot.")
+    @Test
+    void shouldRejectDamagedSnapshot() throws IOException {
+        Path path = directory.resolve("rates.snapshot");
+        RatesResponse ratesResponse = RatesResponse.of("EUR", Set.of(), Map.of("USD", BigDecimal.ONE));
+        RatesSnapshot.write(path, List.of(new Entry(ratesResponse, CAPTURED_AT)));
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x7F;
+        Files.write(path, bytes);
+
+        Assertions.assertThrows(IOException.class, () -> RatesSnapshot.read(path), "Damaged snapshot should be rejected.");
+
+        Files.write(path, new byte[] {1, 2, 3});
+        Assertions.assertThrows(IOException.class, () -> RatesSnapshot.read(path), "Truncated snapshot should be rejected.");
+    }
+
+    private static Map<String, BigDecimal> toMap(RatesResponse ratesResponse) {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (int i = 0; i < ratesResponse.size(); i++) {
+            rates.put(ratesResponse.getTargetIsoCode(i), ratesResponse.getResult(i));
+        }
+
+        return rates;
+    }
+}
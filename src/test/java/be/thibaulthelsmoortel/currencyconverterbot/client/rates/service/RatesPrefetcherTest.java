@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.rates.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.config.RatesPrefetchEnvironment;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class RatesPrefetcherTest {
+
+    private RatesService ratesService;
+    private RatesDemandTracker ratesDemandTracker;
+    private RatesPrefetchEnvironment ratesPrefetchEnvironment;
+    private RatesPrefetcher ratesPrefetcher;
+
+    @BeforeEach
+    void setUp() {
+        ratesService = Mockito.mock(RatesService.class);
+        ratesDemandTracker = Mockito.mock(RatesDemandTracker.class);
+        ratesPrefetchEnvironment = new RatesPrefetchEnvironment();
+        ratesPrefetchEnvironment.setEnabled(false);
+        ratesPrefetchEnvironment.setTopCurrencies(4);
+        ratesPrefetchEnvironment.setCallBudget(2);
+        ratesPrefetcher = new RatesPrefetcher(ratesService, ratesDemandTracker, ratesPrefetchEnvironment);
+    }
+
+    @DisplayName("Should prefetch popular rates within the call budget.")
+    @Test
+    void shouldPrefetchWithinCallBudget() {
+        Mockito.when(ratesDemandTracker.getPopularBaseIsoCodes(4)).thenReturn(List.of("EUR", "USD", "GBP", "JPY"));
+        Mockito.when(ratesService.prefetch(ArgumentMatchers.anyString(), ArgumentMatchers.any(Duration.class)))
+                .thenReturn(Mono.just(true));
+        Mockito.when(ratesService.prefetch(ArgumentMatchers.eq("EUR"), ArgumentMatchers.any(Duration.class)))
+                .thenReturn(Mono.just(false));
+
+        Assertions.assertEquals(2L, ratesPrefetcher.prefetch().block(), "Call budget should be spent.");
+
+        Mockito.verify(ratesService).prefetch("EUR", ratesPrefetchEnvironment.getLeadTime());
+        Mockito.verify(ratesService).prefetch("USD", ratesPrefetchEnvironment.getLeadTime());
+        Mockito.verify(ratesService).prefetch("GBP", ratesPrefetchEnvironment.getLeadTime());
+        Mockito.verify(ratesService, Mockito.never()).prefetch(ArgumentMatchers.eq("JPY"), ArgumentMatchers.any(Duration.class));
+    }
+
+    @DisplayName("Should not prefetch without demand.")
+    @Test
+    void shouldNotPrefetchWithoutDemand() {
+        Mockito.when(ratesDemandTracker.getPopularBaseIsoCodes(4)).thenReturn(List.of());
+
+        Assertions.assertEquals(0L, ratesPrefetcher.prefetch().block(), "No calls should be made.");
+        Mockito.verify(ratesService, Mockito.never()).prefetch(ArgumentMatchers.anyString(), ArgumentMatchers.any(Duration.class));
+    }
+
+    @DisplayName("Should prefetch periodically while running.")
+    @Test
+    void shouldPrefetchPeriodicallyWhileRunning() {
+        Mockito.when(ratesDemandTracker.getPopularBaseIsoCodes(4)).thenReturn(List.of());
+        ratesPrefetchEnvironment.setInterval(Duration.ofMillis(10));
+
+        ratesPrefetcher.start();
+        Assertions.assertFalse(ratesPrefetcher.isRunning(), "Disabled prefetcher should not run.");
+
+        ratesPrefetchEnvironment.setEnabled(true);
+        ratesPrefetcher.start();
+        try {
+            Assertions.assertTrue(ratesPrefetcher.isRunning(), "Prefetcher should run once started.");
+            Mockito.verify(ratesDemandTracker, Mockito.timeout(5000).atLeast(2)).getPopularBaseIsoCodes(4);
+        } finally {
+            ratesPrefetcher.stop();
+        }
+
+        Assertions.assertFalse(ratesPrefetcher.isRunning(), "Prefetcher should no longer run once stopped.");
+    }
+}
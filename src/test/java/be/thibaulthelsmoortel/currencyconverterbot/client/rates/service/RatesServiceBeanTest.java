@@ -19,17 +19,49 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.client.rates.service;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
 import be.thibaulthelsmoortel.currencyconverterbot.client.ClientBaseTest;
-import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.RequestCoalescer;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesSnapshot;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesSnapshot.Entry;
+import be.thibaulthelsmoortel.currencyconverterbot.config.CircuitBreakerEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RateLimitEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RatesCacheEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RatesPrefetchEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RatesSnapshotEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RetryEnvironment;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClient.RequestHeadersUriSpec;
 import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
 import reactor.core.publisher.Mono;
@@ -42,6 +74,11 @@ class RatesServiceBeanTest extends ClientBaseTest {
     @Autowired
     private RatesService ratesService;
 
+    @TempDir
+    private Path directory;
+
+    private final RatesDemandTracker ratesDemandTracker = new RatesDemandTracker(new RatesPrefetchEnvironment());
+
     @DisplayName("Should get rates.")
     @SuppressWarnings({"rawtypes", "unchecked"})
     @Test
@@ -50,28 +87,22 @@ class RatesServiceBeanTest extends ClientBaseTest {
         String targetIsoCode = "USD";
         BigDecimal result = BigDecimal.valueOf(1.17);
 
-        RatesResponse ratesResponse = new RatesResponse();
-        ratesResponse.setBaseIsoCode(baseIsoCode);
-        RateResponse rateResponse = new RateResponse();
-        rateResponse.setBaseIsoCode(baseIsoCode);
-        rateResponse.setTargetIsoCode(targetIsoCode);
-        rateResponse.setResult(result);
-        ratesResponse.setRates(Set.of(rateResponse));
+        RatesResponse ratesResponse = RatesResponse.of(baseIsoCode, Set.of(), Map.of(targetIsoCode, result));
 
         RequestHeadersUriSpec requestHeadersUriSpec = Mockito.mock(RequestHeadersUriSpec.class);
         Mockito.when(getApiClient().get()).thenReturn(requestHeadersUriSpec);
         Mockito.when(requestHeadersUriSpec.uri(getUriFunctionCaptor().capture())).thenReturn(requestHeadersUriSpec);
-        Mockito.when(requestHeadersUriSpec.headers(getApiHeaders())).thenReturn(requestHeadersUriSpec);
+        Mockito.when(requestHeadersUriSpec.headers(ArgumentMatchers.any())).thenReturn(requestHeadersUriSpec);
         ResponseSpec responseSpec = Mockito.mock(ResponseSpec.class);
         Mockito.when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
 
-        Mockito.when(responseSpec.bodyToMono(RatesResponse.class))
-                .thenReturn(Mono.just(ratesResponse));
+        Mockito.when(responseSpec.toEntity(RatesResponse.class))
+                .thenReturn(Mono.just(ResponseEntity.ok(ratesResponse)));
 
         RatesRequest ratesRequest = new RatesRequest();
         ratesRequest.setBaseIsoCode(baseIsoCode);
 
-        RatesResponse response = ratesService.getRates(ratesRequest);
+        RatesResponse response = ratesService.getRates(ratesRequest).block();
 
         assertPathEquals("/v1/rates");
 
@@ -79,8 +110,234 @@ class RatesServiceBeanTest extends ClientBaseTest {
 
         Assertions.assertNotNull(response, "Result must not be null.");
         Assertions.assertEquals(ratesResponse, response, "Response must be correct.");
-        Assertions.assertNotNull(response.getRates(), "Rates must not be null.");
-        Assertions.assertFalse(response.getRates().isEmpty(), "Rates must not be empty.");
-        Assertions.assertEquals(result, response.getRates().stream().findFirst().orElseThrow().getResult(), "Result amount must be correct.");
+        Assertions.assertEquals(1, response.size(), "Rates must not be empty.");
+        Assertions.assertEquals(result, response.getResult(0), "Result amount must be correct.");
+    }
+
+    @DisplayName("Should serve cached rates.")
+    @Test
+    void shouldServeCachedRates() {
+        RatesResponse ratesResponse = createRatesResponse(BigDecimal.valueOf(1.17));
+        ResponseSpec responseSpec = mockResponseSpec();
+        Mockito.when(responseSpec.toEntity(RatesResponse.class)).thenReturn(Mono.just(ResponseEntity.ok(ratesResponse)));
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RatesServiceBean cachingRatesService = createCachingRatesService(meterRegistry);
+        cachingRatesService.setClock(Clock.fixed(Instant.EPOCH, ZoneOffset.UTC));
+
+        RatesResponse first = cachingRatesService.getRates(createRatesRequest("EUR")).block();
+        RatesResponse second = cachingRatesService.getRates(createRatesRequest("eur")).block();
+
+        Assertions.assertEquals(ratesResponse, first, "Response must be correct.");
+        Assertions.assertEquals(ratesResponse, second, "Cached response must be served.");
+        Mockito.verify(responseSpec).toEntity(RatesResponse.class);
+        Assertions.assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "rates").tag("result", "hit")
+                .functionCounter().count(), "Hit should be counted.");
+        Assertions.assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "rates").tag("result", "miss")
+                .functionCounter().count(), "Miss should be counted.");
+    }
+
+    @DisplayName("Should serve cached rates with the time they were fetched.")
+    @Test
+    void shouldServeCachedRatesWithFetchTime() {
+        ResponseSpec responseSpec = mockResponseSpec();
+        Mockito.when(responseSpec.toEntity(RatesResponse.class))
+                .thenReturn(Mono.just(ResponseEntity.ok(createRatesResponse(BigDecimal.valueOf(1.17)))));
+
+        RatesServiceBean cachingRatesService = createCachingRatesService(new SimpleMeterRegistry());
+        cachingRatesService.setClock(Clock.fixed(Instant.EPOCH, ZoneOffset.UTC));
+        cachingRatesService.getRates(createRatesRequest("EUR")).block();
+        cachingRatesService.setClock(Clock.fixed(Instant.EPOCH.plusSeconds(30), ZoneOffset.UTC));
+
+        LastKnown<RatesResponse> rates = cachingRatesService.getRatesWithFetchTime(createRatesRequest("EUR")).block();
+
+        Assertions.assertNotNull(rates, "Rates must be served.");
+        Assertions.assertEquals(Instant.EPOCH, rates.capturedAt(), "Fetch time must be the one of the cached rates.");
+    }
+
+    @DisplayName("Should serve stale rates while refreshing them.")
+    @Test
+    void shouldServeStaleRatesWhileRefreshing() {
+        RatesResponse staleRatesResponse = createRatesResponse(BigDecimal.valueOf(1.17));
+        RatesResponse freshRatesResponse = createRatesResponse(BigDecimal.valueOf(1.18));
+        ResponseSpec responseSpec = mockResponseSpec();
+        Mockito.when(responseSpec.toEntity(RatesResponse.class))
+                .thenReturn(Mono.just(ResponseEntity.ok(staleRatesResponse)), Mono.just(ResponseEntity.ok(freshRatesResponse)));
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RatesServiceBean cachingRatesService = createCachingRatesService(meterRegistry);
+        cachingRatesService.setClock(Clock.fixed(Instant.EPOCH, ZoneOffset.UTC));
+        cachingRatesService.getRates(createRatesRequest("EUR")).block();
+        cachingRatesService.setClock(Clock.fixed(Instant.EPOCH.plus(Duration.ofMinutes(2)), ZoneOffset.UTC));
+
+        RatesResponse stale = cachingRatesService.getRates(createRatesRequest("EUR")).block();
+        RatesResponse fresh = cachingRatesService.getRates(createRatesRequest("EUR")).block();
+
+        Assertions.assertEquals(staleRatesResponse, stale, "Stale response must be served.");
+        Assertions.assertEquals(freshRatesResponse, fresh, "Refreshed response must be served.");
+        Assertions.assertEquals(1, meterRegistry.get("cache.refreshes").tag("cache", "rates").counter().count(),
+                "Refresh should be counted.");
+    }
+
+    @DisplayName("Should prefetch popular rates before they expire.")
+    @Test
+    void shouldPrefetchPopularRatesBeforeExpiry() {
+        RatesResponse staleRatesResponse = createRatesResponse(BigDecimal.valueOf(1.17));
+        RatesResponse freshRatesResponse = createRatesResponse(BigDecimal.valueOf(1.18));
+        ResponseSpec responseSpec = mockResponseSpec();
+        Mockito.when(responseSpec.toEntity(RatesResponse.class))
+                .thenReturn(Mono.just(ResponseEntity.ok(staleRatesResponse)), Mono.just(ResponseEntity.ok(freshRatesResponse)));
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RatesServiceBean cachingRatesService = createCachingRatesService(meterRegistry);
+        cachingRatesService.setClock(Clock.fixed(Instant.EPOCH, ZoneOffset.UTC));
+        cachingRatesService.getRates(createRatesRequest("EUR")).block();
+
+        Assertions.assertEquals(List.of("EUR"), ratesDemandTracker.getPopularBaseIsoCodes(12),
+                "Requested base currency should be popular.");
+
+        cachingRatesService.setClock(Clock.fixed(Instant.EPOCH.plusSeconds(30), ZoneOffset.UTC));
+        Assertions.assertEquals(Boolean.FALSE, cachingRatesService.prefetch("EUR", Duration.ofSeconds(15)).block(),
+                "Fresh rates should not be prefetched.");
+
+        cachingRatesService.setClock(Clock.fixed(Instant.EPOCH.plusSeconds(50), ZoneOffset.UTC));
+        Assertions.assertEquals(Boolean.TRUE, cachingRatesService.prefetch("EUR", Duration.ofSeconds(15)).block(),
+                "Rates about to expire should be prefetched.");
+
+        Assertions.assertEquals(freshRatesResponse, cachingRatesService.getRates(createRatesRequest("EUR")).block(),
+                "Prefetched response must be served.");
+        Assertions.assertEquals(1, meterRegistry.get("cache.prefetches").tag("cache", "rates").counter().count(),
+                "Prefetch should be counted.");
+        Assertions.assertEquals(0, meterRegistry.get("cache.refreshes").tag("cache", "rates").counter().count(),
+                "Prefetched rates should not be refreshed.");
+    }
+
+    @DisplayName("Should restore rates from the snapshot.")
+    @Test
+    void shouldRestoreRatesFromSnapshot() throws IOException {
+        RatesResponse snapshotRatesResponse = createRatesResponse(BigDecimal.valueOf(1.17));
+        RatesResponse freshRatesResponse = createRatesResponse(BigDecimal.valueOf(1.18));
+        ResponseSpec responseSpec = mockResponseSpec();
+        Mockito.when(responseSpec.toEntity(RatesResponse.class)).thenReturn(Mono.just(ResponseEntity.ok(freshRatesResponse)));
+
+        RatesSnapshotEnvironment ratesSnapshotEnvironment = new RatesSnapshotEnvironment();
+        ratesSnapshotEnvironment.setEnabled(true);
+        ratesSnapshotEnvironment.setPath(directory.resolve("rates.snapshot"));
+        RatesSnapshot.write(ratesSnapshotEnvironment.getPath(), List.of(new Entry(snapshotRatesResponse, Instant.now().minusSeconds(120))));
+
+        RatesCacheEnvironment ratesCacheEnvironment = new RatesCacheEnvironment();
+        ratesCacheEnvironment.setTtl(Duration.ofMinutes(1));
+        RatesServiceBean restoredRatesService = createRatesService(getApiClient(), ratesCacheEnvironment,
+                ratesSnapshotEnvironment, new SimpleMeterRegistry());
+        restoredRatesService.start();
+
+        try {
+            RatesResponse restored = restoredRatesService.getRates(createRatesRequest("EUR")).block();
+            RatesResponse refreshed = restoredRatesService.getRates(createRatesRequest("EUR")).block();
+
+            Assertions.assertNotNull(restored, "Restored response must be served.");
+            Assertions.assertEquals(new BigDecimal("1.17"), restored.getResult(0), "Restored response must be served.");
+            Assertions.assertEquals(freshRatesResponse, refreshed, "Stale restored response must be refreshed.");
+            Assertions.assertEquals(List.of("EUR"), ratesDemandTracker.getPopularBaseIsoCodes(12),
+                    "Restored base currency should be eligible for prefetching.");
+
+            restoredRatesService.stop();
+            List<Entry> entries = RatesSnapshot.read(ratesSnapshotEnvironment.getPath());
+            Assertions.assertEquals(1, entries.size(), "Snapshot should be written on shutdown.");
+            Assertions.assertEquals(new BigDecimal("1.18"), entries.get(0).ratesResponse().getResult(0),
+                    "Refreshed rates should be written.");
+        } finally {
+            restoredRatesService.stop();
+        }
+    }
+
+    @DisplayName("Should reuse parsed rates when not modified.")
+    @Test
+    void shouldReuseParsedRatesWhenNotModified() throws IOException {
+        List<String> ifNoneMatchHeaders = new CopyOnWriteArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1/rates", exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+            ifNoneMatchHeaders.add(String.valueOf(ifNoneMatch));
+            exchange.getResponseHeaders().set(HttpHeaders.ETAG, "\"v1\"");
+            if ("\"v1\"".equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(HttpStatus.NOT_MODIFIED.value(), -1);
+            } else {
+                byte[] body = "{\"baseIsoCode\": \"EUR\", \"rates\": [{\"targetIsoCode\": \"USD\", \"result\": 1.17}]}"
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+                exchange.sendResponseHeaders(HttpStatus.OK.value(), body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            MeterRegistry meterRegistry = new SimpleMeterRegistry();
+            RatesCacheEnvironment ratesCacheEnvironment = new RatesCacheEnvironment();
+            ratesCacheEnvironment.setEnabled(false);
+            WebClient webClient = WebClient.create("http://localhost:" + server.getAddress().getPort());
+            RatesServiceBean stubbedRatesService = createRatesService(webClient, ratesCacheEnvironment, meterRegistry);
+
+            RatesResponse first = stubbedRatesService.getRates(createRatesRequest("EUR")).block();
+            RatesResponse second = stubbedRatesService.getRates(createRatesRequest("EUR")).block();
+
+            Assertions.assertNotNull(first, "Response must not be null.");
+            Assertions.assertEquals(new BigDecimal("1.17"), first.getResult(0), "Response must be parsed.");
+            Assertions.assertSame(first, second, "Parsed response must be reused, rather than parsing it again.");
+            Assertions.assertEquals(List.of("null", "\"v1\""), ifNoneMatchHeaders, "Second request must be conditional.");
+            Assertions.assertEquals(1, meterRegistry.get("api.client.responses.not-modified").tag("request", "rates")
+                    .counter().count(), "Unmodified response should be counted.");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private RatesServiceBean createCachingRatesService(MeterRegistry meterRegistry) {
+        RatesCacheEnvironment ratesCacheEnvironment = new RatesCacheEnvironment();
+        ratesCacheEnvironment.setTtl(Duration.ofMinutes(1));
+
+        return createRatesService(getApiClient(), ratesCacheEnvironment, meterRegistry);
+    }
+
+    private RatesServiceBean createRatesService(WebClient webClient, RatesCacheEnvironment ratesCacheEnvironment,
+            MeterRegistry meterRegistry) {
+        RatesSnapshotEnvironment ratesSnapshotEnvironment = new RatesSnapshotEnvironment();
+        ratesSnapshotEnvironment.setEnabled(false);
+
+        return createRatesService(webClient, ratesCacheEnvironment, ratesSnapshotEnvironment, meterRegistry);
+    }
+
+    private RatesServiceBean createRatesService(WebClient webClient, RatesCacheEnvironment ratesCacheEnvironment,
+            RatesSnapshotEnvironment ratesSnapshotEnvironment, MeterRegistry meterRegistry) {
+        ApiCallGuard apiCallGuard = new ApiCallGuard(new CircuitBreakerEnvironment(), new RetryEnvironment(),
+                new RateLimitEnvironment(), meterRegistry);
+
+        return new RatesServiceBean(webClient, new RequestCoalescer(meterRegistry), apiCallGuard,
+                ratesCacheEnvironment, new RatesSnapshotStore(ratesSnapshotEnvironment), ratesDemandTracker, meterRegistry);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private ResponseSpec mockResponseSpec() {
+        RequestHeadersUriSpec requestHeadersUriSpec = Mockito.mock(RequestHeadersUriSpec.class);
+        Mockito.when(getApiClient().get()).thenReturn(requestHeadersUriSpec);
+        Mockito.when(requestHeadersUriSpec.uri(getUriFunctionCaptor().capture())).thenReturn(requestHeadersUriSpec);
+        Mockito.when(requestHeadersUriSpec.headers(ArgumentMatchers.any())).thenReturn(requestHeadersUriSpec);
+        ResponseSpec responseSpec = Mockito.mock(ResponseSpec.class);
+        Mockito.when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+
+        return responseSpec;
+    }
+
+    private static RatesRequest createRatesRequest(String baseIsoCode) {
+        RatesRequest ratesRequest = new RatesRequest();
+        ratesRequest.setBaseIsoCode(baseIsoCode);
+
+        return ratesRequest;
+    }
+
+    private static RatesResponse createRatesResponse(BigDecimal result) {
+        return RatesResponse.of("EUR", Set.of(), Map.of("USD", result));
     }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.rates.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesSnapshot;
+import be.thibaulthelsmoortel.currencyconverterbot.config.RatesSnapshotEnvironment;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class RatesSnapshotStoreTest {
+
+    @TempDir
+    private Path directory;
+
+    private final List<LastKnown<RatesResponse>> lastKnownRates = new CopyOnWriteArrayList<>();
+    private RatesSnapshotEnvironment ratesSnapshotEnvironment;
+    private RatesSnapshotStore ratesSnapshotStore;
+
+    @BeforeEach
+    void setUp() {
+        ratesSnapshotEnvironment = new RatesSnapshotEnvironment();
+        ratesSnapshotEnvironment.setPath(directory.resolve("rates.snapshot"));
+        ratesSnapshotStore = new RatesSnapshotStore(ratesSnapshotEnvironment);
+    }
+
+    @DisplayName("Should restore nothing without snapshot.")
+    @Test
+    void shouldRestoreNothingWithoutSnapshot() {
+        Assertions.assertTrue(ratesSnapshotStore.restore().isEmpty(), "Nothing should be restored.");
+    }
+
+    @DisplayName("Should write nothing before started.")
+    @Test
+    void shouldWriteNothingBeforeStarted() {
+        ratesSnapshotStore.markModified();
+        ratesSnapshotStore.write();
+
+        Assertions.assertFalse(Files.exists(ratesSnapshotEnvironment.getPath()), "Nothing should be written before started.");
+    }
+
+    @DisplayName("Should write snapshot only when modified.")
+    @Test
+    void shouldWriteSnapshotOnlyWhenModified() throws IOException {
+        Instant capturedAt = Instant.parse("2023-03-01T10:00:00Z");
+        lastKnownRates.add(new LastKnown<>(RatesResponse.of("EUR", Set.of(), Map.of("USD", BigDecimal.ONE)), capturedAt));
+
+        ratesSnapshotStore.start(() -> lastKnownRates);
+        ratesSnapshotStore.write();
+        Assertions.assertFalse(Files.exists(ratesSnapshotEnvironment.getPath()), "Unmodified rates should not be written.");
+
+        ratesSnapshotStore.markModified();
+        ratesSnapshotStore.stop();
+
+        List<RatesSnapshot.Entry> entries = ratesSnapshotStore.restore();
+        Assertions.assertEquals(1, entries.size(), "Modified rates should be written on stop.");
+        Assertions.assertEquals("EUR", entries.get(0).ratesResponse().getBaseIsoCode(), "Rates must be restored.");
+        Assertions.assertEquals(capturedAt, entries.get(0).capturedAt(), "Capture time must be restored.");
+    }
+}
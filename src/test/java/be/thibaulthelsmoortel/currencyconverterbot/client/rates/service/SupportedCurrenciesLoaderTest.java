@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.client.rates.service;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.CurrencyCode;
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesRequest;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.config.SupportedCurrenciesEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.exceptions.ApiUnavailableException;
+import be.thibaulthelsmoortel.currencyconverterbot.validation.SupportedCurrencies;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class SupportedCurrenciesLoaderTest {
+
+    private RatesService ratesService;
+    private SupportedCurrenciesLoader supportedCurrenciesLoader;
+
+    @BeforeEach
+    void setUp() {
+        ratesService = Mockito.mock(RatesService.class);
+        SupportedCurrenciesEnvironment supportedCurrenciesEnvironment = new SupportedCurrenciesEnvironment();
+        supportedCurrenciesEnvironment.setEnabled(false);
+        supportedCurrenciesLoader = new SupportedCurrenciesLoader(ratesService, supportedCurrenciesEnvironment);
+    }
+
+    @DisplayName("Should load supported currencies from the rates.")
+    @Test
+    void shouldLoadSupportedCurrencies() {
+        RatesRequest ratesRequest = new RatesRequest();
+        ratesRequest.setBaseIsoCode("EUR");
+        Mockito.when(ratesService.getRates(ratesRequest)).thenReturn(Mono.just(RatesResponse.of("EUR", Set.of("ECB"),
+                Map.of("USD", new BigDecimal("1.06"), "BTC", new BigDecimal("0.00004")))));
+
+        SupportedCurrencies supportedCurrencies = supportedCurrenciesLoader.load().block();
+
+        Assertions.assertNotNull(supportedCurrencies, "Supported currencies should be loaded.");
+        Assertions.assertSame(supportedCurrencies, SupportedCurrencies.getCurrent(), "Supported currencies should be replaced.");
+        Assertions.assertEquals(3, supportedCurrencies.size(), "Base and target currencies should be supported.");
+        Assertions.assertTrue(supportedCurrencies.contains(CurrencyCode.of("BTC")), "Currencies unknown to the JDK should be supported.");
+        Assertions.assertFalse(supportedCurrencies.contains(CurrencyCode.of("GBP")), "Currencies without rates should not be supported.");
+    }
+
+    @DisplayName("Should keep supported currencies when the API is unavailable.")
+    @Test
+    void shouldKeepSupportedCurrenciesWhenApiUnavailable() {
+        Mockito.when(ratesService.getRates(ArgumentMatchers.any(RatesRequest.class)))
+                .thenReturn(Mono.error(new ApiUnavailableException("/v1/rates", "circuit open")));
+
+        Assertions.assertNull(supportedCurrenciesLoader.load().block(), "Supported currencies should not be loaded.");
+        Assertions.assertSame(SupportedCurrencies.getKnown(), SupportedCurrencies.getCurrent(), "Supported currencies should be kept.");
+    }
+
+    @DisplayName("Should ignore rates without targets.")
+    @Test
+    void shouldIgnoreRatesWithoutTargets() {
+        Mockito.when(ratesService.getRates(ArgumentMatchers.any(RatesRequest.class)))
+                .thenReturn(Mono.just(RatesResponse.of("EUR", Set.of(), Map.of())));
+
+        Assertions.assertNull(supportedCurrenciesLoader.load().block(), "Incomplete rates should be ignored.");
+        Assertions.assertSame(SupportedCurrencies.getKnown(), SupportedCurrencies.getCurrent(), "Supported currencies should be kept.");
+    }
+
+    @DisplayName("Should retry failed and incomplete loads.")
+    @Test
+    void shouldRetryFailedAndIncompleteLoads() {
+        Mockito.when(ratesService.getRates(ArgumentMatchers.any(RatesRequest.class))).thenReturn(
+                Mono.error(new ApiUnavailableException("/v1/rates", "circuit open")),
+                Mono.just(RatesResponse.of("EUR", Set.of(), Map.of())),
+                Mono.never());
+        SupportedCurrenciesEnvironment supportedCurrenciesEnvironment = new SupportedCurrenciesEnvironment();
+        supportedCurrenciesEnvironment.setRetryInterval(Duration.ofMillis(10));
+        SupportedCurrenciesLoader retryingLoader = new SupportedCurrenciesLoader(ratesService, supportedCurrenciesEnvironment);
+
+        retryingLoader.start();
+        try {
+            Mockito.verify(ratesService, Mockito.timeout(5000).times(3)).getRates(ArgumentMatchers.any(RatesRequest.class));
+        } finally {
+            retryingLoader.stop();
+        }
+    }
+
+    @DisplayName("Should load supported currencies from the last known rates until loaded.")
+    @Test
+    void shouldLoadLastKnownUntilLoaded() {
+        Mockito.when(ratesService.getLastKnownRates("EUR")).thenReturn(Optional.of(new LastKnown<>(RatesResponse.of("EUR",
+                Set.of("ECB"), Map.of("BTC", new BigDecimal("0.00004"))), Instant.parse("2023-03-01T12:00:00Z"))));
+
+        supportedCurrenciesLoader.loadLastKnown();
+        SupportedCurrencies lastKnown = SupportedCurrencies.getCurrent();
+        Assertions.assertTrue(lastKnown.contains(CurrencyCode.of("BTC")), "Last known currencies should be supported.");
+
+        SupportedCurrencies loaded = SupportedCurrencies.of(List.of(CurrencyCode.of("EUR"), CurrencyCode.of("USD")));
+        SupportedCurrencies.setCurrent(loaded);
+        supportedCurrenciesLoader.loadLastKnown();
+        Assertions.assertSame(loaded, SupportedCurrencies.getCurrent(), "Loaded currencies should not be replaced.");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SupportedCurrencies.setCurrent(SupportedCurrencies.getKnown());
+    }
+}
@@ -85,7 +85,7 @@ class StatsServiceBeanTest extends ClientBaseTest {
         StatsRequest statsRequest = new StatsRequest();
         statsRequest.setIsoCode(isoCode);
 
-        StatsResponse response = statsService.getStats(statsRequest);
+        StatsResponse response = statsService.getStats(statsRequest).block();
 
         assertPathEquals("/v1/stats");
 
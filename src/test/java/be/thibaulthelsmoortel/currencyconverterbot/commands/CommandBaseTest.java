@@ -25,14 +25,18 @@ import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
 import net.dv8tion.jda.api.events.Event;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
 import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageEditAction;
 import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
@@ -48,6 +52,9 @@ public abstract class CommandBaseTest extends BaseTest {
     @Mock
     protected MessageChannelUnion messageChannelUnion;
 
+    @Mock
+    protected InteractionHook interactionHook;
+
     @BeforeEach
     protected void setUp() {
         Mockito.when(slashCommandInteractionEvent.getChannel()).thenReturn(messageChannelUnion);
@@ -58,6 +65,17 @@ public abstract class CommandBaseTest extends BaseTest {
                 .thenReturn(Mockito.mock(ReplyCallbackAction.class));
         Mockito.when(messageChannelUnion.sendMessage(ArgumentMatchers.anyString()))
                 .thenReturn(Mockito.mock(MessageCreateAction.class));
+        Mockito.when(slashCommandInteractionEvent.getHook()).thenReturn(interactionHook);
+        Mockito.when(interactionHook.editOriginal(ArgumentMatchers.anyString()))
+                .thenReturn(Mockito.mock(WebhookMessageEditAction.class));
+        Mockito.when(interactionHook.editOriginalEmbeds(ArgumentMatchers.any(MessageEmbed.class)))
+                .thenReturn(Mockito.mock(WebhookMessageEditAction.class));
+    }
+
+    void mockOption(String name, String value) {
+        OptionMapping option = Mockito.mock(OptionMapping.class);
+        Mockito.when(option.getAsString()).thenReturn(value);
+        Mockito.when(slashCommandInteractionEvent.getOption(name)).thenReturn(option);
     }
 
     void verifyOneMessageReplied() {
@@ -75,10 +93,26 @@ public abstract class CommandBaseTest extends BaseTest {
         Mockito.verify(slashCommandInteraction).reply(message);
     }
 
+    void verifyOneDeferredMessageReplied() {
+        Mockito.verify(slashCommandInteractionEvent).getHook();
+        Mockito.verify(interactionHook).editOriginal(ArgumentMatchers.anyString());
+    }
+
+    void verifyOneDeferredMessageReplied(MessageEmbed embed) {
+        Mockito.verify(slashCommandInteractionEvent).getHook();
+        Mockito.verify(interactionHook).editOriginalEmbeds(embed);
+    }
+
+    void verifyOneDeferredMessageReplied(String message) {
+        Mockito.verify(slashCommandInteractionEvent).getHook();
+        Mockito.verify(interactionHook).editOriginal(message);
+    }
+
     void verifyDoNotProcessEvent(BotCommand<?> botCommand, Event event) throws Exception {
         botCommand.setEvent(event);
 
-        String message = (String) botCommand.call();
+        Object result = botCommand.call();
+        Object message = result instanceof Mono<?> reply ? reply.block() : result;
 
         Assertions.assertNull(message, "Message should not be processed.");
         verifyNoMoreJDAInteractions();
@@ -19,10 +19,15 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.commands;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionResponse;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.service.ConversionService;
+import be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service.DegradedModeService;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.events.Event;
 import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
@@ -36,6 +41,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
@@ -48,6 +54,9 @@ class ConvertCommandTest extends CommandBaseTest {
     @Mock
     private ConversionService conversionService;
 
+    @Mock
+    private DegradedModeService degradedModeService;
+
     @Override
     @BeforeEach
     protected void setUp() {
@@ -73,16 +82,58 @@ class ConvertCommandTest extends CommandBaseTest {
 
         ConversionResponse conversionResponse = new ConversionResponse();
         conversionResponse.setResult(BigDecimal.valueOf(3.33));
-        Mockito.when(conversionService.getConversion(conversionRequest)).thenReturn(conversionResponse);
+        Mockito.when(conversionService.getConversion(conversionRequest)).thenReturn(Mono.just(conversionResponse));
 
-        String message = convertCommand.call();
+        String message = convertCommand.call().block();
 
         Assertions.assertTrue(StringUtils.isNotBlank(message), "Message should not be empty.");
         Assertions.assertTrue(message.contains(eurIso), "Message should contain EUR.");
         Assertions.assertTrue(message.contains(usdIso), "Message should contain USD.");
         Assertions.assertTrue(message.contains(String.valueOf(conversionResponse.getResult())),
                 "Message should contain result.");
-        verifyOneMessageReplied(message);
+        verifyOneDeferredMessageReplied(message);
+    }
+
+    @DisplayName("Should send last known conversion when degraded.")
+    @Test
+    void shouldSendLastKnownConversionWhenDegraded() {
+        convertCommand.setSourceAmount(BigDecimal.TEN);
+        convertCommand.setSourceIsoCode("EUR");
+        convertCommand.setTargetIsoCode("USD");
+        Mockito.when(degradedModeService.isDegraded()).thenReturn(true);
+        Mockito.when(degradedModeService.convert(BigDecimal.TEN, "EUR", "USD"))
+                .thenReturn(Optional.of(new LastKnown<>(new BigDecimal("10.6"), Instant.now().minus(Duration.ofHours(3)))));
+
+        String message = convertCommand.call().block();
+
+        Assertions.assertEquals("10 EUR = 10.6 USD\nBased on rates of 3 hours ago, as the API is currently unavailable.",
+                message, "Message should contain the last known conversion and its age.");
+        Mockito.verifyNoInteractions(conversionService);
+        verifyOneDeferredMessageReplied(message);
+    }
+
+    @DisplayName("Should send error message when the conversion has no result.")
+    @Test
+    void shouldSendErrorMessageWhenConversionHasNoResult() {
+        BigDecimal sourceAmount = BigDecimal.valueOf(6);
+        String usdIso = "USD";
+        String eurIso = "EUR";
+
+        convertCommand.setSourceAmount(sourceAmount);
+        convertCommand.setSourceIsoCode(usdIso);
+        convertCommand.setTargetIsoCode(eurIso);
+
+        ConversionRequest conversionRequest = new ConversionRequest();
+        conversionRequest.setSourceAmount(sourceAmount);
+        conversionRequest.setSourceIsoCode(usdIso);
+        conversionRequest.setTargetIsoCode(eurIso);
+
+        Mockito.when(conversionService.getConversion(conversionRequest)).thenReturn(Mono.just(new ConversionResponse()));
+
+        String message = convertCommand.call().block();
+
+        Assertions.assertEquals(ConvertCommand.ERROR_MESSAGE, message, "Message should match.");
+        verifyOneDeferredMessageReplied(message);
     }
 
     @DisplayName("Should send error message.")
@@ -90,7 +141,7 @@ class ConvertCommandTest extends CommandBaseTest {
     void shouldSendErrorMessage() {
         BigDecimal sourceAmount = BigDecimal.valueOf(6);
         String usdIso = "USD";
-        String unrecognizedIsoCode = "KAR";
+        String unrecognizedIsoCode = "XXX";
 
         convertCommand.setSourceAmount(sourceAmount);
         convertCommand.setSourceIsoCode(usdIso);
@@ -101,15 +152,15 @@ class ConvertCommandTest extends CommandBaseTest {
         conversionRequest.setSourceIsoCode(usdIso);
         conversionRequest.setTargetIsoCode(unrecognizedIsoCode);
 
-        Mockito.when(conversionService.getConversion(conversionRequest)).thenReturn(null);
+        Mockito.when(conversionService.getConversion(conversionRequest)).thenReturn(Mono.empty());
 
-        String message = convertCommand.call();
+        String message = convertCommand.call().block();
 
         Assertions.assertTrue(StringUtils.isNotBlank(message), "Message should not be empty.");
         Assertions.assertEquals(
                 "Unable to perform the conversion request. Please verify the input parameters and try again. If the issue persists, please make sure to report the issue via the 'issue' command.",
                 message, "Message should match.");
-        verifyOneMessageReplied(message);
+        verifyOneDeferredMessageReplied(message);
     }
 
     @DisplayName("Should handle WebClientResponseException.")
@@ -128,16 +179,40 @@ class ConvertCommandTest extends CommandBaseTest {
         conversionRequest.setSourceIsoCode(usdIso);
         conversionRequest.setTargetIsoCode(eurIso);
 
-        Mockito.when(conversionService.getConversion(conversionRequest)).thenThrow(WebClientResponseException.class);
+        Mockito.when(conversionService.getConversion(conversionRequest)).thenReturn(Mono.error(Mockito.mock(WebClientResponseException.class)));
 
         Mockito.when(messageChannelUnion.sendMessageEmbeds(ArgumentMatchers.any(MessageEmbed.class)))
                 .thenReturn(Mockito.mock(MessageCreateAction.class));
 
-        String message = convertCommand.call();
+        String message = convertCommand.call().block();
 
         Assertions.assertTrue(StringUtils.isNotBlank(message), "Message should not be empty.");
         Assertions.assertEquals(ConvertCommand.ERROR_MESSAGE, message, "Message should be correct.");
-        verifyOneMessageReplied(message);
+        verifyOneDeferredMessageReplied(message);
+    }
+
+    @DisplayName("Should bind options.")
+    @Test
+    void shouldBindOptions() {
+        mockOption("source_amount", "10");
+        mockOption("source_iso_code", "usd");
+        mockOption("target_iso_code", "eur");
+
+        ConversionRequest conversionRequest = new ConversionRequest();
+        conversionRequest.setSourceAmount(BigDecimal.TEN);
+        conversionRequest.setSourceIsoCode("USD");
+        conversionRequest.setTargetIsoCode("EUR");
+
+        ConversionResponse conversionResponse = new ConversionResponse();
+        conversionResponse.setResult(BigDecimal.valueOf(9.25));
+        Mockito.when(conversionService.getConversion(conversionRequest)).thenReturn(Mono.just(conversionResponse));
+
+        Assertions.assertTrue(convertCommand.bindOptions(slashCommandInteractionEvent), "Options should be bound.");
+
+        String message = convertCommand.call().block();
+
+        Assertions.assertEquals("10 USD = 9.25 EUR", message, "Message should match the bound options.");
+        verifyOneDeferredMessageReplied(message);
     }
 
     @DisplayName("Should not process event.")
@@ -19,8 +19,13 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.commands;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
+import be.thibaulthelsmoortel.currencyconverterbot.client.CircuitBreaker.State;
+import be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service.DegradedModeService;
 import be.thibaulthelsmoortel.currencyconverterbot.client.health.payload.HealthResponse;
 import be.thibaulthelsmoortel.currencyconverterbot.client.health.service.HealthServiceBean;
+import be.thibaulthelsmoortel.currencyconverterbot.exceptions.ApiUnavailableException;
+import java.util.Map;
 import net.dv8tion.jda.api.events.Event;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
@@ -28,6 +33,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
@@ -40,6 +46,12 @@ class HealthCommandTest extends CommandBaseTest {
     @Mock
     private HealthServiceBean healthServiceBean;
 
+    @Mock
+    private ApiCallGuard apiCallGuard;
+
+    @Mock
+    private DegradedModeService degradedModeService;
+
     @DisplayName("Should return health.")
     @Test
     void shouldReturnHealth() {
@@ -47,14 +59,64 @@ class HealthCommandTest extends CommandBaseTest {
 
         HealthResponse healthResponse = new HealthResponse();
         healthResponse.setStatus("UP");
-        Mockito.when(healthServiceBean.getHealth()).thenReturn(healthResponse);
+        Mockito.when(healthServiceBean.getHealth()).thenReturn(Mono.just(healthResponse));
 
-        String message = healthCommand.call();
+        String message = healthCommand.call().block();
 
         Assertions.assertNotNull(message, "Health must not be null.");
-        Assertions.assertEquals("Status: " + healthServiceBean.getHealth().getStatus(), message, "Health must be correct.");
+        Assertions.assertEquals("Status: " + healthResponse.getStatus(), message, "Health must be correct.");
+
+        verifyOneDeferredMessageReplied();
+    }
+
+    @DisplayName("Should return circuits that are not closed.")
+    @Test
+    void shouldReturnCircuitsNotClosed() {
+        healthCommand.setEvent(slashCommandInteractionEvent);
+
+        HealthResponse healthResponse = new HealthResponse();
+        healthResponse.setStatus("UP");
+        Mockito.when(healthServiceBean.getHealth()).thenReturn(Mono.just(healthResponse));
+        Mockito.when(apiCallGuard.getCircuitStates()).thenReturn(Map.of("/v1/rate", State.OPEN, "/v1/stats", State.CLOSED));
+
+        String message = healthCommand.call().block();
+
+        Assertions.assertEquals("Status: UP\nCircuit /v1/rate: OPEN", message, "Health must list the open circuit.");
+
+        verifyOneDeferredMessageReplied();
+    }
+
+    @DisplayName("Should report degraded mode.")
+    @Test
+    void shouldReportDegradedMode() {
+        healthCommand.setEvent(slashCommandInteractionEvent);
+
+        Mockito.when(healthServiceBean.getHealth())
+                .thenReturn(Mono.error(new ApiUnavailableException("/actuator/health", "circuit open")));
+        Mockito.when(degradedModeService.isDegraded()).thenReturn(true);
+
+        String message = healthCommand.call().block();
+
+        Assertions.assertEquals("Status: UNKNOWN\nDegraded mode: answering from the last known rates", message,
+                "Health must report the degraded mode.");
+
+        verifyOneDeferredMessageReplied();
+    }
+
+    @DisplayName("Should return unknown status when the API is unavailable.")
+    @Test
+    void shouldReturnUnknownStatus() {
+        healthCommand.setEvent(slashCommandInteractionEvent);
+
+        Mockito.when(healthServiceBean.getHealth())
+                .thenReturn(Mono.error(new ApiUnavailableException("/actuator/health", "circuit open")));
+        Mockito.when(apiCallGuard.getCircuitStates()).thenReturn(Map.of("/actuator/health", State.OPEN));
+
+        String message = healthCommand.call().block();
+
+        Assertions.assertEquals("Status: UNKNOWN\nCircuit /actuator/health: OPEN", message, "Health must be unknown.");
 
-        verifyOneMessageReplied();
+        verifyOneDeferredMessageReplied();
     }
 
     @DisplayName("Should not process event.")
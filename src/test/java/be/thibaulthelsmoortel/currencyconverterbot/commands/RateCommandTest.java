@@ -19,10 +19,15 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.commands;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service.DegradedModeService;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateResponse;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rate.service.RateService;
+import be.thibaulthelsmoortel.currencyconverterbot.exceptions.ApiUnavailableException;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.events.Event;
 import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
@@ -37,6 +42,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
@@ -49,6 +55,9 @@ class RateCommandTest extends CommandBaseTest {
     @Mock
     private RateService rateService;
 
+    @Mock
+    private DegradedModeService degradedModeService;
+
     @Override
     @BeforeEach
     protected void setUp() {
@@ -70,29 +79,42 @@ class RateCommandTest extends CommandBaseTest {
         RateResponse response = new RateResponse();
         response.setTargetIsoCode(isoCode);
         response.setResult(BigDecimal.TEN);
-        Mockito.when(rateService.getRate(rateRequest)).thenReturn(response);
+        Mockito.when(rateService.getRate(rateRequest)).thenReturn(Mono.just(response));
 
-        String message = rateCommand.call();
+        String message = rateCommand.call().block();
 
         Assertions.assertTrue(StringUtils.isNotBlank(message), "Message should not be empty.");
         Assertions.assertTrue(message.contains(isoCode), "Message should contain USD.");
         Assertions.assertTrue(message.contains(rateRequest.getBaseIsoCode()), "Message should contain base iso code.");
         Assertions.assertTrue(message.contains(response.getResult().toString()), "Message should contain result.");
-        verifyOneMessageReplied(message);
+        verifyOneDeferredMessageReplied(message);
+    }
+
+    @DisplayName("Should send error message when the rate has no result.")
+    @Test
+    void shouldSendErrorMessageWhenRateHasNoResult() {
+        rateCommand.setIsoCode("USD");
+        Mockito.when(rateService.getRate(ArgumentMatchers.any(RateRequest.class))).thenReturn(Mono.just(new RateResponse()));
+
+        String message = rateCommand.call().block();
+
+        Assertions.assertEquals(RateCommand.ERROR_MESSAGE, message, "Message should match.");
+        verifyOneDeferredMessageReplied(message);
     }
 
     @DisplayName("Should send error message.")
     @Test
     void shouldSendErrorMessage() {
-        String isoCode = "KAR";
+        String isoCode = "XXX";
         rateCommand.setIsoCode(isoCode);
-        String message = rateCommand.call();
+        Mockito.when(rateService.getRate(ArgumentMatchers.any(RateRequest.class))).thenReturn(Mono.empty());
+        String message = rateCommand.call().block();
 
         Assertions.assertTrue(StringUtils.isNotBlank(message), "Message should not be empty.");
         Assertions.assertEquals(
                 "Unable to perform the rate request. Please verify the input parameters and try again. If the issue persists, please make sure to report the issue via the 'issue' command.",
                 message, "Message should match.");
-        verifyOneMessageReplied(message);
+        verifyOneDeferredMessageReplied(message);
     }
 
     @DisplayName("Should handle WebClientResponseException.")
@@ -104,16 +126,84 @@ class RateCommandTest extends CommandBaseTest {
         rateRequest.setTargetIsoCode("EUR");
         rateRequest.setBaseIsoCode("EUR");
 
-        Mockito.when(rateService.getRate(rateRequest)).thenThrow(WebClientResponseException.class);
+        Mockito.when(rateService.getRate(rateRequest)).thenReturn(Mono.error(Mockito.mock(WebClientResponseException.class)));
 
         Mockito.when(messageChannelUnion.sendMessageEmbeds(ArgumentMatchers.any(MessageEmbed.class)))
                 .thenReturn(Mockito.mock(MessageCreateAction.class));
 
-        String message = rateCommand.call();
+        String message = rateCommand.call().block();
 
         Assertions.assertTrue(StringUtils.isNotBlank(message), "Message should not be empty.");
         Assertions.assertEquals(RateCommand.ERROR_MESSAGE, message, "Message should be correct.");
-        verifyOneMessageReplied(message);
+        verifyOneDeferredMessageReplied(message);
+    }
+
+    @DisplayName("Should send error message when the API is unavailable.")
+    @Test
+    void shouldSendErrorMessageWhenApiUnavailable() {
+        rateCommand.setIsoCode("USD");
+
+        Mockito.when(rateService.getRate(ArgumentMatchers.any(RateRequest.class)))
+                .thenReturn(Mono.error(new ApiUnavailableException("/v1/rate", "circuit open")));
+
+        String message = rateCommand.call().block();
+
+        Assertions.assertEquals(RateCommand.ERROR_MESSAGE, message, "Message should be correct.");
+        verifyOneDeferredMessageReplied(message);
+    }
+
+    @DisplayName("Should send last known rate when degraded.")
+    @Test
+    void shouldSendLastKnownRateWhenDegraded() {
+        rateCommand.setIsoCode("USD");
+        Mockito.when(degradedModeService.isDegraded()).thenReturn(true);
+        Mockito.when(degradedModeService.getRate("EUR", "USD"))
+                .thenReturn(Optional.of(new LastKnown<>(new BigDecimal("1.06"), Instant.now().minusSeconds(600))));
+
+        String message = rateCommand.call().block();
+
+        Assertions.assertEquals("1 EUR = 1.06 USD\nBased on rates of 10 minutes ago, as the API is currently unavailable.",
+                message, "Message should contain the last known rate and its age.");
+        Mockito.verifyNoInteractions(rateService);
+        verifyOneDeferredMessageReplied(message);
+    }
+
+    @DisplayName("Should send last known rate when the API is unavailable.")
+    @Test
+    void shouldSendLastKnownRateWhenApiUnavailable() {
+        rateCommand.setIsoCode("USD");
+        Mockito.when(rateService.getRate(ArgumentMatchers.any(RateRequest.class)))
+                .thenReturn(Mono.error(new ApiUnavailableException("/v1/rate", "circuit open")));
+        Mockito.when(degradedModeService.getRate("EUR", "USD"))
+                .thenReturn(Optional.of(new LastKnown<>(new BigDecimal("1.06"), Instant.now())));
+
+        String message = rateCommand.call().block();
+
+        Assertions.assertEquals("1 EUR = 1.06 USD\nBased on rates of less than a minute ago, as the API is currently unavailable.",
+                message, "Message should contain the last known rate.");
+        verifyOneDeferredMessageReplied(message);
+    }
+
+    @DisplayName("Should bind options with default base currency.")
+    @Test
+    void shouldBindOptionsWithDefaultBaseCurrency() {
+        rateCommand.setBaseCurrencyIsoCode(null);
+        mockOption("iso_code", "usd");
+
+        Assertions.assertTrue(rateCommand.bindOptions(slashCommandInteractionEvent), "Options should be bound.");
+
+        RateRequest rateRequest = new RateRequest();
+        rateRequest.setBaseIsoCode("EUR");
+        rateRequest.setTargetIsoCode("USD");
+
+        RateResponse response = new RateResponse();
+        response.setResult(BigDecimal.TEN);
+        Mockito.when(rateService.getRate(rateRequest)).thenReturn(Mono.just(response));
+
+        String message = rateCommand.call().block();
+
+        Assertions.assertEquals("1 EUR = 10 USD", message, "Message should match the bound options.");
+        verifyOneDeferredMessageReplied(message);
     }
 
     @DisplayName("Should not process event.")
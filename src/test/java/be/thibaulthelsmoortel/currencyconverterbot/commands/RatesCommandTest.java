@@ -19,12 +19,17 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.commands;
 
-import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.LastKnown;
+import be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service.DegradedModeService;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesRequest;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.payload.RatesResponse;
 import be.thibaulthelsmoortel.currencyconverterbot.client.rates.service.RatesService;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Objects;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.events.Event;
@@ -39,6 +44,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
@@ -51,6 +57,9 @@ class RatesCommandTest extends CommandBaseTest {
     @Mock
     private RatesService ratesService;
 
+    @Mock
+    private DegradedModeService degradedModeService;
+
     @Override
     @BeforeEach
     protected void setUp() {
@@ -65,24 +74,15 @@ class RatesCommandTest extends CommandBaseTest {
         RatesRequest ratesRequest = new RatesRequest();
         ratesRequest.setBaseIsoCode("EUR");
 
-        RateResponse usdRate = new RateResponse();
-        usdRate.setTargetIsoCode("USD");
-        usdRate.setResult(BigDecimal.TEN);
-
-        RateResponse cadRate = new RateResponse();
-        cadRate.setTargetIsoCode("CAD");
-        cadRate.setResult(BigDecimal.valueOf(25));
+        RatesResponse ratesResponse = RatesResponse.of(ratesRequest.getBaseIsoCode(), Set.of(),
+                Map.of("USD", BigDecimal.TEN, "CAD", BigDecimal.valueOf(25)));
 
-        RatesResponse ratesResponse = new RatesResponse();
-        ratesResponse.setBaseIsoCode(ratesRequest.getBaseIsoCode());
-        ratesResponse.setRates(Set.of(usdRate, cadRate));
-
-        Mockito.when(ratesService.getRates(ratesRequest)).thenReturn(ratesResponse);
+        Mockito.when(ratesService.getRates(ratesRequest)).thenReturn(Mono.just(ratesResponse));
 
         Mockito.when(messageChannelUnion.sendMessageEmbeds(ArgumentMatchers.any(MessageEmbed.class)))
                 .thenReturn(Mockito.mock(MessageCreateAction.class));
 
-        MessageEmbed embed = ratesCommand.call();
+        MessageEmbed embed = ratesCommand.call().block();
 
         Assertions.assertNotNull(embed, "Message should not be null.");
         Assertions.assertTrue(StringUtils.isNotBlank(embed.getTitle()), "Title should not be empty.");
@@ -90,7 +90,7 @@ class RatesCommandTest extends CommandBaseTest {
                 "Message should contain USD.");
         Assertions.assertTrue(embed.getFields().stream().anyMatch(field -> Objects.equals(field.getName(), "CAD")),
                 "Message should contain CAD.");
-        verifyOneMessageReplied(embed);
+        verifyOneDeferredMessageReplied(embed);
     }
 
     @DisplayName("Should handle WebClientResponseException.")
@@ -99,16 +99,36 @@ class RatesCommandTest extends CommandBaseTest {
         RatesRequest ratesRequest = new RatesRequest();
         ratesRequest.setBaseIsoCode("EUR");
 
-        Mockito.when(ratesService.getRates(ratesRequest)).thenThrow(WebClientResponseException.class);
+        Mockito.when(ratesService.getRates(ratesRequest)).thenReturn(Mono.error(Mockito.mock(WebClientResponseException.class)));
 
         Mockito.when(messageChannelUnion.sendMessageEmbeds(ArgumentMatchers.any(MessageEmbed.class)))
                 .thenReturn(Mockito.mock(MessageCreateAction.class));
 
-        MessageEmbed embed = ratesCommand.call();
+        MessageEmbed embed = ratesCommand.call().block();
 
         Assertions.assertNotNull(embed, "Message should not be null.");
         Assertions.assertEquals(RatesCommand.ERROR_MESSAGE, embed.getDescription(), "Message should be correct.");
-        verifyOneMessageReplied(embed);
+        verifyOneDeferredMessageReplied(embed);
+    }
+
+    @DisplayName("Should send last known rates with their age when degraded.")
+    @Test
+    void shouldSendLastKnownRatesWhenDegraded() {
+        RatesResponse ratesResponse = RatesResponse.of("EUR", Set.of(), Map.of("USD", BigDecimal.TEN));
+        Mockito.when(degradedModeService.isDegraded()).thenReturn(true);
+        Mockito.when(degradedModeService.getRates("EUR"))
+                .thenReturn(Optional.of(new LastKnown<>(ratesResponse, Instant.now().minus(Duration.ofDays(3)))));
+
+        MessageEmbed embed = ratesCommand.call().block();
+
+        Assertions.assertNotNull(embed, "Message should not be null.");
+        Assertions.assertTrue(embed.getFields().stream().anyMatch(field -> Objects.equals(field.getName(), "USD")),
+                "Message should contain USD.");
+        Assertions.assertNotNull(embed.getFooter(), "Footer should not be null.");
+        Assertions.assertEquals("Based on rates of 3 days ago, as the API is currently unavailable.",
+                embed.getFooter().getText(), "Footer should show the age of the rates.");
+        Mockito.verifyNoInteractions(ratesService);
+        verifyOneDeferredMessageReplied(embed);
     }
 
     @DisplayName("Should not process event.")
@@ -38,6 +38,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 /**
  * @author Thibault Helsmoortel
@@ -97,12 +98,12 @@ class StatsCommandTest extends CommandBaseTest {
         statsResponse.setConversionsWithTarget(conversionsWithTarget);
         statsResponse.setMostConversionsWithTarget(mostConversionsWithTarget);
 
-        Mockito.when(statsService.getStats(statsRequest)).thenReturn(statsResponse);
+        Mockito.when(statsService.getStats(statsRequest)).thenReturn(Mono.just(statsResponse));
 
         Mockito.when(messageChannelUnion.sendMessageEmbeds(ArgumentMatchers.any(MessageEmbed.class)))
                 .thenReturn(Mockito.mock(MessageCreateAction.class));
 
-        MessageEmbed embed = statsCommand.call();
+        MessageEmbed embed = statsCommand.call().block();
 
         Assertions.assertNotNull(embed, "Message should not be null.");
         Assertions.assertTrue(StringUtils.isNotBlank(embed.getTitle()), "Title should not be empty.");
@@ -141,16 +142,16 @@ class StatsCommandTest extends CommandBaseTest {
         StatsRequest statsRequest = new StatsRequest();
         statsRequest.setIsoCode("EUR");
 
-        Mockito.when(statsService.getStats(statsRequest)).thenThrow(WebClientResponseException.class);
+        Mockito.when(statsService.getStats(statsRequest)).thenReturn(Mono.error(Mockito.mock(WebClientResponseException.class)));
 
         Mockito.when(messageChannelUnion.sendMessageEmbeds(ArgumentMatchers.any(MessageEmbed.class)))
                 .thenReturn(Mockito.mock(MessageCreateAction.class));
 
-        MessageEmbed embed = statsCommand.call();
+        MessageEmbed embed = statsCommand.call().block();
 
         Assertions.assertNotNull(embed, "Message should not be null.");
         Assertions.assertEquals(StatsCommand.ERROR_MESSAGE, embed.getDescription(), "Message should be correct.");
-        verifyOneMessageReplied(embed);
+        verifyOneDeferredMessageReplied(embed);
     }
 
     @DisplayName("Should not process event.")
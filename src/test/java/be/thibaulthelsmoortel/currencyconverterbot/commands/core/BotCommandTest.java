@@ -19,9 +19,19 @@
 
 package be.thibaulthelsmoortel.currencyconverterbot.commands.core;
 
+import be.thibaulthelsmoortel.currencyconverterbot.client.CurrencyCode;
 import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.service.ConversionService;
+import be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service.DegradedModeService;
+import be.thibaulthelsmoortel.currencyconverterbot.commands.AboutCommand;
 import be.thibaulthelsmoortel.currencyconverterbot.commands.CommandBaseTest;
 import be.thibaulthelsmoortel.currencyconverterbot.commands.ConvertCommand;
+import be.thibaulthelsmoortel.currencyconverterbot.config.DiscordBotEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.validation.SupportedCurrencies;
+import java.util.List;
+import java.util.Map;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -43,6 +53,9 @@ class BotCommandTest extends CommandBaseTest {
     @Mock
     private ConversionService conversionService;
 
+    @Mock
+    private DegradedModeService degradedModeService;
+
     @Mock
     private CommandLine.Model.CommandSpec spec;
 
@@ -52,6 +65,11 @@ class BotCommandTest extends CommandBaseTest {
         convertCommand.setEvent(slashCommandInteractionEvent);
     }
 
+    @AfterEach
+    void tearDown() {
+        SupportedCurrencies.setCurrent(SupportedCurrencies.getKnown());
+    }
+
     @DisplayName("Should throw ParameterException.")
     @Test
     void shouldThrowParameterException() {
@@ -66,4 +84,70 @@ class BotCommandTest extends CommandBaseTest {
         Mockito.verifyNoInteractions(conversionService);
         verifyNoMoreJDAInteractions();
     }
-}
\ No newline at end of file
+
+    @DisplayName("Should accept valid parameters.")
+    @Test
+    void shouldAcceptValidParameters() {
+        ConvertCommand boundCommand = createConvertCommand("10", "usd", "eur");
+
+        Assertions.assertDoesNotThrow(boundCommand::validate, "Valid parameters should be accepted.");
+    }
+
+    @DisplayName("Should reject invalid parameters.")
+    @Test
+    void shouldRejectInvalidParameters() {
+        ConvertCommand boundCommand = createConvertCommand("10", "usdollar", "eur");
+
+        ParameterException exception = Assertions.assertThrows(ParameterException.class, boundCommand::validate,
+                "Invalid parameters should be rejected.");
+        Assertions.assertTrue(exception.getMessage().contains("Error: "), "Violations should be reported.");
+    }
+
+    @DisplayName("Should reject unsupported currencies with a suggestion.")
+    @Test
+    void shouldRejectUnsupportedCurrencies() {
+        ConvertCommand boundCommand = createConvertCommand("10", "usd", "eux");
+
+        ParameterException exception = Assertions.assertThrows(ParameterException.class, boundCommand::validate,
+                "Unsupported currencies should be rejected.");
+        Assertions.assertTrue(exception.getMessage().contains("Currency ISO code invalid. Did you mean EUR?"),
+                "Closest supported currency should be suggested.");
+    }
+
+    @DisplayName("Should accept loaded supported currencies.")
+    @Test
+    void shouldAcceptLoadedSupportedCurrencies() {
+        SupportedCurrencies.setCurrent(SupportedCurrencies.of(List.of(CurrencyCode.of("EUR"), CurrencyCode.of("BTC"))));
+
+        Assertions.assertDoesNotThrow(createConvertCommand("10", "btc", "eur")::validate,
+                "Supported currencies should be accepted.");
+        Assertions.assertThrows(ParameterException.class, createConvertCommand("10", "usd", "eur")::validate,
+                "Currencies which are no longer supported should be rejected.");
+    }
+
+    @DisplayName("Should validate command without constraints.")
+    @Test
+    void shouldValidateCommandWithoutConstraints() {
+        AboutCommand aboutCommand = new AboutCommand(Mockito.mock(DiscordBotEnvironment.class));
+        BotCommand.prepareValidation(AboutCommand.class);
+
+        Assertions.assertDoesNotThrow(aboutCommand::validate, "Command without constraints should be valid.");
+    }
+
+    private static ConvertCommand createConvertCommand(String sourceAmount, String sourceIsoCode, String targetIsoCode) {
+        ConvertCommand boundCommand = new ConvertCommand(Mockito.mock(ConversionService.class),
+                Mockito.mock(DegradedModeService.class));
+        new CommandLine(boundCommand); // Injects the command spec
+
+        SlashCommandInteractionEvent event = Mockito.mock(SlashCommandInteractionEvent.class);
+        Map.of("source_amount", sourceAmount, "source_iso_code", sourceIsoCode, "target_iso_code", targetIsoCode)
+                .forEach((name, value) -> {
+                    OptionMapping option = Mockito.mock(OptionMapping.class);
+                    Mockito.when(option.getAsString()).thenReturn(value);
+                    Mockito.when(event.getOption(name)).thenReturn(option);
+                });
+        boundCommand.bindOptions(event);
+
+        return boundCommand;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.commands.core;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.ApiCallGuard;
+import be.thibaulthelsmoortel.currencyconverterbot.config.CommandExecutionEnvironment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class CommandExecutionEngineTest {
+
+    private MeterRegistry meterRegistry;
+    private CommandExecutionEngine commandExecutionEngine;
+
+    @BeforeEach
+    void setUp() {
+        CommandExecutionEnvironment environment = new CommandExecutionEnvironment();
+        environment.setMaxConcurrency(1);
+        environment.setQueueCapacity(1);
+        meterRegistry = new SimpleMeterRegistry();
+        commandExecutionEngine = new CommandExecutionEngine(environment, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        commandExecutionEngine.destroy();
+    }
+
+    @DisplayName("Should execute submitted task off the calling thread.")
+    @Test
+    void shouldExecuteSubmittedTask() throws InterruptedException {
+        Thread caller = Thread.currentThread();
+        CountDownLatch executed = new CountDownLatch(1);
+        Thread[] executor = new Thread[1];
+
+        boolean submitted = commandExecutionEngine.submit(Mockito.mock(SlashCommandInteractionEvent.class), () -> {
+            executor[0] = Thread.currentThread();
+            executed.countDown();
+        });
+
+        Assertions.assertTrue(submitted, "Task should be submitted.");
+        Assertions.assertTrue(executed.await(5, TimeUnit.SECONDS), "Task should be executed.");
+        Assertions.assertNotEquals(caller, executor[0], "Task should not be executed on the calling thread.");
+    }
+
+    @DisplayName("Should reject task when queue is full.")
+    @Test
+    void shouldRejectTaskWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SlashCommandInteractionEvent event = Mockito.mock(SlashCommandInteractionEvent.class);
+        ReplyCallbackAction replyAction = Mockito.mock(ReplyCallbackAction.class);
+        Mockito.when(event.reply(CommandExecutionEngine.BUSY_MESSAGE)).thenReturn(replyAction);
+        Mockito.when(replyAction.setEphemeral(true)).thenReturn(replyAction);
+
+        try {
+            // Occupy the only worker and the only queue slot
+            Assertions.assertTrue(commandExecutionEngine.submit(event, () -> {
+                started.countDown();
+                awaitQuietly(release);
+            }), "Task should be submitted.");
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS), "Task should be started.");
+            Assertions.assertTrue(commandExecutionEngine.submit(event, () -> { }), "Task should be queued.");
+            Assertions.assertEquals(1, commandExecutionEngine.getQueueDepth(), "Queue should contain one task.");
+
+            boolean submitted = commandExecutionEngine.submit(event, () -> { });
+
+            Assertions.assertFalse(submitted, "Task should be rejected.");
+            Mockito.verify(event).reply(CommandExecutionEngine.BUSY_MESSAGE);
+            Mockito.verify(replyAction).setEphemeral(true);
+            Mockito.verify(replyAction).queue();
+            Assertions.assertEquals(1, meterRegistry.get("bot.commands.rejected").counter().count(),
+                    "Rejection should be counted.");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @DisplayName("Should count exceeded deadline.")
+    @Test
+    void shouldCountExceededDeadline() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        SlashCommandInteractionEvent event = Mockito.mock(SlashCommandInteractionEvent.class);
+        Mockito.when(event.getName()).thenReturn("convert");
+
+        try {
+            boolean submitted = commandExecutionEngine.submit(event, () -> Mono.fromRunnable(() -> awaitQuietly(release)),
+                    Duration.ofMillis(10), () -> true);
+
+            Assertions.assertTrue(submitted, "Task should be submitted.");
+            Mockito.verify(event, Mockito.timeout(5000)).getCommandString();
+            Assertions.assertEquals(1, meterRegistry.get("bot.commands.deadline.exceeded").tag("command", "convert").counter().count(),
+                    "Exceeded deadline should be counted.");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @DisplayName("Should release thread while command completes asynchronously.")
+    @Test
+    void shouldReleaseThreadWhileCommandCompletesAsynchronously() throws InterruptedException {
+        Sinks.Empty<Void> completion = Sinks.empty();
+        CountDownLatch executed = new CountDownLatch(1);
+        SlashCommandInteractionEvent event = Mockito.mock(SlashCommandInteractionEvent.class);
+
+        try {
+            Assertions.assertTrue(commandExecutionEngine.submit(event, completion::asMono, null, null), "Task should be submitted.");
+            Assertions.assertTrue(commandExecutionEngine.submit(event, executed::countDown), "Task should be submitted.");
+
+            Assertions.assertTrue(executed.await(5, TimeUnit.SECONDS), "Task should be executed while the other one is pending.");
+        } finally {
+            completion.tryEmitEmpty();
+        }
+    }
+
+    @DisplayName("Should keep deadline until command completed asynchronously.")
+    @Test
+    void shouldKeepDeadlineUntilAsynchronousCompletion() {
+        Sinks.Empty<Void> completion = Sinks.empty();
+        SlashCommandInteractionEvent event = Mockito.mock(SlashCommandInteractionEvent.class);
+        Mockito.when(event.getName()).thenReturn("rates");
+
+        try {
+            boolean submitted = commandExecutionEngine.submit(event, completion::asMono, Duration.ofMillis(10), () -> true);
+
+            Assertions.assertTrue(submitted, "Task should be submitted.");
+            Mockito.verify(event, Mockito.timeout(5000)).getCommandString();
+            Assertions.assertEquals(1, meterRegistry.get("bot.commands.deadline.exceeded").tag("command", "rates").counter().count(),
+                    "Exceeded deadline should be counted.");
+        } finally {
+            completion.tryEmitEmpty();
+        }
+    }
+
+    @DisplayName("Should provide deadline to the command's completion.")
+    @Test
+    void shouldProvideDeadlineToCompletion() throws InterruptedException {
+        AtomicReference<Instant> deadline = new AtomicReference<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        Instant submittedAt = Instant.now();
+
+        boolean submitted = commandExecutionEngine.submit(Mockito.mock(SlashCommandInteractionEvent.class),
+                () -> Mono.deferContextual(context -> {
+                    deadline.set(context.get(ApiCallGuard.DEADLINE_CONTEXT_KEY));
+                    completed.countDown();
+
+                    return Mono.empty();
+                }), Duration.ofSeconds(10), () -> true);
+
+        Assertions.assertTrue(submitted, "Task should be submitted.");
+        Assertions.assertTrue(completed.await(5, TimeUnit.SECONDS), "Completion should be subscribed to.");
+        Assertions.assertFalse(deadline.get().isBefore(submittedAt.plusSeconds(10)), "Deadline should be provided.");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.commands.core;
+
+import be.thibaulthelsmoortel.currencyconverterbot.BaseTest;
+import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionRequest;
+import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.payload.ConversionResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.service.ConversionService;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateRequest;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rate.payload.RateResponse;
+import be.thibaulthelsmoortel.currencyconverterbot.client.rate.service.RateService;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageEditAction;
+import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+@TestPropertySource(properties = {
+        "bot.execution.queue-capacity=" + CommandExecutorConcurrencyTest.INVOCATIONS,
+        "bot.execution.deadline=1m"
+})
+class CommandExecutorConcurrencyTest extends BaseTest {
+
+    static final int INVOCATIONS = 2_000;
+    private static final int THREADS = 32;
+    private static final long TIMEOUT = 30_000L;
+    private static final Duration API_LATENCY = Duration.ofMillis(10);
+
+    private static final String[] ISO_CODES = {"EUR", "USD", "GBP", "JPY", "CAD", "CHF", "AUD", "SEK"};
+
+    @Autowired
+    private CommandExecutor commandExecutor;
+
+    @MockBean
+    private ConversionService conversionService;
+
+    @MockBean
+    private RateService rateService;
+
+    @BeforeEach
+    void setUp() {
+        // Derive every result from its own request, so replies can be matched to their input
+        Mockito.when(conversionService.getConversion(ArgumentMatchers.any(ConversionRequest.class))).thenAnswer(invocation -> {
+            ConversionRequest request = invocation.getArgument(0);
+            ConversionResponse response = new ConversionResponse();
+            response.setResult(request.getSourceAmount().multiply(BigDecimal.valueOf(2)));
+            return Mono.just(response).delayElement(API_LATENCY);
+        });
+        Mockito.when(rateService.getRate(ArgumentMatchers.any(RateRequest.class))).thenAnswer(invocation -> {
+            RateRequest request = invocation.getArgument(0);
+            RateResponse response = new RateResponse();
+            response.setResult(BigDecimal.valueOf(indexOf(request.getBaseIsoCode()) * 10L + indexOf(request.getTargetIsoCode())));
+            return Mono.just(response).delayElement(API_LATENCY);
+        });
+    }
+
+    @DisplayName("Should isolate the state of concurrently executed commands.")
+    @Test
+    void shouldIsolateStateOfConcurrentlyExecutedCommands() throws Exception {
+        List<Invocation> invocations = new ArrayList<>();
+        for (int i = 0; i < INVOCATIONS; i++) {
+            String source = ISO_CODES[i % ISO_CODES.length];
+            String target = ISO_CODES[(i / ISO_CODES.length) % ISO_CODES.length];
+            if (i % 2 == 0) {
+                invocations.add(mockInvocation("convert", Map.of(
+                                "source_amount", String.valueOf(i),
+                                "source_iso_code", source,
+                                "target_iso_code", target),
+                        i + " " + source + " = " + i * 2 + " " + target));
+            } else {
+                invocations.add(mockInvocation("rate", Map.of(
+                                "iso_code", target,
+                                "base_iso_code", source),
+                        "1 " + source + " = " + (indexOf(source) * 10L + indexOf(target)) + " " + target));
+            }
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Boolean>> tasks = invocations.stream()
+                    .map(invocation -> (Callable<Boolean>) () -> commandExecutor.tryExecute(invocation.event(), invocation.commandMessage()))
+                    .toList();
+            for (Future<Boolean> executed : executorService.invokeAll(tasks)) {
+                Assertions.assertTrue(executed.get(), "Command should be submitted.");
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        invocations.forEach(invocation -> Mockito.verify(invocation.interactionHook(), Mockito.timeout(TIMEOUT))
+                .editOriginal(invocation.expectedReply()));
+    }
+
+    private Invocation mockInvocation(String commandName, Map<String, String> options, String expectedReply) {
+        SlashCommandInteractionEvent event = Mockito.mock(SlashCommandInteractionEvent.class);
+        InteractionHook interactionHook = Mockito.mock(InteractionHook.class);
+        Mockito.when(event.deferReply()).thenReturn(Mockito.mock(ReplyCallbackAction.class));
+        Mockito.when(event.getHook()).thenReturn(interactionHook);
+        Mockito.when(interactionHook.editOriginal(ArgumentMatchers.anyString())).thenReturn(Mockito.mock(WebhookMessageEditAction.class));
+
+        StringBuilder commandMessage = new StringBuilder(commandName);
+        options.forEach((name, value) -> {
+            OptionMapping option = Mockito.mock(OptionMapping.class);
+            Mockito.when(option.getAsString()).thenReturn(value);
+            Mockito.when(event.getOption(name)).thenReturn(option);
+            commandMessage.append(' ').append(name).append(": ").append(value);
+        });
+
+        return new Invocation(event, interactionHook, commandMessage.toString(), expectedReply);
+    }
+
+    private static int indexOf(String isoCode) {
+        for (int i = 0; i < ISO_CODES.length; i++) {
+            if (ISO_CODES[i].equals(isoCode)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private record Invocation(SlashCommandInteractionEvent event, InteractionHook interactionHook,
+                              String commandMessage, String expectedReply) {
+
+    }
+}
@@ -20,12 +20,28 @@
 package be.thibaulthelsmoortel.currencyconverterbot.commands.core;
 
 import be.thibaulthelsmoortel.currencyconverterbot.BaseTest;
+import be.thibaulthelsmoortel.currencyconverterbot.client.conversion.service.ConversionService;
+import be.thibaulthelsmoortel.currencyconverterbot.client.degraded.service.DegradedModeService;
 import be.thibaulthelsmoortel.currencyconverterbot.commands.AboutCommand;
+import be.thibaulthelsmoortel.currencyconverterbot.commands.ConvertCommand;
+import be.thibaulthelsmoortel.currencyconverterbot.config.CommandExecutionEnvironment;
+import be.thibaulthelsmoortel.currencyconverterbot.config.DiscordBotEnvironment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
 import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageEditAction;
 import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,18 +50,25 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
 
 /**
  * @author Thibault Helsmoortel
  */
 class CommandExecutorTest extends BaseTest {
 
+    private static final long TIMEOUT = 5000L;
+
     private final CommandExecutor commandExecutor;
 
     private final AboutCommand aboutCommand;
 
+    private final List<BotCommand<?>> botCommands;
+
     @Mock
     private SlashCommandInteractionEvent slashCommandInteractionEvent;
 
@@ -56,9 +79,10 @@ class CommandExecutorTest extends BaseTest {
     private MessageChannelUnion messageChannelUnion;
 
     @Autowired
-    CommandExecutorTest(CommandExecutor commandExecutor, AboutCommand aboutCommand) {
+    CommandExecutorTest(CommandExecutor commandExecutor, AboutCommand aboutCommand, List<BotCommand<?>> botCommands) {
         this.commandExecutor = commandExecutor;
         this.aboutCommand = aboutCommand;
+        this.botCommands = botCommands;
     }
 
     @BeforeEach
@@ -67,6 +91,8 @@ class CommandExecutorTest extends BaseTest {
         Mockito.when(slashCommandInteractionEvent.getInteraction()).thenReturn(slashCommandInteraction);
         Mockito.when(slashCommandInteraction.replyEmbeds(ArgumentMatchers.any(MessageEmbed.class)))
                 .thenReturn(Mockito.mock(ReplyCallbackAction.class));
+        Mockito.when(slashCommandInteractionEvent.replyEmbeds(ArgumentMatchers.<MessageEmbed>anyCollection()))
+                .thenReturn(Mockito.mock(ReplyCallbackAction.class));
 
         MessageCreateAction messageCreateAction = Mockito.mock(MessageCreateAction.class);
         Mockito.when(messageChannelUnion.sendMessage(ArgumentMatchers.anyString())).thenReturn(messageCreateAction);
@@ -82,8 +108,7 @@ class CommandExecutorTest extends BaseTest {
         boolean executed = commandExecutor.tryExecute(slashCommandInteractionEvent, commandName);
 
         // Assuming the command sends a message back:
-        Mockito.verify(slashCommandInteractionEvent).getChannel();
-        Mockito.verify(slashCommandInteraction).replyEmbeds(ArgumentMatchers.any(MessageEmbed.class));
+        Mockito.verify(slashCommandInteraction, Mockito.timeout(TIMEOUT)).replyEmbeds(ArgumentMatchers.any(MessageEmbed.class));
         Mockito.verifyNoMoreInteractions(messageChannelUnion);
 
         Assertions.assertTrue(executed, "Command should be executed.");
@@ -97,9 +122,9 @@ class CommandExecutorTest extends BaseTest {
         aboutCommand.setEvent(slashCommandInteractionEvent);
         boolean executed = commandExecutor.tryExecute(slashCommandInteractionEvent, commandName);
 
-        // Assuming the command sends a message back:
-        Mockito.verify(slashCommandInteractionEvent).getChannel(); // Once for sending the message, once to pass to the output stream
-        Mockito.verify(messageChannelUnion).sendMessageEmbeds(Mockito.any(MessageEmbed.class));
+        // The usage help is replied at once:
+        Mockito.verify(slashCommandInteractionEvent, Mockito.timeout(TIMEOUT)).replyEmbeds(ArgumentMatchers.<MessageEmbed>anyCollection());
+        Mockito.verify(slashCommandInteractionEvent).isAcknowledged();
         Mockito.verifyNoMoreInteractions(messageChannelUnion);
         Mockito.verifyNoMoreInteractions(slashCommandInteractionEvent);
 
@@ -126,4 +151,218 @@ class CommandExecutorTest extends BaseTest {
 
         Assertions.assertFalse(executed, "Command should not be executed.");
     }
+
+    @DisplayName("Should route all commands.")
+    @Test
+    void shouldRouteAllCommands() {
+        Map<String, CommandDescriptor> routes = commandExecutor.getRoutes();
+
+        Assertions.assertEquals(botCommands.size(), routes.size(), "Every command must be routed.");
+        botCommands.forEach(botCommand -> {
+            Command command = botCommand.getClass().getAnnotation(Command.class);
+            CommandDescriptor descriptor = routes.get(command.name());
+
+            Assertions.assertNotNull(descriptor, "Command must be routed by its name.");
+            Assertions.assertEquals(botCommand.getClass(), descriptor.botCommand().getClass(), "Routed command must match.");
+            Assertions.assertEquals(botCommand.getSlashCommandData().getOptions().size(), descriptor.optionNames().size(),
+                    "Option names must be resolved.");
+        });
+    }
+
+    @DisplayName("Should not allow duplicate command names.")
+    @Test
+    void shouldNotAllowDuplicateCommandNames() {
+        DiscordBotEnvironment environment = Mockito.mock(DiscordBotEnvironment.class);
+        List<BotCommand<?>> duplicateCommands = List.of(new AboutCommand(environment), new AboutCommand(environment));
+
+        BeanFactory beanFactory = Mockito.mock(BeanFactory.class);
+        CommandExecutionEngine engine = Mockito.mock(CommandExecutionEngine.class);
+        CommandExecutionEnvironment executionEnvironment = new CommandExecutionEnvironment();
+
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new CommandExecutor(duplicateCommands, beanFactory, engine, executionEnvironment),
+                "Duplicate command names must be rejected.");
+    }
+
+    @DisplayName("Should reuse released command lines.")
+    @Test
+    void shouldReuseReleasedCommandLines() {
+        DiscordBotEnvironment environment = Mockito.mock(DiscordBotEnvironment.class);
+        CommandDescriptor descriptor = CommandDescriptor.of(new AboutCommand(environment), () -> new AboutCommand(environment), 1);
+
+        CommandLine first = descriptor.acquireCommandLine();
+        CommandLine second = descriptor.acquireCommandLine();
+        Assertions.assertNotSame(first.getCommand(), second.getCommand(), "Concurrent invocations must not share a command.");
+
+        descriptor.releaseCommandLine(first);
+        descriptor.releaseCommandLine(second);
+
+        Assertions.assertSame(first, descriptor.acquireCommandLine(), "Released command line should be reused.");
+        Assertions.assertNotSame(second, descriptor.acquireCommandLine(), "Idle command lines should be bounded.");
+    }
+
+    @DisplayName("Should not carry state over to the next invocation of a pooled command.")
+    @Test
+    void shouldNotCarryStateOverToNextInvocation() {
+        CommandDescriptor descriptor = CommandDescriptor.of(new StatefulCommand(), StatefulCommand::new, 1);
+
+        CommandLine first = descriptor.acquireCommandLine();
+        StatefulCommand command = first.getCommand();
+        command.setEvent(slashCommandInteractionEvent);
+        first.execute("EUR");
+        Assertions.assertEquals("EUR", command.getResult(), "Invocation should keep its state while it runs.");
+        descriptor.releaseCommandLine(first);
+
+        CommandLine second = descriptor.acquireCommandLine();
+        Assertions.assertSame(first, second, "Released command line should be reused.");
+        Assertions.assertNull(command.getEvent(), "Event should be reset.");
+        Assertions.assertNull(command.getDeferredReply(), "Deferred reply should be reset.");
+        Assertions.assertNull(command.getResult(), "Command state should be reset.");
+
+        second.parseArgs();
+        Assertions.assertNull(command.isoCode, "Parameters should be reset.");
+    }
+
+    @DisplayName("Should defer reply of deferred command.")
+    @Test
+    void shouldDeferReplyOfDeferredCommand() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(0);
+        CommandExecutionEnvironment environment = new CommandExecutionEnvironment();
+        CommandExecutor deferringExecutor = createDeferringExecutor(environment, release);
+        InteractionHook interactionHook = mockDeferral();
+
+        boolean executed = deferringExecutor.tryExecute(slashCommandInteractionEvent, DeferredCommand.NAME);
+
+        Assertions.assertTrue(executed, "Command should be executed.");
+        Mockito.verify(slashCommandInteractionEvent).deferReply();
+        Mockito.verify(interactionHook, Mockito.timeout(TIMEOUT)).editOriginal(DeferredCommand.MESSAGE);
+        Mockito.verify(interactionHook, Mockito.after(200).never()).editOriginal(CommandExecutor.DEADLINE_MESSAGE);
+        Mockito.verify(interactionHook, Mockito.never()).deleteOriginal();
+    }
+
+    @DisplayName("Should send fallback message when deferred command exceeds its deadline.")
+    @Test
+    void shouldSendFallbackMessageWhenDeadlineIsExceeded() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CommandExecutionEnvironment environment = new CommandExecutionEnvironment();
+        environment.setDeadlines(Map.of(DeferredCommand.NAME, Duration.ofMillis(50)));
+        CommandExecutor deferringExecutor = createDeferringExecutor(environment, release);
+        InteractionHook interactionHook = mockDeferral();
+
+        boolean executed = deferringExecutor.tryExecute(slashCommandInteractionEvent, DeferredCommand.NAME);
+
+        Assertions.assertTrue(executed, "Command should be executed.");
+        Mockito.verify(interactionHook, Mockito.timeout(TIMEOUT)).editOriginal(CommandExecutor.DEADLINE_MESSAGE);
+        release.countDown();
+        Mockito.verify(interactionHook, Mockito.after(200).never()).editOriginal(DeferredCommand.MESSAGE);
+    }
+
+    @DisplayName("Should answer deferred command failing on invalid input with its error message.")
+    @Test
+    void shouldAnswerDeferredCommandFailingOnInvalidInput() {
+        ConversionService conversionService = Mockito.mock(ConversionService.class);
+        BotCommand<?> convertCommand = new ConvertCommand(conversionService, Mockito.mock(DegradedModeService.class));
+        BeanFactory beanFactory = Mockito.mock(BeanFactory.class);
+        Mockito.when(beanFactory.getBean(ConvertCommand.class))
+                .thenAnswer(invocation -> new ConvertCommand(conversionService, Mockito.mock(DegradedModeService.class)));
+        CommandExecutionEnvironment environment = new CommandExecutionEnvironment();
+        CommandExecutor convertingExecutor = new CommandExecutor(List.of(convertCommand), beanFactory,
+                new CommandExecutionEngine(environment, new SimpleMeterRegistry()), environment);
+        InteractionHook interactionHook = mockDeferral();
+        Map.of("source_amount", "ten", "source_iso_code", "usd", "target_iso_code", "eur").forEach((name, value) -> {
+            OptionMapping option = Mockito.mock(OptionMapping.class);
+            Mockito.when(option.getAsString()).thenReturn(value);
+            Mockito.when(slashCommandInteractionEvent.getOption(name)).thenReturn(option);
+        });
+
+        boolean executed = convertingExecutor.tryExecute(slashCommandInteractionEvent, "convert");
+
+        Assertions.assertTrue(executed, "Command should be executed.");
+        Mockito.verify(interactionHook, Mockito.timeout(TIMEOUT)).editOriginal(convertCommand.getErrorMessage());
+        Mockito.verify(interactionHook, Mockito.never()).deleteOriginal();
+        Mockito.verifyNoInteractions(conversionService);
+    }
+
+    private CommandExecutor createDeferringExecutor(CommandExecutionEnvironment environment, CountDownLatch release) {
+        BeanFactory beanFactory = Mockito.mock(BeanFactory.class);
+        Mockito.when(beanFactory.getBean(DeferredCommand.class)).thenAnswer(invocation -> new DeferredCommand(release));
+        CommandExecutionEngine engine = new CommandExecutionEngine(environment, new SimpleMeterRegistry());
+
+        return new CommandExecutor(List.of(new DeferredCommand(release)), beanFactory, engine, environment);
+    }
+
+    private InteractionHook mockDeferral() {
+        InteractionHook interactionHook = Mockito.mock(InteractionHook.class);
+        Mockito.when(slashCommandInteractionEvent.deferReply()).thenReturn(Mockito.mock(ReplyCallbackAction.class));
+        Mockito.when(slashCommandInteractionEvent.getHook()).thenReturn(interactionHook);
+        Mockito.when(interactionHook.editOriginal(ArgumentMatchers.anyString()))
+                .thenReturn(Mockito.mock(WebhookMessageEditAction.class));
+
+        return interactionHook;
+    }
+
+    @Command(name = DeferredCommand.NAME)
+    private static class DeferredCommand extends BotCommand<String> {
+
+        private static final String NAME = "deferred";
+        private static final String MESSAGE = "Done.";
+
+        private final CountDownLatch release;
+
+        private DeferredCommand(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public String call() throws InterruptedException {
+            if (release.await(TIMEOUT, TimeUnit.MILLISECONDS) && getEvent() instanceof SlashCommandInteractionEvent) {
+                completeDeferredReply(MESSAGE);
+            }
+
+            return MESSAGE;
+        }
+
+        @Override
+        public boolean isDeferred() {
+            return true;
+        }
+
+        @Override
+        public SlashCommandData getSlashCommandData() {
+            return Commands.slash(NAME, "Deferred test command.");
+        }
+    }
+
+    @Command(name = StatefulCommand.NAME)
+    private static class StatefulCommand extends BotCommand<String> {
+
+        private static final String NAME = "stateful";
+
+        @Parameters(arity = "0..1", index = "0")
+        private String isoCode;
+
+        private String result;
+
+        @Override
+        public String call() {
+            result = isoCode;
+
+            return result;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            result = null;
+        }
+
+        private String getResult() {
+            return result;
+        }
+
+        @Override
+        public SlashCommandData getSlashCommandData() {
+            return Commands.slash(NAME, "Stateful test command.");
+        }
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.commands.core;
+
+import static org.junit.jupiter.params.ParameterizedTest.ARGUMENTS_PLACEHOLDER;
+import static org.junit.jupiter.params.ParameterizedTest.INDEX_PLACEHOLDER;
+
+import be.thibaulthelsmoortel.currencyconverterbot.BaseTest;
+import java.util.List;
+import java.util.stream.Stream;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageCreateAction;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageEditAction;
+import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class InteractionOutputStreamTest extends BaseTest {
+
+    private InteractionOutputStream interactionOutputStream;
+
+    @Mock
+    private SlashCommandInteractionEvent slashCommandInteractionEvent;
+
+    @Mock
+    private InteractionHook interactionHook;
+
+    @SuppressWarnings("unchecked")
+    @BeforeEach
+    void setUp() {
+        interactionOutputStream = new InteractionOutputStream(slashCommandInteractionEvent, null);
+
+        Mockito.when(slashCommandInteractionEvent.replyEmbeds(ArgumentMatchers.<MessageEmbed>anyCollection()))
+                .thenReturn(Mockito.mock(ReplyCallbackAction.class));
+        Mockito.when(slashCommandInteractionEvent.getHook()).thenReturn(interactionHook);
+        Mockito.when(interactionHook.sendMessageEmbeds(ArgumentMatchers.<MessageEmbed>anyCollection()))
+                .thenReturn(Mockito.mock(WebhookMessageCreateAction.class));
+        Mockito.when(interactionHook.editOriginalEmbeds(ArgumentMatchers.<MessageEmbed>anyCollection()))
+                .thenReturn(Mockito.mock(WebhookMessageEditAction.class));
+    }
+
+    @DisplayName("Should reply buffered output once closed.")
+    @Test
+    void shouldReplyBufferedOutputOnceClosed() {
+        String first = "Hello ";
+        String second = "World!";
+
+        interactionOutputStream.write(first.getBytes(), 0, first.length());
+        interactionOutputStream.write(second.getBytes(), 0, second.length());
+        Mockito.verifyNoInteractions(slashCommandInteractionEvent);
+
+        interactionOutputStream.close();
+        interactionOutputStream.close();
+
+        Mockito.verify(slashCommandInteractionEvent).replyEmbeds(List.of(toEmbed(first + second)));
+        Mockito.verify(slashCommandInteractionEvent).isAcknowledged();
+        Mockito.verifyNoMoreInteractions(slashCommandInteractionEvent);
+    }
+
+    @DisplayName("Should write char code.")
+    @Test
+    void shouldWriteCharCode() {
+        String message = "a";
+        int charCode = message.toCharArray()[0];
+        interactionOutputStream.write(charCode);
+
+        interactionOutputStream.close();
+
+        Mockito.verify(slashCommandInteractionEvent).replyEmbeds(List.of(toEmbed(message)));
+    }
+
+    @DisplayName("Should send follow-up when interaction is acknowledged.")
+    @Test
+    void shouldSendFollowUpWhenAcknowledged() {
+        String message = "Hello World!";
+        Mockito.when(slashCommandInteractionEvent.isAcknowledged()).thenReturn(true);
+
+        interactionOutputStream.write(message.getBytes(), 0, message.length());
+        interactionOutputStream.close();
+
+        Mockito.verify(interactionHook).sendMessageEmbeds(List.of(toEmbed(message)));
+        Mockito.verify(slashCommandInteractionEvent, Mockito.never()).replyEmbeds(ArgumentMatchers.<MessageEmbed>anyCollection());
+    }
+
+    @DisplayName("Should complete deferred reply.")
+    @Test
+    void shouldCompleteDeferredReply() {
+        String message = "Hello World!";
+        DeferredReply deferredReply = new DeferredReply(slashCommandInteractionEvent);
+        interactionOutputStream = new InteractionOutputStream(slashCommandInteractionEvent, deferredReply);
+
+        interactionOutputStream.write(message.getBytes(), 0, message.length());
+        interactionOutputStream.close();
+
+        Mockito.verify(interactionHook).editOriginalEmbeds(List.of(toEmbed(message)));
+        Assertions.assertFalse(deferredReply.expire("Too late."), "Deferred reply should be completed.");
+    }
+
+    @DisplayName("Should split output exceeding embed limits.")
+    @Test
+    void shouldSplitOutputExceedingEmbedLimits() {
+        String line = "a".repeat(99) + "\n";
+        String message = line.repeat(100);
+
+        interactionOutputStream.write(message.getBytes(), 0, message.length());
+        interactionOutputStream.close();
+
+        List<List<MessageEmbed>> messages = InteractionOutputStream.toMessages(message);
+        Assertions.assertEquals(2, messages.size(), "Output should be spread over two messages.");
+        messages.forEach(embeds -> {
+            Assertions.assertTrue(embeds.size() <= Message.MAX_EMBED_COUNT, "Embed count must be within limits.");
+            Assertions.assertTrue(embeds.stream().mapToInt(MessageEmbed::getLength).sum() <= MessageEmbed.EMBED_MAX_LENGTH_BOT,
+                    "Message length must be within limits.");
+            embeds.forEach(embed -> Assertions.assertTrue(embed.getDescription().endsWith("\n"),
+                    "Output should be split at line breaks."));
+        });
+        Assertions.assertEquals(message, messages.stream().flatMap(List::stream).map(MessageEmbed::getDescription)
+                .reduce("", String::concat), "No output should be lost.");
+        Mockito.verify(slashCommandInteractionEvent).replyEmbeds(messages.get(0));
+        Mockito.verify(interactionHook).sendMessageEmbeds(messages.get(1));
+    }
+
+    @DisplayName("Should not reply blank output.")
+    @ParameterizedTest(name = INDEX_PLACEHOLDER + ": " + ARGUMENTS_PLACEHOLDER)
+    @MethodSource("blankStrings")
+    void shouldNotReplyBlankOutput(String message) {
+        interactionOutputStream.write(message.getBytes(), 0, message.length());
+        interactionOutputStream.close();
+
+        Mockito.verifyNoInteractions(slashCommandInteractionEvent);
+    }
+
+    @DisplayName("Should not write null message.")
+    @SuppressWarnings("all")
+    @Test
+    void shouldNotWriteNullMessage() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> interactionOutputStream.write(null, 0, 0), "Shouldn't be able to pass null.");
+
+        Mockito.verifyNoInteractions(slashCommandInteractionEvent);
+    }
+
+    private static MessageEmbed toEmbed(String description) {
+        EmbedBuilder embedBuilder = new EmbedBuilder();
+        embedBuilder.getDescriptionBuilder().append(description);
+
+        return embedBuilder.build();
+    }
+
+    static Stream<String> blankStrings() {
+        return Stream.of("", "   ", "\t");
+    }
+}
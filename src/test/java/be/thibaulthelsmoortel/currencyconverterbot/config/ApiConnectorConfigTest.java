@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.config;
+
+import be.thibaulthelsmoortel.currencyconverterbot.BaseTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+@TestPropertySource(properties = "api.connection.max-connections=" + ApiConnectorConfigTest.MAX_CONNECTIONS)
+class ApiConnectorConfigTest extends BaseTest {
+
+    static final int MAX_CONNECTIONS = 8;
+
+    @Autowired
+    private ConnectionProvider apiConnectionProvider;
+
+    @DisplayName("Should configure shared connection pool.")
+    @Test
+    void shouldConfigureSharedConnectionPool() {
+        Assertions.assertEquals("api", apiConnectionProvider.name(), "Connection pool must be named.");
+        Assertions.assertEquals(MAX_CONNECTIONS, apiConnectionProvider.maxConnections(), "Maximum connections must be configured.");
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.security;
+
+import be.thibaulthelsmoortel.currencyconverterbot.security.service.AuthorizationService;
+import java.net.URI;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class AuthorizationExchangeFilterFunctionTest {
+
+    private AuthorizationService authorizationService;
+    private ExchangeFunction exchangeFunction;
+    private AuthorizationExchangeFilterFunction filterFunction;
+    private ClientRequest request;
+
+    @BeforeEach
+    void setUp() {
+        authorizationService = Mockito.mock(AuthorizationService.class);
+        exchangeFunction = Mockito.mock(ExchangeFunction.class);
+        filterFunction = new AuthorizationExchangeFilterFunction(authorizationService);
+        request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost/v1/rate")).build();
+    }
+
+    @DisplayName("Should authorize request with access token.")
+    @Test
+    void shouldAuthorizeRequest() {
+        ClientResponse response = mockResponse(HttpStatus.OK);
+        Mockito.when(authorizationService.authorize()).thenReturn(Mono.just("access"));
+        Mockito.when(exchangeFunction.exchange(Mockito.any(ClientRequest.class))).thenReturn(Mono.just(response));
+
+        ClientResponse result = filterFunction.filter(request, exchangeFunction).block();
+
+        Assertions.assertEquals(response, result, "Response must be correct.");
+        Assertions.assertEquals(List.of("Bearer access"), captureAuthorizationHeaders(1), "Request must be authorized.");
+        Mockito.verify(authorizationService, Mockito.never()).reauthorize(Mockito.anyString());
+    }
+
+    @DisplayName("Should retry rejected request once with new access token.")
+    @Test
+    void shouldRetryRejectedRequestOnce() {
+        ClientResponse unauthorized = mockResponse(HttpStatus.UNAUTHORIZED);
+        ClientResponse stillUnauthorized = mockResponse(HttpStatus.UNAUTHORIZED);
+        Mockito.when(authorizationService.authorize()).thenReturn(Mono.just("access"));
+        Mockito.when(authorizationService.reauthorize("access")).thenReturn(Mono.just("renewed"));
+        Mockito.when(exchangeFunction.exchange(Mockito.any(ClientRequest.class)))
+                .thenReturn(Mono.just(unauthorized), Mono.just(stillUnauthorized));
+
+        ClientResponse result = filterFunction.filter(request, exchangeFunction).block();
+
+        Assertions.assertEquals(stillUnauthorized, result, "Response of the retry must be returned.");
+        Assertions.assertEquals(List.of("Bearer access", "Bearer renewed"), captureAuthorizationHeaders(2),
+                "Request must be retried with the new access token.");
+        Mockito.verify(unauthorized).releaseBody();
+        Mockito.verify(authorizationService).reauthorize("access");
+    }
+
+    private List<String> captureAuthorizationHeaders(int exchanges) {
+        ArgumentCaptor<ClientRequest> requestCaptor = ArgumentCaptor.forClass(ClientRequest.class);
+        Mockito.verify(exchangeFunction, Mockito.times(exchanges)).exchange(requestCaptor.capture());
+
+        return requestCaptor.getAllValues().stream()
+                .map(clientRequest -> clientRequest.headers().getFirst(HttpHeaders.AUTHORIZATION))
+                .toList();
+    }
+
+    private static ClientResponse mockResponse(HttpStatus status) {
+        ClientResponse response = Mockito.mock(ClientResponse.class);
+        Mockito.when(response.statusCode()).thenReturn(status);
+        Mockito.when(response.releaseBody()).thenReturn(Mono.empty());
+
+        return response;
+    }
+}
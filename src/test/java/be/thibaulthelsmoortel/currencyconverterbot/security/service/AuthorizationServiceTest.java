@@ -22,9 +22,20 @@ package be.thibaulthelsmoortel.currencyconverterbot.security.service;
 import be.thibaulthelsmoortel.currencyconverterbot.security.service.payload.ApiAuthentication;
 import be.thibaulthelsmoortel.currencyconverterbot.security.service.payload.RefreshTokenBody;
 import be.thibaulthelsmoortel.currencyconverterbot.security.service.payload.SigninBody;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Base64.Encoder;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
@@ -37,9 +48,10 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClient.RequestBodyUriSpec;
 import org.springframework.web.reactive.function.client.WebClient.RequestHeadersSpec;
-import org.springframework.web.reactive.function.client.WebClient.RequestHeadersUriSpec;
 import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * @author Thibault Helsmoortel
@@ -47,6 +59,8 @@ import reactor.core.publisher.Mono;
 @SpringBootTest
 class AuthorizationServiceTest {
 
+    private static final int CONCURRENT_REQUESTS = 1_000;
+
     @Autowired
     private AuthorizationService authorizationService;
 
@@ -57,12 +71,19 @@ class AuthorizationServiceTest {
     @MockBean
     private Consumer<HttpHeaders> apiHeaders;
 
+    @BeforeEach
+    void setUp() {
+        AuthorizationServiceBean authorizationServiceBean = (AuthorizationServiceBean) authorizationService;
+        authorizationServiceBean.signOut();
+        authorizationServiceBean.setClock(Clock.systemUTC());
+    }
+
     @DisplayName("Tist first time authorize.")
     @Test
     void testFirstTimeAuthorize() {
         ApiAuthentication apiAuthentication = mockFirstTimeAuthentication();
 
-        String result = authorizationService.authorize();
+        String result = authorizationService.authorize().block();
 
         Assertions.assertNotNull(result, "Result must not be null.");
         Assertions.assertEquals(apiAuthentication.getAccessToken(), result, "Response must be correct.");
@@ -71,6 +92,12 @@ class AuthorizationServiceTest {
     @SuppressWarnings({"rawtypes", "unchecked"})
     @NotNull
     private ApiAuthentication mockFirstTimeAuthentication() {
+        return mockFirstTimeAuthentication("access");
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @NotNull
+    private ApiAuthentication mockFirstTimeAuthentication(String accessToken) {
         RequestBodyUriSpec requestBodyUriSpec = Mockito.mock(RequestBodyUriSpec.class);
         Mockito.when(unauthenticatedApiClient.post()).thenReturn(requestBodyUriSpec);
         Mockito.when(requestBodyUriSpec.uri("/auth/signin")).thenReturn(requestBodyUriSpec);
@@ -80,30 +107,24 @@ class AuthorizationServiceTest {
         ResponseSpec responseSpec = Mockito.mock(ResponseSpec.class);
         Mockito.when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
         ApiAuthentication apiAuthentication = new ApiAuthentication();
-        apiAuthentication.setAccessToken("access");
+        apiAuthentication.setAccessToken(accessToken);
+        apiAuthentication.setRefreshToken("refresh");
         Mockito.when(responseSpec.bodyToMono(ApiAuthentication.class)).thenReturn(Mono.just(apiAuthentication));
 
         return apiAuthentication;
     }
 
     @DisplayName("Should remain signed in.")
-    @SuppressWarnings({"rawtypes", "unchecked"})
     @Test
     void testStillSignedIn() {
         mockFirstTimeAuthentication();
-        String firstToken = authorizationService.authorize();
-
-        RequestHeadersUriSpec requestHeadersUriSpec = Mockito.mock(RequestHeadersUriSpec.class);
-        Mockito.when(unauthenticatedApiClient.get()).thenReturn(requestHeadersUriSpec);
-        Mockito.when(requestHeadersUriSpec.uri("/roles/client")).thenReturn(requestHeadersUriSpec);
-        Mockito.when(requestHeadersUriSpec.headers(apiHeaders)).thenReturn(requestHeadersUriSpec);
-        ResponseSpec responseSpec = Mockito.mock(ResponseSpec.class);
-        Mockito.when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
-        Mockito.when(responseSpec.bodyToMono(String.class)).thenReturn(Mono.just("Client Content."));
+        String firstToken = authorizationService.authorize().block();
 
-        String secondToken = authorizationService.authorize();
+        String secondToken = authorizationService.authorize().block();
 
         Assertions.assertEquals(firstToken, secondToken, "Token must not have changed.");
+        Mockito.verify(unauthenticatedApiClient).post();
+        Mockito.verify(unauthenticatedApiClient, Mockito.never()).get();
     }
 
     @DisplayName("Should refresh token.")
@@ -111,15 +132,9 @@ class AuthorizationServiceTest {
     @Test
     void testRefreshToken() {
         mockFirstTimeAuthentication();
-        String firstToken = authorizationService.authorize();
+        String firstToken = authorizationService.authorize().block();
 
-        RequestHeadersUriSpec requestHeadersUriSpec = Mockito.mock(RequestHeadersUriSpec.class);
-        Mockito.when(unauthenticatedApiClient.get()).thenReturn(requestHeadersUriSpec);
-        Mockito.when(requestHeadersUriSpec.uri("/roles/client")).thenReturn(requestHeadersUriSpec);
-        Mockito.when(requestHeadersUriSpec.headers(apiHeaders)).thenReturn(requestHeadersUriSpec);
         ResponseSpec responseSpec = Mockito.mock(ResponseSpec.class);
-        Mockito.when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
-        Mockito.when(responseSpec.bodyToMono(String.class)).thenThrow(RuntimeException.class);
 
         RequestBodyUriSpec requestBodyUriSpec = Mockito.mock(RequestBodyUriSpec.class);
         Mockito.when(unauthenticatedApiClient.post()).thenReturn(requestBodyUriSpec);
@@ -132,7 +147,7 @@ class AuthorizationServiceTest {
         apiAuthentication.setAccessToken("refreshed");
         Mockito.when(responseSpec.bodyToMono(ApiAuthentication.class)).thenReturn(Mono.just(apiAuthentication));
 
-        String secondToken = authorizationService.authorize();
+        String secondToken = authorizationService.reauthorize(firstToken).block();
 
         Assertions.assertNotEquals(firstToken, secondToken, "Token must have been refreshed.");
     }
@@ -142,15 +157,9 @@ class AuthorizationServiceTest {
     @Test
     void testSignBackIn() {
         mockFirstTimeAuthentication();
-        String firstToken = authorizationService.authorize();
+        String firstToken = authorizationService.authorize().block();
 
-        RequestHeadersUriSpec requestHeadersUriSpec = Mockito.mock(RequestHeadersUriSpec.class);
-        Mockito.when(unauthenticatedApiClient.get()).thenReturn(requestHeadersUriSpec);
-        Mockito.when(requestHeadersUriSpec.uri("/roles/client")).thenReturn(requestHeadersUriSpec);
-        Mockito.when(requestHeadersUriSpec.headers(apiHeaders)).thenReturn(requestHeadersUriSpec);
         ResponseSpec responseSpec = Mockito.mock(ResponseSpec.class);
-        Mockito.when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
-        Mockito.when(responseSpec.bodyToMono(String.class)).thenThrow(RuntimeException.class);
 
         RequestBodyUriSpec requestBodyUriSpec = Mockito.mock(RequestBodyUriSpec.class);
         Mockito.when(unauthenticatedApiClient.post()).thenReturn(requestBodyUriSpec);
@@ -171,8 +180,95 @@ class AuthorizationServiceTest {
         apiAuthentication.setAccessToken("newSignIn");
         Mockito.when(responseSpecNewSignIn.bodyToMono(ApiAuthentication.class)).thenReturn(Mono.just(apiAuthentication));
 
-        String secondToken = authorizationService.authorize();
+        String secondToken = authorizationService.reauthorize(firstToken).block();
 
         Assertions.assertNotEquals(firstToken, secondToken, "Token must have changed after having signed in again.");
     }
+
+    @DisplayName("Should not sign in again when rejected token was already replaced.")
+    @Test
+    void testRejectedTokenAlreadyReplaced() {
+        mockFirstTimeAuthentication();
+        String token = authorizationService.authorize().block();
+
+        String newToken = authorizationService.reauthorize("rejected").block();
+
+        Assertions.assertEquals(token, newToken, "Token must not have changed.");
+        Mockito.verify(unauthenticatedApiClient).post();
+    }
+
+    @DisplayName("Should renew expired token.")
+    @Test
+    void testRenewExpiredToken() {
+        AuthorizationServiceBean authorizationServiceBean = (AuthorizationServiceBean) authorizationService;
+        authorizationServiceBean.setClock(Clock.fixed(Instant.EPOCH, ZoneOffset.UTC));
+        String expiringToken = createJwt(Instant.EPOCH.plusSeconds(1000));
+        mockFirstTimeAuthentication(expiringToken);
+
+        String firstToken = authorizationService.authorize().block();
+        String secondToken = authorizationService.authorize().block();
+        authorizationServiceBean.setClock(Clock.fixed(Instant.EPOCH.plusSeconds(1000), ZoneOffset.UTC));
+        mockFirstTimeAuthentication("renewed");
+        String renewedToken = authorizationService.authorize().block();
+
+        Assertions.assertEquals(expiringToken, firstToken, "Response must be correct.");
+        Assertions.assertEquals(firstToken, secondToken, "Token must not have changed before its expiry.");
+        Assertions.assertEquals("renewed", renewedToken, "Token must have been renewed after its expiry.");
+    }
+
+    @DisplayName("Should refresh expired token once for concurrent requests.")
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Test
+    void testRefreshExpiredTokenOnceForConcurrentRequests() {
+        AuthorizationServiceBean authorizationServiceBean = (AuthorizationServiceBean) authorizationService;
+        authorizationServiceBean.setClock(Clock.fixed(Instant.EPOCH, ZoneOffset.UTC));
+        mockFirstTimeAuthentication(createJwt(Instant.EPOCH.plusSeconds(1000)));
+        authorizationService.authorize().block();
+        authorizationServiceBean.setClock(Clock.fixed(Instant.EPOCH.plusSeconds(1000), ZoneOffset.UTC));
+
+        RequestBodyUriSpec requestBodyUriSpec = Mockito.mock(RequestBodyUriSpec.class);
+        Mockito.when(unauthenticatedApiClient.post()).thenReturn(requestBodyUriSpec);
+        Mockito.when(requestBodyUriSpec.uri("/auth/refreshtoken")).thenReturn(requestBodyUriSpec);
+        RequestHeadersSpec requestHeadersSpec = Mockito.mock(RequestHeadersSpec.class);
+        Mockito.when(requestBodyUriSpec.bodyValue(ArgumentMatchers.any(RefreshTokenBody.class))).thenReturn(requestHeadersSpec);
+        ResponseSpec responseSpec = Mockito.mock(ResponseSpec.class);
+        Mockito.when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        ApiAuthentication apiAuthentication = new ApiAuthentication();
+        apiAuthentication.setAccessToken("refreshed");
+        AtomicInteger refreshes = new AtomicInteger();
+        Mockito.when(responseSpec.bodyToMono(ApiAuthentication.class)).thenReturn(Mono.defer(() -> {
+            refreshes.incrementAndGet();
+
+            return Mono.just(apiAuthentication).delayElement(Duration.ofMillis(100));
+        }));
+
+        List<String> tokens = Flux.range(0, CONCURRENT_REQUESTS)
+                .flatMap(i -> Mono.defer(authorizationService::authorize).subscribeOn(Schedulers.parallel()), CONCURRENT_REQUESTS)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        Assertions.assertNotNull(tokens, "Tokens must not be null.");
+        Assertions.assertEquals(CONCURRENT_REQUESTS, tokens.size(), "Every request must be authorized.");
+        Assertions.assertTrue(tokens.stream().allMatch("refreshed"::equals), "Every request must use the refreshed token.");
+        Assertions.assertEquals(1, refreshes.get(), "Token must have been refreshed exactly once.");
+    }
+
+    @DisplayName("Should read expiry of token.")
+    @Test
+    void testReadExpiry() {
+        Instant expiry = Instant.ofEpochSecond(1_700_000_000L);
+
+        Assertions.assertEquals(Optional.of(expiry), AuthorizationServiceBean.readExpiry(createJwt(expiry)),
+                "Expiry must be read from the exp claim.");
+        Assertions.assertEquals(Optional.empty(), AuthorizationServiceBean.readExpiry("access"),
+                "Expiry must be empty for a token that is no JWT.");
+    }
+
+    private static String createJwt(Instant expiry) {
+        Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString(("{\"sub\":\"client\",\"exp\":" + expiry.getEpochSecond() + "}").getBytes(StandardCharsets.UTF_8))
+                + ".signature";
+    }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2023 Thibault Helsmoortel.
+ *
+ *  This file is part of Currency Converter Bot.
+ *
+ *  Currency Converter Bot is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Currency Converter Bot is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Currency Converter Bot.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package be.thibaulthelsmoortel.currencyconverterbot.validation;
+
+import be.thibaulthelsmoortel.currencyconverterbot.client.CurrencyCode;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Thibault Helsmoortel
+ */
+class SupportedCurrenciesTest {
+
+    private final SupportedCurrencies supportedCurrencies = SupportedCurrencies.of(Stream.of("EUR", "USD", "UYU", "GBP", "AAA", "ZZZ")
+            .map(CurrencyCode::of)
+            .toList());
+
+    @DisplayName("Should contain supported currencies.")
+    @Test
+    void shouldContainSupportedCurrencies() {
+        Assertions.assertEquals(6, supportedCurrencies.size(), "All currencies should be supported.");
+        Assertions.assertTrue(supportedCurrencies.contains(CurrencyCode.of("AAA")), "First code should be supported.");
+        Assertions.assertTrue(supportedCurrencies.contains(CurrencyCode.of("ZZZ")), "Last code should be supported.");
+        Assertions.assertTrue(supportedCurrencies.contains(CurrencyCode.of("USD")), "USD should be supported.");
+        Assertions.assertFalse(supportedCurrencies.contains(CurrencyCode.of("JPY")), "JPY should not be supported.");
+        Assertions.assertFalse(supportedCurrencies.contains(null), "Nothing should not be supported.");
+    }
+
+    @DisplayName("Should support known currencies until loaded.")
+    @Test
+    void shouldSupportKnownCurrencies() {
+        SupportedCurrencies known = SupportedCurrencies.getKnown();
+
+        Assertions.assertEquals(CurrencyCode.getKnownCount(), known.size(), "All known currencies should be supported.");
+        Assertions.assertTrue(known.contains(CurrencyCode.of("JPY")), "JPY should be supported.");
+        Assertions.assertFalse(known.contains(CurrencyCode.of("QQQ")), "Unknown code should not be supported.");
+    }
+
+    @DisplayName("Should suggest the closest currency.")
+    @Test
+    void shouldSuggestClosestCurrency() {
+        Assertions.assertEquals(CurrencyCode.of("USD"), supportedCurrencies.suggest(CurrencyCode.of("USF")), "Substitution should be suggested.");
+        Assertions.assertEquals(CurrencyCode.of("EUR"), supportedCurrencies.suggest(CurrencyCode.of("ERU")), "Swap should be suggested.");
+        Assertions.assertEquals(CurrencyCode.of("UYU"), supportedCurrencies.suggest(CurrencyCode.of("UYD")),
+                "Code sharing the longest prefix should be suggested.");
+        Assertions.assertEquals(CurrencyCode.of("GBP"), supportedCurrencies.suggest(CurrencyCode.of("GPB")), "Swap should beat substitutions.");
+        Assertions.assertNull(supportedCurrencies.suggest(CurrencyCode.of("JPY")), "Distant code should not be suggested.");
+    }
+
+    @DisplayName("Should suggest known currencies.")
+    @Test
+    void shouldSuggestKnownCurrencies() {
+        Assertions.assertEquals(CurrencyCode.of("EUR"), SupportedCurrencies.getKnown().suggest(CurrencyCode.of("EUX")),
+                "Known currency should be suggested.");
+    }
+}